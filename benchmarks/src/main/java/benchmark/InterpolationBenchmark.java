@@ -0,0 +1,77 @@
+package benchmark;
+
+import geom.Geometry;
+import geom.ParametricGeometry;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import mesh.BoundaryFaces;
+import mesh.StructuredGrid;
+import mesh.TfiKernel;
+import mesh.TransfiniteInterpolation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Transfinite interpolation of the boundary faces and of the volume of an
+ * n x n x n grid.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class InterpolationBenchmark {
+
+    @Param({"64", "128", "256", "512"})
+    public int size;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"VECTORIZED"})
+    public TfiKernel kernel;
+
+    private ForkJoinPool pool;
+    private Geometry geom;
+    private BoundaryFaces faces;
+
+    @Setup
+    public void setup() throws IOException {
+        File file = BenchmarkGeometry.write(1000);
+        geom = ParametricGeometry.read(file).sample(size, size, size);
+        pool = new ForkJoinPool(threads);
+        faces = TransfiniteInterpolation.interpolateFaces(geom, pool);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public BoundaryFaces faces(Nodes nodes) {
+        nodes.nodes += 2L * (size * size) * 3;
+        return TransfiniteInterpolation.interpolateFaces(geom, pool);
+    }
+
+    @Benchmark
+    public StructuredGrid volume(Nodes nodes) {
+        nodes.nodes += (long) size * size * size;
+        return TransfiniteInterpolation.interpolate(faces, kernel, pool);
+    }
+}
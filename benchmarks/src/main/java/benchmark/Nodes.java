@@ -0,0 +1,25 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counts the grid or geometry points handled by a benchmark, so that the
+ * throughput is also reported in nodes per second.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Nodes {
+
+    public long nodes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        nodes = 0;
+    }
+}
@@ -0,0 +1,167 @@
+package benchmark;
+
+import geom.Geometry;
+import geom.GeometryFromFile;
+import io.DatMeshWriter;
+import io.VtkMeshWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import mesh.SlabDirection;
+import mesh.SlabSink;
+import mesh.StructuredGrid;
+import mesh.TfiKernel;
+import mesh.TransfiniteInterpolation;
+
+/**
+ * A single run of the complete pipeline, as done by the main program: read
+ * the geometry file, sample it, and interpolate the volume once for each
+ * writer. Started in a fresh JVM by {@link ScalingBenchmark}, so that the peak
+ * memory and the GC time belong to this run alone. Prints one line with the
+ * measurements, see {@link #COLUMNS}.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class PipelineRun {
+
+    static final String COLUMNS = "kernel,size,threads,readSeconds,datSeconds,datBytes,datMBps,"
+            + "vtkSeconds,vtkBytes,vtkMBps,wallSeconds,peakRssMB,gcSeconds,gcCount,"
+            + "coordinates,datCrc,vtkCrc";
+    static final String RESULT_PREFIX = "RESULT ";
+
+    private static final int SLAB_SIZE = 16;
+    private static final int NUM_BUFFERS = 3;
+
+    private PipelineRun() {
+    }
+
+    /**
+     * @param args geometry file, output directory, kernel, size and number of
+     * threads
+     */
+    public static void main(String[] args) throws IOException {
+        File geometryFile = new File(args[0]);
+        File outputDirectory = new File(args[1]);
+        TfiKernel kernel = TfiKernel.valueOf(args[2]);
+        int size = Integer.parseInt(args[3]);
+        int threads = Integer.parseInt(args[4]);
+
+        File datFile = new File(outputDirectory, "mesh_" + size + ".dat");
+        File vtkFile = new File(outputDirectory, "mesh_" + size + ".vtk");
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            long start = System.nanoTime();
+            Geometry geom = new GeometryFromFile(geometryFile, size, size, size);
+            long read = System.nanoTime();
+
+            CoordinateChecksum checksum;
+            try (DatMeshWriter writer = new DatMeshWriter(datFile.getPath(), size, size, size)) {
+                checksum = new CoordinateChecksum(writer);
+                TransfiniteInterpolation.interpolatePipelined(
+                        geom, kernel, checksum, SLAB_SIZE, NUM_BUFFERS, pool);
+            }
+            long dat = System.nanoTime();
+
+            try (VtkMeshWriter writer = new VtkMeshWriter(vtkFile.getPath(), size, size, size)) {
+                TransfiniteInterpolation.interpolatePipelined(
+                        geom, kernel, writer, SLAB_SIZE, NUM_BUFFERS, pool);
+            }
+            long vtk = System.nanoTime();
+
+            double datSeconds = (dat - read) * 1e-9;
+            double vtkSeconds = (vtk - dat) * 1e-9;
+            long gcMillis = 0;
+            long gcCount = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                gcMillis += Math.max(0, gc.getCollectionTime());
+                gcCount += Math.max(0, gc.getCollectionCount());
+            }
+            System.out.println(RESULT_PREFIX + String.format(Locale.ROOT,
+                    "%s,%d,%d,%.3f,%.3f,%d,%.1f,%.3f,%d,%.1f,%.3f,%.1f,%.3f,%d,%016x,%08x,%08x",
+                    kernel, size, threads, (read - start) * 1e-9,
+                    datSeconds, datFile.length(), datFile.length() / datSeconds / 1e6,
+                    vtkSeconds, vtkFile.length(), vtkFile.length() / vtkSeconds / 1e6,
+                    (vtk - start) * 1e-9, peakRssMegabytes(), gcMillis * 1e-3, gcCount,
+                    checksum.value(), crc(datFile), crc(vtkFile)));
+        } finally {
+            pool.shutdown();
+            datFile.delete();
+            vtkFile.delete();
+        }
+    }
+
+    /**
+     * @return the peak resident set size of this process, or -1 where it is
+     * not available
+     */
+    private static double peakRssMegabytes() {
+        try {
+            List<String> status = Files.readAllLines(Paths.get("/proc/self/status"), StandardCharsets.US_ASCII);
+            for (String line : status) {
+                if (line.startsWith("VmHWM:")) {
+                    String kiloBytes = line.substring("VmHWM:".length()).replace("kB", "").trim();
+                    return Long.parseLong(kiloBytes) / 1024.0;
+                }
+            }
+        } catch (IOException | NumberFormatException ex) {
+            // not running on Linux
+        }
+        return -1;
+    }
+
+    private static long crc(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Hashes the exact bits of every coordinate of the xi slabs passed on to
+     * the writer. The slabs arrive in order, so the points are hashed in the
+     * storage order of the whole volume.
+     */
+    private static class CoordinateChecksum implements SlabSink {
+
+        private final SlabSink writer;
+        private long hash = 0xcbf29ce484222325L;
+
+        CoordinateChecksum(SlabSink writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public SlabDirection slabDirection() {
+            return SlabDirection.XI;
+        }
+
+        @Override
+        public void accept(StructuredGrid slab, int start) throws IOException {
+            for (int n = 0; n < slab.numPoints(); n++) {
+                hash = (hash ^ Double.doubleToLongBits(slab.x[n])) * 0x100000001b3L;
+                hash = (hash ^ Double.doubleToLongBits(slab.y[n])) * 0x100000001b3L;
+                hash = (hash ^ Double.doubleToLongBits(slab.z[n])) * 0x100000001b3L;
+            }
+            writer.accept(slab, start);
+        }
+
+        long value() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package benchmark;
+
+import geom.ParametricGeometry;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import mesh.MeshQuality;
+import mesh.StructuredGrid;
+import mesh.TfiKernel;
+import mesh.TransfiniteInterpolation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Quality analysis of the cells of an n x n x n grid, with and without
+ * keeping the values of every cell.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class QualityBenchmark {
+
+    @Param({"64", "128", "256"})
+    public int size;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"false", "true"})
+    public boolean keepCellData;
+
+    private ForkJoinPool pool;
+    private StructuredGrid grid;
+
+    @Setup
+    public void setup() throws IOException {
+        ParametricGeometry geom = ParametricGeometry.read(BenchmarkGeometry.write(1000));
+        pool = new ForkJoinPool(threads);
+        grid = TransfiniteInterpolation.interpolate(geom.sample(size, size, size), TfiKernel.VECTORIZED, pool);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public MeshQuality analyze(Nodes nodes) {
+        MeshQuality quality = MeshQuality.analyze(grid, pool, keepCellData);
+        nodes.nodes += quality.numCells();
+        return quality;
+    }
+}
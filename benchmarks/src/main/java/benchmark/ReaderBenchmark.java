@@ -0,0 +1,51 @@
+package benchmark;
+
+import geom.Curve;
+import io.GeometryFileReader;
+import io.GeometryFileReader.Label;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading a geometry file with the given number of points on each of its
+ * twelve curves.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReaderBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int pointsPerCurve;
+
+    private File file;
+
+    @Setup
+    public void setup() throws IOException {
+        file = BenchmarkGeometry.write(pointsPerCurve);
+    }
+
+    @Benchmark
+    public Map<Label, Curve> readCurves(Nodes nodes) throws IOException {
+        nodes.nodes += 12L * pointsPerCurve;
+        return GeometryFileReader.readCurves(file);
+    }
+}
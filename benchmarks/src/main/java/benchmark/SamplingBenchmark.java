@@ -0,0 +1,50 @@
+package benchmark;
+
+import geom.Geometry;
+import geom.ParametricGeometry;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sampling the twelve edges of a parametric geometry at n points each.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SamplingBenchmark {
+
+    @Param({"64", "128", "256", "512"})
+    public int size;
+
+    @Param({"1000", "100000"})
+    public int pointsPerCurve;
+
+    private ParametricGeometry geom;
+
+    @Setup
+    public void setup() throws IOException {
+        geom = ParametricGeometry.read(BenchmarkGeometry.write(pointsPerCurve));
+    }
+
+    @Benchmark
+    public Geometry sample(Nodes nodes) {
+        nodes.nodes += 12L * size;
+        return geom.sample(size, size, size);
+    }
+}
@@ -0,0 +1,165 @@
+package benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * End-to-end scaling benchmark and regression check of the complete
+ * pipeline. Every combination of kernel, grid size and number of threads is
+ * run in a fresh JVM (see {@link PipelineRun}) and its measurements are
+ * appended to a CSV file. The checksums of the coordinates and of the written
+ * files are compared with the stored reference checksums, and the benchmark
+ * fails if any of them differ, so that a change in the kernels or the writers
+ * cannot silently change the generated meshes.
+ *
+ * Options, with their defaults:
+ * <pre>
+ * --geometry=geom.dat
+ * --sizes=64,128,256
+ * --threads=1,2,4,8
+ * --kernels=VECTORIZED
+ * --results=scaling-results.csv
+ * --reference=benchmarks/reference-checksums.properties
+ * --jvm-args=-Xmx4g
+ * --update-reference   store the checksums instead of checking them
+ * </pre>
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class ScalingBenchmark {
+
+    private ScalingBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        options.put("geometry", "geom.dat");
+        options.put("sizes", "64,128,256");
+        options.put("threads", "1,2,4,8");
+        options.put("kernels", "VECTORIZED");
+        options.put("results", "scaling-results.csv");
+        options.put("reference", "benchmarks/reference-checksums.properties");
+        options.put("jvm-args", "-Xmx4g");
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+            int equals = arg.indexOf('=');
+            if (equals < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, equals), arg.substring(equals + 1));
+            }
+        }
+        boolean updateReference = options.containsKey("update-reference");
+
+        File referenceFile = new File(options.get("reference"));
+        Properties reference = new Properties();
+        if (referenceFile.exists()) {
+            try (InputStream in = new FileInputStream(referenceFile)) {
+                reference.load(in);
+            }
+        }
+
+        File results = new File(options.get("results"));
+        boolean newResults = !results.exists();
+        File outputDirectory = Files.createTempDirectory("scaling").toFile();
+        int failures = 0;
+        try (PrintWriter csv = new PrintWriter(new FileOutputStream(results, true))) {
+            if (newResults) {
+                csv.println(PipelineRun.COLUMNS + ",status");
+            }
+            System.out.println(PipelineRun.COLUMNS + ",status");
+            for (String kernel : options.get("kernels").split(",")) {
+                for (String size : options.get("sizes").split(",")) {
+                    for (String threads : options.get("threads").split(",")) {
+                        String result = run(options, outputDirectory, kernel, size, threads);
+                        String[] values = result.split(",");
+                        String key = kernel + "." + size;
+                        String checksums = values[14] + "," + values[15] + "," + values[16];
+                        String status;
+                        if (updateReference) {
+                            reference.setProperty(key, checksums);
+                            status = "stored";
+                        } else if (!reference.containsKey(key)) {
+                            status = "no-reference";
+                        } else if (reference.getProperty(key).equals(checksums)) {
+                            status = "ok";
+                        } else {
+                            status = "CHANGED";
+                            failures++;
+                        }
+                        csv.println(result + "," + status);
+                        csv.flush();
+                        System.out.println(result + "," + status);
+                    }
+                }
+            }
+        } finally {
+            outputDirectory.delete();
+        }
+
+        if (updateReference) {
+            try (OutputStream out = new FileOutputStream(referenceFile)) {
+                reference.store(out, "Checksums of coordinates, .dat file and .vtk file per kernel.size");
+            }
+        }
+        if (failures > 0) {
+            System.err.println(failures + " run(s) produced a mesh different from the reference.");
+            System.exit(1);
+        }
+    }
+
+    private static String run(Map<String, String> options, File outputDirectory,
+            String kernel, String size, String threads) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        for (String jvmArg : options.get("jvm-args").split(" ")) {
+            if (!jvmArg.isEmpty()) {
+                command.add(jvmArg);
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(PipelineRun.class.getName());
+        command.add(options.get("geometry"));
+        command.add(outputDirectory.getPath());
+        command.add(kernel);
+        command.add(size);
+        command.add(threads);
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String result = null;
+        StringBuilder output = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(PipelineRun.RESULT_PREFIX)) {
+                    result = line.substring(PipelineRun.RESULT_PREFIX.length());
+                } else {
+                    output.append(line).append('\n');
+                }
+            }
+        }
+        if (process.waitFor() != 0 || result == null) {
+            throw new IOException("The run " + kernel + " " + size + " " + threads + " failed:\n" + output);
+        }
+
+        return result;
+    }
+}
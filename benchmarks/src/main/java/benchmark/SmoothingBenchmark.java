@@ -0,0 +1,71 @@
+package benchmark;
+
+import geom.ParametricGeometry;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import mesh.EllipticSmoother;
+import mesh.SmoothingResult;
+import mesh.StructuredGrid;
+import mesh.TfiKernel;
+import mesh.TransfiniteInterpolation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sweeps of the elliptic smoother over an n x n x n grid. The grid keeps
+ * being smoothed from one invocation to the next, which does not change the
+ * cost of a sweep.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class SmoothingBenchmark {
+
+    private static final int SWEEPS = 10;
+
+    @Param({"64", "128", "256"})
+    public int size;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private ForkJoinPool pool;
+    private StructuredGrid grid;
+    private EllipticSmoother smoother;
+
+    @Setup
+    public void setup() throws IOException {
+        ParametricGeometry geom = ParametricGeometry.read(BenchmarkGeometry.write(1000));
+        pool = new ForkJoinPool(threads);
+        grid = TransfiniteInterpolation.interpolate(geom.sample(size, size, size), TfiKernel.VECTORIZED, pool);
+        smoother = new EllipticSmoother(SWEEPS, 0.0, 1.5);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public SmoothingResult sweeps(Nodes nodes) {
+        SmoothingResult result = smoother.smooth(grid, pool);
+        nodes.nodes += (long) result.iterations() * (size - 2) * (size - 2) * (size - 2);
+        return result;
+    }
+}
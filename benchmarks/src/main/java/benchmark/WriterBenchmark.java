@@ -0,0 +1,112 @@
+package benchmark;
+
+import geom.ParametricGeometry;
+import io.MeshFileWriter;
+import io.VtkCompression;
+import io.VtkPrecision;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import mesh.StorageOrder;
+import mesh.StructuredGrid;
+import mesh.TfiKernel;
+import mesh.TransfiniteInterpolation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writing an n x n x n grid in each of the mesh file formats. The files are
+ * written to a temporary directory. The VTK writers transpose grids stored
+ * with zeta changing fastest and copy grids stored with xi changing fastest;
+ * the .dat writer always uses a zeta fastest grid. The .vts formats are
+ * written uncompressed and with zlib, as one file or as PVTS_PIECES pieces.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class WriterBenchmark {
+
+    public enum Format {
+        DAT, VTK_FLOAT, VTK_DOUBLE, VTS_FLOAT, VTS_ZLIB, PVTS_ZLIB
+    }
+
+    private static final int PVTS_PIECES = 8;
+
+    @Param({"64", "128", "256"})
+    public int size;
+
+    @Param({"DAT", "VTK_FLOAT", "VTK_DOUBLE", "VTS_FLOAT", "VTS_ZLIB", "PVTS_ZLIB"})
+    public Format format;
+
+    @Param({"ZETA_FASTEST", "XI_FASTEST"})
+    public StorageOrder storageOrder;
+
+    private StructuredGrid grid;
+    private File directory;
+    private File file;
+
+    @Setup
+    public void setup() throws IOException {
+        ParametricGeometry geom = ParametricGeometry.read(BenchmarkGeometry.write(1000));
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            grid = TransfiniteInterpolation.interpolate(geom.sample(size, size, size), TfiKernel.VECTORIZED,
+                    pool, format == Format.DAT ? StorageOrder.ZETA_FASTEST : storageOrder);
+        } finally {
+            pool.shutdown();
+        }
+        directory = Files.createTempDirectory("mesh").toFile();
+        file = new File(directory, "mesh");
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (File written : directory.listFiles()) {
+            written.delete();
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public void write(Nodes nodes) throws IOException {
+        nodes.nodes += grid.numPoints();
+        switch (format) {
+            case DAT:
+                MeshFileWriter.writeMesh(grid, file.getPath());
+                break;
+            case VTK_FLOAT:
+                MeshFileWriter.writeMeshVtkFormat(grid, file.getPath(), VtkPrecision.FLOAT);
+                break;
+            case VTK_DOUBLE:
+                MeshFileWriter.writeMeshVtkFormat(grid, file.getPath(), VtkPrecision.DOUBLE);
+                break;
+            case VTS_FLOAT:
+                MeshFileWriter.writeMeshVtsFormat(grid, file.getPath(), VtkPrecision.FLOAT, VtkCompression.NONE);
+                break;
+            case VTS_ZLIB:
+                MeshFileWriter.writeMeshVtsFormat(grid, file.getPath(), VtkPrecision.FLOAT, VtkCompression.ZLIB);
+                break;
+            default:
+                MeshFileWriter.writeMeshPvtsFormat(grid, file.getPath(), VtkPrecision.FLOAT,
+                        VtkCompression.ZLIB, PVTS_PIECES);
+                break;
+        }
+    }
+}
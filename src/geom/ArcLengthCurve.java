@@ -0,0 +1,140 @@
+package geom;
+
+/**
+ * Curve parameterized by its normalized arc length: the parameter is 0 at the
+ * first point, 1 at the last point, and changes linearly with the distance
+ * along the polyline in between. The curve is immutable and may be sampled
+ * concurrently.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class ArcLengthCurve {
+
+    private static final double TOLERANCE = 1e-8;
+
+    private final Curve curve;
+    private final double[] parameters;
+
+    public ArcLengthCurve(Curve curve) {
+        if (curve.numPoints() < 2) {
+            throw new IllegalArgumentException("The number of points per side must be at least 2.");
+        }
+        this.curve = curve;
+        this.parameters = calculateParameterMapping(curve);
+    }
+
+    private static double[] calculateParameterMapping(Curve curve) {
+        int numPoints = curve.numPoints();
+        double[] cumLen = new double[numPoints];
+        cumLen[0] = 0.0;
+        for (int i = 1; i < numPoints; i++) {
+            double dx = curve.x[i - 1] - curve.x[i];
+            double dy = curve.y[i - 1] - curve.y[i];
+            double dz = curve.z[i - 1] - curve.z[i];
+            cumLen[i] = cumLen[i - 1] + Math.sqrt(dx * dx + dy * dy + dz * dz);
+        }
+
+        double length = cumLen[numPoints - 1];
+        if (length == 0.0) {
+            // a collapsed edge: all samples are the same point
+            for (int i = 0; i < numPoints; i++) {
+                cumLen[i] = i / (numPoints - 1.0);
+            }
+            return cumLen;
+        }
+        for (int i = 0; i < numPoints; i++) {
+            cumLen[i] = cumLen[i] / length;
+        }
+
+        return cumLen;
+    }
+
+    public Curve curve() {
+        return curve;
+    }
+
+    public Point firstPoint() {
+        return curve.getPoint(0);
+    }
+
+    public Point lastPoint() {
+        return curve.getPoint(curve.numPoints() - 1);
+    }
+
+    /**
+     * Samples the curve at equally spaced parameters.
+     *
+     * @param numPoints number of sample points, including both ends
+     * @return the sampled points
+     */
+    public Curve sample(int numPoints) {
+        double[] at = new double[numPoints];
+        double d = 1.0 / (numPoints - 1);
+        for (int i = 0; i < numPoints; i++) {
+            at[i] = i * d;
+        }
+        Curve sampled = new Curve(new double[numPoints], new double[numPoints], new double[numPoints]);
+        sample(at, sampled.x, sampled.y, sampled.z);
+
+        return sampled;
+    }
+
+    /**
+     * Samples the curve at the given parameters, by linear interpolation
+     * within the segment containing each parameter. The segment is found by
+     * a binary search which, for increasing parameters, starts from the
+     * segment of the previous parameter, so sampling a whole curve is cheap
+     * even for curves with very many points.
+     *
+     * @param at parameters, each from 0 to 1
+     * @param x x coordinates of the sampled points
+     * @param y y coordinates of the sampled points
+     * @param z z coordinates of the sampled points
+     */
+    public void sample(double[] at, double[] x, double[] y, double[] z) {
+        int segment = 1;
+        double previous = 0.0;
+        for (int n = 0; n < at.length; n++) {
+            double parVal = at[n];
+            if (parVal < 0.0 || parVal > 1.0) {
+                throw new IllegalArgumentException(
+                        "The value of parameter must be within the range 0 and 1");
+            }
+            if (parVal < previous) {
+                segment = 1;
+            }
+            previous = parVal;
+
+            int indexR = findSegment(parVal, segment);
+            int indexL = indexR - 1;
+            double parL = parameters[indexL];
+            double parR = parameters[indexR];
+            double parWidth = parR - parL;
+            x[n] = curve.x[indexL] + (curve.x[indexR] - curve.x[indexL]) / parWidth * (parVal - parL);
+            y[n] = curve.y[indexL] + (curve.y[indexR] - curve.y[indexL]) / parWidth * (parVal - parL);
+            z[n] = curve.z[indexL] + (curve.z[indexR] - curve.z[indexL]) / parWidth * (parVal - parL);
+            segment = indexR;
+        }
+    }
+
+    /**
+     * Finds the first segment end, at or after <code>from</code>, whose
+     * parameter is above <code>parVal</code> (within the tolerance). Since
+     * the parameters increase along the curve, this is the first segment
+     * containing <code>parVal</code>.
+     */
+    private int findSegment(double parVal, int from) {
+        int low = from;
+        int high = parameters.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (parameters[mid] + TOLERANCE > parVal) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+
+        return low;
+    }
+}
@@ -0,0 +1,12 @@
+package geom;
+
+/**
+ * The six bounding surfaces of a volume, named by the coordinate which is
+ * constant on the surface.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public enum BoundaryFace {
+
+    xi0, xi1, eta0, eta1, zeta0, zeta1
+}
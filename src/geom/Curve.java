@@ -0,0 +1,50 @@
+package geom;
+
+/**
+ * Polyline stored as three coordinate arrays.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class Curve {
+
+    public final double[] x, y, z;
+
+    public Curve(double[] x, double[] y, double[] z) {
+        if (x.length != y.length || x.length != z.length) {
+            throw new IllegalArgumentException("The coordinate arrays must have the same length.");
+        }
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public int numPoints() {
+        return x.length;
+    }
+
+    public Point getPoint(int index) {
+        return new Point(x[index], y[index], z[index]);
+    }
+
+    public Point[] toPoints() {
+        Point[] points = new Point[numPoints()];
+        for (int n = 0; n < points.length; n++) {
+            points[n] = getPoint(n);
+        }
+
+        return points;
+    }
+
+    public static Curve fromPoints(Point[] points) {
+        double[] x = new double[points.length];
+        double[] y = new double[points.length];
+        double[] z = new double[points.length];
+        for (int n = 0; n < points.length; n++) {
+            x[n] = points[n].x;
+            y[n] = points[n].y;
+            z[n] = points[n].z;
+        }
+
+        return new Curve(x, y, z);
+    }
+}
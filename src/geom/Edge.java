@@ -0,0 +1,37 @@
+package geom;
+
+/**
+ * The twelve bounding curves of a volume, named by the two coordinates which
+ * are constant along the curve.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public enum Edge {
+
+    // Xi changing curves
+    eta0_zeta0, eta1_zeta0, eta0_zeta1, eta1_zeta1,
+    // Eta changing curves
+    xi0_zeta0, xi1_zeta0, xi0_zeta1, xi1_zeta1,
+    // Zeta changing curves
+    xi0_eta0, xi1_eta0, xi0_eta1, xi1_eta1;
+
+    /**
+     * @return number of points along this edge for the given resolution
+     */
+    public int numPoints(int numXiPoints, int numEtaPoints, int numZetaPoints) {
+        switch (this) {
+            case eta0_zeta0:
+            case eta1_zeta0:
+            case eta0_zeta1:
+            case eta1_zeta1:
+                return numXiPoints;
+            case xi0_zeta0:
+            case xi1_zeta0:
+            case xi0_zeta1:
+            case xi1_zeta1:
+                return numEtaPoints;
+            default:
+                return numZetaPoints;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package geom;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Geometry defined by the sampled points of its twelve edges. The faces are
+ * assembled once, when they are first used.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class EdgeGeometry implements Geometry {
+
+    private final int numXiPoints;
+    private final int numEtaPoints;
+    private final int numZetaPoints;
+
+    private final Map<Edge, Curve> edges;
+    private final FaceSet faces;
+
+    /**
+     * @param edges the points of all twelve edges; the edges along the same
+     * direction must have the same number of points
+     */
+    public EdgeGeometry(Map<Edge, Curve> edges) {
+        for (Edge edge : Edge.values()) {
+            if (!edges.containsKey(edge)) {
+                throw new IllegalArgumentException("The edge " + edge + " is missing.");
+            }
+        }
+        this.numXiPoints = edges.get(Edge.eta0_zeta0).numPoints();
+        this.numEtaPoints = edges.get(Edge.xi0_zeta0).numPoints();
+        this.numZetaPoints = edges.get(Edge.xi0_eta0).numPoints();
+        for (Edge edge : Edge.values()) {
+            if (edges.get(edge).numPoints() != edge.numPoints(numXiPoints, numEtaPoints, numZetaPoints)) {
+                throw new IllegalArgumentException(
+                        "The number of points on the edge " + edge + " does not match the parallel edges.");
+            }
+        }
+
+        this.edges = new EnumMap<>(edges);
+        this.faces = new FaceSet(this.edges);
+    }
+
+    @Override
+    public int numXiPoints() {
+        return numXiPoints;
+    }
+
+    @Override
+    public int numEtaPoints() {
+        return numEtaPoints;
+    }
+
+    @Override
+    public int numZetaPoints() {
+        return numZetaPoints;
+    }
+
+    @Override
+    public Curve edge(Edge edge) {
+        return edges.get(edge);
+    }
+
+    @Override
+    public FaceSet faces() {
+        return faces;
+    }
+
+    @Override
+    public Point eta0_zeta0(int indexXi) {
+        return edges.get(Edge.eta0_zeta0).getPoint(indexXi);
+    }
+
+    @Override
+    public Point eta1_zeta0(int indexXi) {
+        return edges.get(Edge.eta1_zeta0).getPoint(indexXi);
+    }
+
+    @Override
+    public Point eta0_zeta1(int indexXi) {
+        return edges.get(Edge.eta0_zeta1).getPoint(indexXi);
+    }
+
+    @Override
+    public Point eta1_zeta1(int indexXi) {
+        return edges.get(Edge.eta1_zeta1).getPoint(indexXi);
+    }
+
+    @Override
+    public Point xi0_zeta0(int indexEta) {
+        return edges.get(Edge.xi0_zeta0).getPoint(indexEta);
+    }
+
+    @Override
+    public Point xi1_zeta0(int indexEta) {
+        return edges.get(Edge.xi1_zeta0).getPoint(indexEta);
+    }
+
+    @Override
+    public Point xi0_zeta1(int indexEta) {
+        return edges.get(Edge.xi0_zeta1).getPoint(indexEta);
+    }
+
+    @Override
+    public Point xi1_zeta1(int indexEta) {
+        return edges.get(Edge.xi1_zeta1).getPoint(indexEta);
+    }
+
+    @Override
+    public Point xi0_eta0(int indexZeta) {
+        return edges.get(Edge.xi0_eta0).getPoint(indexZeta);
+    }
+
+    @Override
+    public Point xi1_eta0(int indexZeta) {
+        return edges.get(Edge.xi1_eta0).getPoint(indexZeta);
+    }
+
+    @Override
+    public Point xi0_eta1(int indexZeta) {
+        return edges.get(Edge.xi0_eta1).getPoint(indexZeta);
+    }
+
+    @Override
+    public Point xi1_eta1(int indexZeta) {
+        return edges.get(Edge.xi1_eta1).getPoint(indexZeta);
+    }
+}
@@ -0,0 +1,101 @@
+package geom;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The six bounding faces of a volume, assembled from the twelve edges. Each
+ * edge is shared by the two faces it bounds. The edges are kept as they are;
+ * a face is only assembled when it is first asked for, so that the
+ * interpolation, which works on the edges, allocates no points.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class FaceSet {
+
+    private final Map<Edge, Curve> edges;
+    private volatile Face xi0, xi1, eta0, eta1, zeta0, zeta1;
+
+    public FaceSet(Geometry geom) {
+        this(edgesOf(geom));
+    }
+
+    /**
+     * @param edges the points of all twelve edges, which must not be
+     * modified
+     */
+    public FaceSet(Map<Edge, Curve> edges) {
+        this.edges = new EnumMap<>(edges);
+    }
+
+    private static Map<Edge, Curve> edgesOf(Geometry geom) {
+        Map<Edge, Curve> edges = new EnumMap<>(Edge.class);
+        for (Edge edge : Edge.values()) {
+            edges.put(edge, geom.edge(edge));
+        }
+
+        return edges;
+    }
+
+    /**
+     * @param edge the edge
+     * @return the points of the edge, which must not be modified
+     */
+    public Curve edge(Edge edge) {
+        return edges.get(edge);
+    }
+
+    // Racing threads may each assemble a face; they are equal and immutable.
+    public Face xi0() {
+        Face face = xi0;
+        if (face == null) {
+            xi0 = face = surface(Edge.xi0_eta0, Edge.xi0_eta1, Edge.xi0_zeta0, Edge.xi0_zeta1);
+        }
+        return face;
+    }
+
+    public Face xi1() {
+        Face face = xi1;
+        if (face == null) {
+            xi1 = face = surface(Edge.xi1_eta0, Edge.xi1_eta1, Edge.xi1_zeta0, Edge.xi1_zeta1);
+        }
+        return face;
+    }
+
+    public Face eta0() {
+        Face face = eta0;
+        if (face == null) {
+            eta0 = face = surface(Edge.xi0_eta0, Edge.xi1_eta0, Edge.eta0_zeta0, Edge.eta0_zeta1);
+        }
+        return face;
+    }
+
+    public Face eta1() {
+        Face face = eta1;
+        if (face == null) {
+            eta1 = face = surface(Edge.xi0_eta1, Edge.xi1_eta1, Edge.eta1_zeta0, Edge.eta1_zeta1);
+        }
+        return face;
+    }
+
+    public Face zeta0() {
+        Face face = zeta0;
+        if (face == null) {
+            zeta0 = face = surface(Edge.xi0_zeta0, Edge.xi1_zeta0, Edge.eta0_zeta0, Edge.eta1_zeta0);
+        }
+        return face;
+    }
+
+    public Face zeta1() {
+        Face face = zeta1;
+        if (face == null) {
+            zeta1 = face = surface(Edge.xi0_zeta1, Edge.xi1_zeta1, Edge.eta0_zeta1, Edge.eta1_zeta1);
+        }
+        return face;
+    }
+
+    private Face surface(Edge side0, Edge side1, Edge end0, Edge end1) {
+        return new Surface(edges.get(side0).toPoints(), edges.get(side1).toPoints(),
+                edges.get(end0).toPoints(), edges.get(end1).toPoints());
+    }
+}
@@ -1,6 +1,6 @@
 package geom;
 
-import java.util.stream.IntStream;
+import java.util.function.IntFunction;
 
 /**
  *
@@ -41,105 +41,99 @@ public interface Geometry {
 
     Point xi1_eta1(int indexZeta);
 
+    /**
+     * Returns all the points of an edge at once. Implementations which store
+     * their edges should return them directly instead of collecting them
+     * point by point.
+     *
+     * @param edge the edge
+     * @return the points of the edge, which must not be modified
+     */
+    default Curve edge(Edge edge) {
+        IntFunction<Point> point;
+        switch (edge) {
+            case eta0_zeta0:
+                point = this::eta0_zeta0;
+                break;
+            case eta1_zeta0:
+                point = this::eta1_zeta0;
+                break;
+            case eta0_zeta1:
+                point = this::eta0_zeta1;
+                break;
+            case eta1_zeta1:
+                point = this::eta1_zeta1;
+                break;
+            case xi0_zeta0:
+                point = this::xi0_zeta0;
+                break;
+            case xi1_zeta0:
+                point = this::xi1_zeta0;
+                break;
+            case xi0_zeta1:
+                point = this::xi0_zeta1;
+                break;
+            case xi1_zeta1:
+                point = this::xi1_zeta1;
+                break;
+            case xi0_eta0:
+                point = this::xi0_eta0;
+                break;
+            case xi1_eta0:
+                point = this::xi1_eta0;
+                break;
+            case xi0_eta1:
+                point = this::xi0_eta1;
+                break;
+            default:
+                point = this::xi1_eta1;
+                break;
+        }
+
+        int numPoints = edge.numPoints(numXiPoints(), numEtaPoints(), numZetaPoints());
+        Curve curve = new Curve(new double[numPoints], new double[numPoints], new double[numPoints]);
+        for (int n = 0; n < numPoints; n++) {
+            Point p = point.apply(n);
+            curve.x[n] = p.x;
+            curve.y[n] = p.y;
+            curve.z[n] = p.z;
+        }
+
+        return curve;
+    }
+
+    /**
+     * Assembles the six faces from the edges. Implementations which are
+     * asked for their faces repeatedly should create the set once and return
+     * the same set every time.
+     *
+     * @return the bounding faces
+     */
+    default FaceSet faces() {
+        return new FaceSet(this);
+    }
+
     default Face xi0() {
-        Point[] xi0_eta0 = IntStream.range(0, numZetaPoints())
-                .mapToObj(i -> xi0_eta0(i))
-                .toArray(size -> new Point[size]);
-        Point[] xi0_eta1 = IntStream.range(0, numZetaPoints())
-                .mapToObj(i -> xi0_eta1(i))
-                .toArray(size -> new Point[size]);
-        Point[] xi0_zeta0 = IntStream.range(0, numEtaPoints())
-                .mapToObj(i -> xi0_zeta0(i))
-                .toArray(size -> new Point[size]);
-        Point[] xi0_zeta1 = IntStream.range(0, numEtaPoints())
-                .mapToObj(i -> xi0_zeta1(i))
-                .toArray(size -> new Point[size]);
-
-        return new Surface(xi0_eta0, xi0_eta1, xi0_zeta0, xi0_zeta1);
+        return faces().xi0();
     }
 
     default Face xi1() {
-        Point[] xi1_eta0 = IntStream.range(0, numZetaPoints())
-                .mapToObj(i -> xi1_eta0(i))
-                .toArray(size -> new Point[size]);
-        Point[] xi1_eta1 = IntStream.range(0, numZetaPoints())
-                .mapToObj(i -> xi1_eta1(i))
-                .toArray(size -> new Point[size]);
-        Point[] xi1_zeta0 = IntStream.range(0, numEtaPoints())
-                .mapToObj(i -> xi1_zeta0(i))
-                .toArray(size -> new Point[size]);
-        Point[] xi1_zeta1 = IntStream.range(0, numEtaPoints())
-                .mapToObj(i -> xi1_zeta1(i))
-                .toArray(size -> new Point[size]);
-
-        return new Surface(xi1_eta0, xi1_eta1, xi1_zeta0, xi1_zeta1);
+        return faces().xi1();
     }
 
     default Face eta0() {
-        Point[] xi0_eta0 = IntStream.range(0, numZetaPoints())
-                .mapToObj(i -> xi0_eta0(i))
-                .toArray(size -> new Point[size]);
-        Point[] xi1_eta0 = IntStream.range(0, numZetaPoints())
-                .mapToObj(i -> xi1_eta0(i))
-                .toArray(size -> new Point[size]);
-        Point[] eta0_zeta0 = IntStream.range(0, numXiPoints())
-                .mapToObj(i -> eta0_zeta0(i))
-                .toArray(size -> new Point[size]);
-        Point[] eta0_zeta1 = IntStream.range(0, numXiPoints())
-                .mapToObj(i -> eta0_zeta1(i))
-                .toArray(size -> new Point[size]);
-
-        return new Surface(xi0_eta0, xi1_eta0, eta0_zeta0, eta0_zeta1);
+        return faces().eta0();
     }
 
     default Face eta1() {
-        Point[] xi0_eta1 = IntStream.range(0, numZetaPoints())
-                .mapToObj(i -> xi0_eta1(i))
-                .toArray(size -> new Point[size]);
-        Point[] xi1_eta1 = IntStream.range(0, numZetaPoints())
-                .mapToObj(i -> xi1_eta1(i))
-                .toArray(size -> new Point[size]);
-        Point[] eta1_zeta0 = IntStream.range(0, numXiPoints())
-                .mapToObj(i -> eta1_zeta0(i))
-                .toArray(size -> new Point[size]);
-        Point[] eta1_zeta1 = IntStream.range(0, numXiPoints())
-                .mapToObj(i -> eta1_zeta1(i))
-                .toArray(size -> new Point[size]);
-
-        return new Surface(xi0_eta1, xi1_eta1, eta1_zeta0, eta1_zeta1);
+        return faces().eta1();
     }
 
     default Face zeta0() {
-        Point[] xi0_zeta0 = IntStream.range(0, numEtaPoints())
-                .mapToObj(i -> xi0_zeta0(i))
-                .toArray(size -> new Point[size]);
-        Point[] xi1_zeta0 = IntStream.range(0, numEtaPoints())
-                .mapToObj(i -> xi1_zeta0(i))
-                .toArray(size -> new Point[size]);
-        Point[] eta0_zeta0 = IntStream.range(0, numXiPoints())
-                .mapToObj(i -> eta0_zeta0(i))
-                .toArray(size -> new Point[size]);
-        Point[] eta1_zeta0 = IntStream.range(0, numXiPoints())
-                .mapToObj(i -> eta1_zeta0(i))
-                .toArray(size -> new Point[size]);
-
-        return new Surface(xi0_zeta0, xi1_zeta0, eta0_zeta0, eta1_zeta0);
+        return faces().zeta0();
     }
 
     default Face zeta1() {
-        Point[] xi0_zeta1 = IntStream.range(0, numEtaPoints())
-                .mapToObj(i -> xi0_zeta1(i))
-                .toArray(size -> new Point[size]);
-        Point[] xi1_zeta1 = IntStream.range(0, numEtaPoints())
-                .mapToObj(i -> xi1_zeta1(i))
-                .toArray(size -> new Point[size]);
-        Point[] eta0_zeta1 = IntStream.range(0, numXiPoints())
-                .mapToObj(i -> eta0_zeta1(i))
-                .toArray(size -> new Point[size]);
-        Point[] eta1_zeta1 = IntStream.range(0, numXiPoints())
-                .mapToObj(i -> eta1_zeta1(i))
-                .toArray(size -> new Point[size]);
-
-        return new Surface(xi0_zeta1, xi1_zeta1, eta0_zeta1, eta1_zeta1);
+        return faces().zeta1();
     }
 }
@@ -0,0 +1,162 @@
+package geom;
+
+import io.GeometryFileReader;
+import io.GeometryFileReader.Label;
+import java.io.File;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import util.PhaseEvent;
+
+/**
+ * Geometry independent of the number of points: the twelve edges together
+ * with their arc-length parameterization. The geometry is immutable, so it
+ * can be set up once and sampled at any number of resolutions, also
+ * concurrently from several threads.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class ParametricGeometry {
+
+    private static final double TOLERANCE = 1e-8;
+
+    private final Map<Edge, ArcLengthCurve> edges = new EnumMap<>(Edge.class);
+
+    /**
+     * @param curves the points defining all twelve edges
+     */
+    public ParametricGeometry(Map<Edge, Curve> curves) {
+        PhaseEvent event = PhaseEvent.begin("Arc-length parameterization");
+        long numPoints = 0;
+        for (Edge edge : Edge.values()) {
+            if (!curves.containsKey(edge)) {
+                throw new IllegalArgumentException("The edge " + edge + " is missing.");
+            }
+            edges.put(edge, new ArcLengthCurve(curves.get(edge)));
+            numPoints += curves.get(edge).numPoints();
+        }
+        event.finish(numPoints, 0);
+
+        // TODO: Check continuity of geometry
+        if (!overlapping(edges.get(Edge.xi0_eta0).firstPoint(),
+                edges.get(Edge.eta0_zeta0).firstPoint(),
+                edges.get(Edge.xi0_zeta0).firstPoint())
+                || !overlapping(edges.get(Edge.xi0_eta1).firstPoint(),
+                        edges.get(Edge.eta1_zeta0).firstPoint(),
+                        edges.get(Edge.xi0_zeta0).lastPoint())
+                || !overlapping(edges.get(Edge.xi0_eta1).lastPoint(),
+                        edges.get(Edge.xi0_zeta1).lastPoint(),
+                        edges.get(Edge.eta1_zeta1).firstPoint())
+                || !overlapping(edges.get(Edge.xi0_eta0).lastPoint(),
+                        edges.get(Edge.eta0_zeta1).firstPoint(),
+                        edges.get(Edge.xi0_zeta1).firstPoint())
+                || !overlapping(edges.get(Edge.xi1_eta0).firstPoint(),
+                        edges.get(Edge.eta0_zeta0).lastPoint(),
+                        edges.get(Edge.xi1_zeta0).firstPoint())
+                || !overlapping(edges.get(Edge.xi1_eta1).firstPoint(),
+                        edges.get(Edge.eta1_zeta0).lastPoint(),
+                        edges.get(Edge.xi1_zeta0).lastPoint())
+                || !overlapping(edges.get(Edge.xi1_eta1).lastPoint(),
+                        edges.get(Edge.xi1_zeta1).lastPoint(),
+                        edges.get(Edge.eta1_zeta1).lastPoint())
+                || !overlapping(edges.get(Edge.xi1_eta0).lastPoint(),
+                        edges.get(Edge.eta0_zeta1).lastPoint(),
+                        edges.get(Edge.xi1_zeta1).firstPoint())) {
+            throw new IllegalArgumentException("The geometry points supplied do not overlap properly.");
+        }
+
+    }
+
+    /**
+     * Reads the edges from a geometry file.
+     *
+     * @param file the geometry file
+     * @return the geometry
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static ParametricGeometry read(File file) throws IOException {
+        Map<Label, Curve> curves = GeometryFileReader.readCurves(file);
+        Map<Edge, Curve> edges = new EnumMap<>(Edge.class);
+        for (Edge edge : Edge.values()) {
+            edges.put(edge, curves.get(Label.valueOf(edge.name())));
+        }
+
+        return new ParametricGeometry(edges);
+    }
+
+    /**
+     * Hexahedron with straight edges. The points are defined as described by
+     * the VTK cell type VTK_HEXAHEDRON.
+     *
+     * @param p0 point at xi = 0, eta = 0, zeta = 0
+     * @param p1 point at xi = 1, eta = 0, zeta = 0
+     * @param p2 point at xi = 1, eta = 1, zeta = 0
+     * @param p3 point at xi = 0, eta = 1, zeta = 0
+     * @param p4 point at xi = 0, eta = 0, zeta = 1
+     * @param p5 point at xi = 1, eta = 0, zeta = 1
+     * @param p6 point at xi = 1, eta = 1, zeta = 1
+     * @param p7 point at xi = 0, eta = 1, zeta = 1
+     * @return the geometry
+     */
+    public static ParametricGeometry hexahedron(Point p0, Point p1, Point p2, Point p3,
+            Point p4, Point p5, Point p6, Point p7) {
+        Map<Edge, Curve> edges = new EnumMap<>(Edge.class);
+
+        // Xi changing curves
+        edges.put(Edge.eta0_zeta0, Curve.fromPoints(new Point[]{p0, p1}));
+        edges.put(Edge.eta1_zeta0, Curve.fromPoints(new Point[]{p3, p2}));
+        edges.put(Edge.eta0_zeta1, Curve.fromPoints(new Point[]{p4, p5}));
+        edges.put(Edge.eta1_zeta1, Curve.fromPoints(new Point[]{p7, p6}));
+
+        // Eta changing curves
+        edges.put(Edge.xi0_zeta0, Curve.fromPoints(new Point[]{p0, p3}));
+        edges.put(Edge.xi1_zeta0, Curve.fromPoints(new Point[]{p1, p2}));
+        edges.put(Edge.xi0_zeta1, Curve.fromPoints(new Point[]{p4, p7}));
+        edges.put(Edge.xi1_zeta1, Curve.fromPoints(new Point[]{p5, p6}));
+
+        // Zeta changing curves
+        edges.put(Edge.xi0_eta0, Curve.fromPoints(new Point[]{p0, p4}));
+        edges.put(Edge.xi1_eta0, Curve.fromPoints(new Point[]{p1, p5}));
+        edges.put(Edge.xi0_eta1, Curve.fromPoints(new Point[]{p3, p7}));
+        edges.put(Edge.xi1_eta1, Curve.fromPoints(new Point[]{p2, p6}));
+
+        return new ParametricGeometry(edges);
+    }
+
+    private static boolean overlapping(Point p1, Point p2, Point p3) {
+        return p1.dist(p2) < TOLERANCE && p1.dist(p3) < TOLERANCE;
+    }
+
+    public ArcLengthCurve edge(Edge edge) {
+        return edges.get(edge);
+    }
+
+    /**
+     * Samples the edges with equally spaced arc-length parameters.
+     *
+     * @param numXiPoints number of points in the xi direction
+     * @param numEtaPoints number of points in the eta direction
+     * @param numZetaPoints number of points in the zeta direction
+     * @return geometry with the given number of points
+     */
+    public Geometry sample(int numXiPoints, int numEtaPoints, int numZetaPoints) {
+        return new EdgeGeometry(sampleEdges(numXiPoints, numEtaPoints, numZetaPoints));
+    }
+
+    Map<Edge, Curve> sampleEdges(int numXiPoints, int numEtaPoints, int numZetaPoints) {
+        if (numXiPoints < 2 || numEtaPoints < 2 || numZetaPoints < 2) {
+            throw new IllegalArgumentException("The number of points in each direction must be at least 2.");
+        }
+        PhaseEvent event = PhaseEvent.begin("Sample edges");
+        Map<Edge, Curve> sampled = new EnumMap<>(Edge.class);
+        long numPoints = 0;
+        for (Edge edge : Edge.values()) {
+            int numEdgePoints = edge.numPoints(numXiPoints, numEtaPoints, numZetaPoints);
+            sampled.put(edge, edges.get(edge).sample(numEdgePoints));
+            numPoints += numEdgePoints;
+        }
+        event.finish(numPoints, 0);
+
+        return sampled;
+    }
+}
@@ -0,0 +1,151 @@
+package io;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Growable byte buffer for writing text files, with a formatter for doubles
+ * which produces the same text as <code>String.format("%-20f", value)</code>
+ * without creating any objects for ordinary values.
+ *
+ * <code>%f</code> rounds the shortest decimal representation of the double
+ * (the digits of <code>Double.toString</code>) half up to six decimals. The
+ * fast path computes the same rounding in fixed point arithmetic; values too
+ * large for it, or too close to a rounding tie to be decided reliably, take
+ * the exact path through <code>BigDecimal</code>. The decimal separator is
+ * always a point.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+class AsciiEncoder {
+
+    private static final int DECIMALS = 6;
+    private static final long SCALE = 1_000_000;
+    // Below this the scaled value is exact to better than 2e-3
+    private static final double FAST_PATH_LIMIT = 1e7;
+    private static final double TIE_MARGIN = 4e-3;
+
+    private byte[] bytes;
+    private int length;
+
+    AsciiEncoder(int initialCapacity) {
+        bytes = new byte[initialCapacity];
+    }
+
+    void reset() {
+        length = 0;
+    }
+
+    int length() {
+        return length;
+    }
+
+    void append(char c) {
+        ensureCapacity(1);
+        bytes[length++] = (byte) c;
+    }
+
+    void append(String text) {
+        ensureCapacity(text.length());
+        for (int n = 0; n < text.length(); n++) {
+            bytes[length++] = (byte) text.charAt(n);
+        }
+    }
+
+    /**
+     * Appends the line <code>String.format("%-20f %-20f %-20f\n", x, y, z)</code>.
+     */
+    void appendPoint(double x, double y, double z) {
+        appendFixed(x, 20);
+        append(' ');
+        appendFixed(y, 20);
+        append(' ');
+        appendFixed(z, 20);
+        append('\n');
+    }
+
+    /**
+     * Appends the value with six decimals, left justified in a field of the
+     * given width, like <code>String.format("%-" + width + "f", value)</code>.
+     */
+    void appendFixed(double value, int width) {
+        int start = length;
+        if (Double.isNaN(value)) {
+            append("NaN");
+        } else {
+            if (Double.compare(value, 0.0) < 0) {
+                append('-');
+            }
+            double magnitude = Math.abs(value);
+            if (Double.isInfinite(magnitude)) {
+                append("Infinity");
+            } else if (!appendFixedFast(magnitude)) {
+                append(new BigDecimal(Double.toString(magnitude))
+                        .setScale(DECIMALS, RoundingMode.HALF_UP)
+                        .toPlainString());
+            }
+        }
+
+        int padding = width - (length - start);
+        if (padding > 0) {
+            ensureCapacity(padding);
+            for (int n = 0; n < padding; n++) {
+                bytes[length++] = ' ';
+            }
+        }
+    }
+
+    private boolean appendFixedFast(double magnitude) {
+        if (magnitude >= FAST_PATH_LIMIT) {
+            return false;
+        }
+        double scaled = magnitude * SCALE;
+        double whole = Math.floor(scaled);
+        double fraction = scaled - whole;
+        if (Math.abs(fraction - 0.5) < TIE_MARGIN) {
+            return false;
+        }
+
+        long units = (long) whole + (fraction > 0.5 ? 1 : 0);
+        appendDigits(units / SCALE, 1);
+        append('.');
+        appendDigits(units % SCALE, DECIMALS);
+        return true;
+    }
+
+    /**
+     * Appends a non-negative number, padded with leading zeros to the given
+     * number of digits.
+     */
+    private void appendDigits(long value, int minDigits) {
+        int numDigits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            numDigits++;
+        }
+        numDigits = Math.max(numDigits, minDigits);
+        ensureCapacity(numDigits);
+        for (int n = length + numDigits - 1; n >= length; n--) {
+            bytes[n] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += numDigits;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > bytes.length) {
+            byte[] larger = new byte[Math.max(bytes.length * 2, length + extra)];
+            System.arraycopy(bytes, 0, larger, 0, length);
+            bytes = larger;
+        }
+    }
+
+    void writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package io;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.stream.IntStream;
+import mesh.ProgressMonitor;
+import mesh.SlabDirection;
+import mesh.SlabSink;
+import mesh.StorageOrder;
+import mesh.StructuredGrid;
+import util.PhaseEvent;
+
+/**
+ * Writes a volume mesh in the text (.dat) format, one slab of constant xi at a
+ * time.
+ *
+ * The points are formatted in chunks, several chunks in parallel, into
+ * reusable byte buffers which are then written to the file in order.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class DatMeshWriter implements SlabSink, Closeable {
+
+    private static final int CHUNK_POINTS = 8192;
+    private static final int LINE_BYTES = 64;
+
+    private final int numXiPoints;
+    private final int numEtaPoints;
+    private final int numZetaPoints;
+    private final String fileName;
+    private final FileChannel channel;
+    private final AsciiEncoder[] encoders;
+    private ProgressMonitor monitor = ProgressMonitor.NONE;
+    private int nextPlane;
+
+    public DatMeshWriter(String fileName, int numXiPoints, int numEtaPoints, int numZetaPoints) throws IOException {
+        if (!fileName.endsWith(".dat")) {
+            fileName += ".dat";
+        }
+        System.out.println("Writing mesh file: " + fileName);
+        this.numXiPoints = numXiPoints;
+        this.numEtaPoints = numEtaPoints;
+        this.numZetaPoints = numZetaPoints;
+        this.fileName = fileName;
+        this.channel = new FileOutputStream(fileName).getChannel();
+        this.encoders = newEncoders();
+
+        AsciiEncoder header = encoders[0];
+        header.reset();
+        header.append(String.format("dimension=%d\n", 3));
+        header.append(String.format("xi=%d\n", numXiPoints));
+        header.append(String.format("eta=%d\n", numEtaPoints));
+        header.append(String.format("zeta=%d\n", numZetaPoints));
+        header.append(String.format("%-20s %-20s %-20s\n", "x", "y", "z"));
+        header.writeTo(channel);
+    }
+
+    @Override
+    public SlabDirection slabDirection() {
+        return SlabDirection.XI;
+    }
+
+    @Override
+    public void accept(StructuredGrid slab, int start) throws IOException {
+        if (start != nextPlane || slab.numEtaPoints() != numEtaPoints
+                || slab.numZetaPoints() != numZetaPoints
+                || start + slab.numXiPoints() > numXiPoints) {
+            throw new IllegalArgumentException("The slab does not continue the mesh.");
+        }
+        if (slab.storageOrder() != StorageOrder.ZETA_FASTEST) {
+            throw new IllegalArgumentException("The slab must be stored with zeta changing fastest.");
+        }
+        PhaseEvent event = PhaseEvent.begin("Write dat").subject(fileName).parallel();
+        long position = channel.position();
+        // the storage order of a xi slab matches the file order, zeta changing fastest
+        writePoints(slab, encoders, channel, monitor);
+        event.finish(slab.numPoints(), channel.position() - position);
+        nextPlane += slab.numXiPoints();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Closes the writer and deletes the file, e.g. after the generation of the
+     * mesh has been cancelled.
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    public void delete() throws IOException {
+        close();
+        try {
+            Files.deleteIfExists(Paths.get(fileName));
+        } catch (IOException ex) {
+            throw new IOException("The partial file " + fileName + " could not be deleted.", ex);
+        }
+    }
+
+    /**
+     * Reports the written points to the monitor, which may also cancel the
+     * writing between two batches of points.
+     */
+    void setMonitor(ProgressMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    static AsciiEncoder[] newEncoders() {
+        return IntStream.range(0, Runtime.getRuntime().availableProcessors())
+                .mapToObj(n -> new AsciiEncoder(CHUNK_POINTS * LINE_BYTES))
+                .toArray(size -> new AsciiEncoder[size]);
+    }
+
+    /**
+     * Writes all the points in their storage order, one line per point. The
+     * chunks are formatted in batches of one chunk per encoder.
+     */
+    static void writePoints(StructuredGrid points, AsciiEncoder[] encoders,
+            WritableByteChannel channel, ProgressMonitor monitor) throws IOException {
+        int numPoints = points.numPoints();
+        int numChunks = (numPoints + CHUNK_POINTS - 1) / CHUNK_POINTS;
+        for (int first = 0; first < numChunks; first += encoders.length) {
+            int batchStart = first;
+            int batchEnd = Math.min(first + encoders.length, numChunks);
+            IntStream.range(batchStart, batchEnd).parallel().forEach(chunk -> {
+                AsciiEncoder encoder = encoders[chunk - batchStart];
+                encoder.reset();
+                int end = Math.min((chunk + 1) * CHUNK_POINTS, numPoints);
+                for (int n = chunk * CHUNK_POINTS; n < end; n++) {
+                    encoder.appendPoint(points.x[n], points.y[n], points.z[n]);
+                }
+            });
+            for (int chunk = batchStart; chunk < batchEnd; chunk++) {
+                encoders[chunk - batchStart].writeTo(channel);
+            }
+            monitor.completed(Math.min(batchEnd * CHUNK_POINTS, numPoints) - batchStart * CHUNK_POINTS);
+        }
+    }
+}
@@ -1,11 +1,22 @@
 package io;
 
+import geom.Curve;
 import geom.Point;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.Scanner;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import util.PhaseEvent;
 
 /**
+ * Reads the curves defining a geometry. Each curve starts with a line holding
+ * its label and the number of points, followed by one line per point with the
+ * three coordinates. Anything after a '#' is a comment, and blank lines are
+ * ignored.
  *
  * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
  */
@@ -17,48 +28,287 @@ public class GeometryFileReader {
         xi0_zeta0, xi0_zeta1, xi1_zeta0, xi1_zeta1
     }
 
-    private GeometryFileReader() {
+    private static final Label[] LABELS = Label.values();
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    // Integers up to 10^15 are exact in a double
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    private final String fileName;
+    private final MappedByteBuffer bytes;
+    private final int size;
+    private int position;
+    private int lineNumber;
+    private int lineStart, lineEnd;
+
+    private GeometryFileReader(File file, MappedByteBuffer bytes) {
+        this.fileName = file.getName();
+        this.bytes = bytes;
+        this.size = bytes.limit();
     }
 
-    public static Point[] readPoints(File file, Label label) throws FileNotFoundException {
-        Point[] points;
-        try (Scanner fileScanner = new Scanner(file, "UTF-8")) {
-            int numPoints = 0;
-            String nextValidLine;
-            while ((nextValidLine = getNextValidLine(fileScanner)) != null) {
-                if (nextValidLine.startsWith(label.toString())) {
-                    String[] tokens = nextValidLine.split("[\\s:=]+");
-                    try {
-                        numPoints = Integer.parseInt(tokens[tokens.length - 1]);
-                    } catch (NumberFormatException ex) {
-                        numPoints = 0;
-                    }
-                    break;
+    public static Point[] readPoints(File file, Label label) throws IOException {
+        return readCurves(file).get(label).toPoints();
+    }
+
+    /**
+     * Reads all the labelled curves of the file in a single pass over a memory
+     * mapped view of the file. A label missing from the file is mapped to a
+     * curve without points. If a label appears more than once, its first
+     * curve is used.
+     *
+     * @param file geometry file
+     * @return curves of all the labels
+     * @throws IOException if the file cannot be read or is not well formed,
+     * with the offending line number in the message
+     */
+    public static Map<Label, Curve> readCurves(File file) throws IOException {
+        try (FileInputStream stream = new FileInputStream(file);
+                FileChannel channel = stream.getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file.getName() + ": the geometry file is larger than 2 GB.");
+            }
+            PhaseEvent event = PhaseEvent.begin("Parse geometry").subject(file.getName());
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            Map<Label, Curve> curves = new GeometryFileReader(file, bytes).readCurves();
+            long numPoints = 0;
+            for (Curve curve : curves.values()) {
+                numPoints += curve.numPoints();
+            }
+            event.finish(numPoints, channel.size());
+
+            return curves;
+        }
+    }
+
+    private Map<Label, Curve> readCurves() throws IOException {
+        Map<Label, Curve> curves = new EnumMap<>(Label.class);
+        while (nextValidLine()) {
+            Label label = lineLabel();
+            if (label == null) {
+                continue;
+            }
+            int labelLine = lineNumber;
+            int numPoints = lineCount();
+            double[] x = new double[numPoints];
+            double[] y = new double[numPoints];
+            double[] z = new double[numPoints];
+            for (int n = 0; n < numPoints; n++) {
+                if (!nextValidLine()) {
+                    throw new IOException(String.format(
+                            "%s:%d: end of file after %d of the %d points of %s (declared on line %d).",
+                            fileName, lineNumber, n, numPoints, label, labelLine));
                 }
+                int start = lineStart;
+                int end = tokenEnd(start);
+                x[n] = parseDouble(start, end);
+                start = nextToken(end);
+                end = tokenEnd(start);
+                y[n] = parseDouble(start, end);
+                start = nextToken(end);
+                end = tokenEnd(start);
+                z[n] = parseDouble(start, end);
             }
+            curves.putIfAbsent(label, new Curve(x, y, z));
+        }
+
+        for (Label label : LABELS) {
+            curves.putIfAbsent(label, new Curve(new double[0], new double[0], new double[0]));
+        }
+
+        return curves;
+    }
 
-            points = new Point[numPoints];
-            for (int i = 0; i < numPoints; i++) {
-                String nextLine = getNextValidLine(fileScanner);
-                String[] coordinates = nextLine.split("[\\s]+");
-                double x = Double.parseDouble(coordinates[0].trim());
-                double y = Double.parseDouble(coordinates[1].trim());
-                double z = Double.parseDouble(coordinates[2].trim());
-                points[i] = new Point(x, y, z);
+    /**
+     * Moves to the next line which is not empty after removing the comment
+     * and the surrounding white space.
+     *
+     * @return false at the end of the file
+     */
+    private boolean nextValidLine() {
+        while (position < size) {
+            int start = position;
+            int end = start;
+            while (end < size && bytes.get(end) != '\n') {
+                end++;
+            }
+            position = end + 1;
+            lineNumber++;
+
+            int comment = start;
+            while (comment < end && bytes.get(comment) != '#') {
+                comment++;
+            }
+            end = comment;
+            while (start < end && isBlank(bytes.get(start))) {
+                start++;
+            }
+            while (end > start && isBlank(bytes.get(end - 1))) {
+                end--;
+            }
+            if (start < end) {
+                lineStart = start;
+                lineEnd = end;
+                return true;
             }
         }
 
-        return points;
+        return false;
     }
 
-    private static String getNextValidLine(Scanner fileScanner) {
-        while (fileScanner.hasNextLine()) {
-            String nextLine = fileScanner.nextLine().split("#")[0].trim();
-            if (!nextLine.isEmpty()) {
-                return nextLine;
+    private Label lineLabel() {
+        for (Label label : LABELS) {
+            String name = label.name();
+            if (lineEnd - lineStart >= name.length() && lineStartsWith(name)) {
+                return label;
             }
         }
 
         return null;
     }
+
+    private boolean lineStartsWith(String text) {
+        for (int n = 0; n < text.length(); n++) {
+            if (bytes.get(lineStart + n) != text.charAt(n)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the number after the label, or zero if there is none
+     */
+    private int lineCount() {
+        int start = lineEnd;
+        while (start > lineStart && !isSeparator(bytes.get(start - 1))) {
+            start--;
+        }
+        try {
+            return Integer.parseInt(text(start, lineEnd));
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+    private int tokenEnd(int start) {
+        int end = start;
+        while (end < lineEnd && !isBlank(bytes.get(end))) {
+            end++;
+        }
+
+        return end;
+    }
+
+    private int nextToken(int end) {
+        int start = end;
+        while (start < lineEnd && isBlank(bytes.get(start))) {
+            start++;
+        }
+
+        return start;
+    }
+
+    /**
+     * Parses a decimal number. Numbers with up to 15 significant digits and a
+     * decimal exponent of at most 22 are converted exactly with a single
+     * multiplication or division; anything else is left to
+     * <code>Double.parseDouble</code>, so the result is always the same.
+     */
+    private double parseDouble(int start, int end) throws IOException {
+        if (start >= end) {
+            throw new IOException(String.format("%s:%d: expected three coordinates.",
+                    fileName, lineNumber));
+        }
+
+        int n = start;
+        boolean negative = false;
+        if (bytes.get(n) == '-' || bytes.get(n) == '+') {
+            negative = bytes.get(n) == '-';
+            n++;
+        }
+        long mantissa = 0;
+        int numDigits = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean fraction = false;
+        for (; n < end; n++) {
+            byte b = bytes.get(n);
+            if (b >= '0' && b <= '9') {
+                numDigits++;
+                if (mantissa != 0 || b != '0') {
+                    significantDigits++;
+                }
+                if (significantDigits > MAX_EXACT_DIGITS) {
+                    return parseDoubleSlow(start, end);
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (fraction) {
+                    exponent--;
+                }
+            } else if (b == '.' && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+        }
+        if (numDigits == 0) {
+            return parseDoubleSlow(start, end);
+        }
+        if (n < end && (bytes.get(n) == 'e' || bytes.get(n) == 'E')) {
+            n++;
+            boolean negativeExponent = false;
+            if (n < end && (bytes.get(n) == '-' || bytes.get(n) == '+')) {
+                negativeExponent = bytes.get(n) == '-';
+                n++;
+            }
+            int exponentStart = n;
+            int explicitExponent = 0;
+            for (; n < end && bytes.get(n) >= '0' && bytes.get(n) <= '9'; n++) {
+                explicitExponent = Math.min(explicitExponent * 10 + (bytes.get(n) - '0'), 10000);
+            }
+            if (n == exponentStart) {
+                return parseDoubleSlow(start, end);
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        if (n != end || exponent < -22 || exponent > 22) {
+            return parseDoubleSlow(start, end);
+        }
+
+        double value = exponent < 0
+                ? mantissa / POWERS_OF_TEN[-exponent]
+                : mantissa * POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
+    }
+
+    private double parseDoubleSlow(int start, int end) throws IOException {
+        String token = text(start, end);
+        try {
+            return Double.parseDouble(token);
+        } catch (NumberFormatException ex) {
+            throw new IOException(String.format("%s:%d: invalid coordinate '%s'.",
+                    fileName, lineNumber, token));
+        }
+    }
+
+    private String text(int start, int end) {
+        byte[] token = new byte[end - start];
+        for (int n = start; n < end; n++) {
+            token[n - start] = bytes.get(n);
+        }
+
+        return new String(token, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isBlank(byte b) {
+        return b >= 0 && b <= ' ';
+    }
+
+    private static boolean isSeparator(byte b) {
+        return isBlank(b) || b == ':' || b == '=';
+    }
 }
@@ -1,12 +1,25 @@
 package io;
 
 import geom.Point;
-import java.io.DataOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CancellationException;
+import java.util.stream.IntStream;
+import mesh.FiniteVolumeMetrics;
+import mesh.FloatGrid;
+import mesh.GridFamily;
+import mesh.MeshQuality;
+import mesh.ProgressMonitor;
+import mesh.QualityMetric;
+import mesh.StorageOrder;
+import mesh.StructuredGrid;
+import mesh.WallDistance;
+import util.PhaseEvent;
 
 /**
  *
@@ -14,127 +27,360 @@ import java.nio.charset.StandardCharsets;
  */
 public class MeshFileWriter {
 
+    // Planes of a float grid converted to double at a time while writing
+    private static final int FLOAT_GRID_SLAB_SIZE = 8;
+    // Cells or faces of the metrics encoded at a time by each thread
+    private static final int METRICS_RECORDS_PER_BLOCK = 1 << 16;
+
     private MeshFileWriter() {
     }
 
     public static void writeSurface(Point[][] points, String fileName) throws IOException {
+        writeSurface(StructuredGrid.fromPoints(points), fileName);
+    }
+
+    public static void writeSurface(StructuredGrid points, String fileName) throws IOException {
+        checkSurface(points);
+        checkZetaFastest(points);
         if (!fileName.endsWith(".dat")) {
             fileName += ".dat";
         }
         System.out.println("Writing mesh file: " + fileName);
-        try (OutputStreamWriter fileWriter
-                = new OutputStreamWriter(new FileOutputStream(fileName),
-                        StandardCharsets.UTF_8)) {
-            int numXiPoints = points.length;
-            int numEtaPoints = points[0].length;
-
-            fileWriter.write(String.format("dimension=%d\n", 2));
-            fileWriter.write(String.format("xi=%d\n", numXiPoints));
-            fileWriter.write(String.format("eta=%d\n", numEtaPoints));
-            fileWriter.write(String.format("%-20s %-20s %-20s\n", "x", "y", "z"));
-            for (int i = 0; i < numXiPoints; i++) {
-                for (int j = 0; j < numEtaPoints; j++) {
-                    fileWriter.write(String.format("%-20f %-20f %-20f\n", points[i][j].x, points[i][j].y, points[i][j].z));
-                }
-            }
+        try (FileChannel channel = new FileOutputStream(fileName).getChannel()) {
+            int numXiPoints = points.numXiPoints();
+            int numEtaPoints = points.numEtaPoints();
+
+            AsciiEncoder[] encoders = DatMeshWriter.newEncoders();
+            AsciiEncoder header = encoders[0];
+            header.append(String.format("dimension=%d\n", 2));
+            header.append(String.format("xi=%d\n", numXiPoints));
+            header.append(String.format("eta=%d\n", numEtaPoints));
+            header.append(String.format("%-20s %-20s %-20s\n", "x", "y", "z"));
+            header.writeTo(channel);
+            PhaseEvent event = PhaseEvent.begin("Write dat").subject(fileName).parallel();
+            // the storage order of a surface matches the file order, eta changing fastest
+            DatMeshWriter.writePoints(points, encoders, channel, ProgressMonitor.NONE);
+            event.finish(points.numPoints(), channel.position());
         }
     }
 
     public static void writeMesh(Point[][][] points, String fileName) throws IOException {
-        if (!fileName.endsWith(".dat")) {
-            fileName += ".dat";
-        }
-        System.out.println("Writing mesh file: " + fileName);
-        try (OutputStreamWriter fileWriter
-                = new OutputStreamWriter(new FileOutputStream(fileName),
-                        StandardCharsets.UTF_8)) {
-            int numXiPoints = points.length;
-            int numEtaPoints = points[0].length;
-            int numZetaPoints = points[0][0].length;
-
-            fileWriter.write(String.format("dimension=%d\n", 3));
-            fileWriter.write(String.format("xi=%d\n", numXiPoints));
-            fileWriter.write(String.format("eta=%d\n", numEtaPoints));
-            fileWriter.write(String.format("zeta=%d\n", numZetaPoints));
-            fileWriter.write(String.format("%-20s %-20s %-20s\n", "x", "y", "z"));
-            for (int i = 0; i < numXiPoints; i++) {
-                for (int j = 0; j < numEtaPoints; j++) {
-                    for (int k = 0; k < numZetaPoints; k++) {
-                        fileWriter.write(String.format("%-20f %-20f %-20f\n",
-                                points[i][j][k].x, points[i][j][k].y, points[i][j][k].z));
-                    }
-                }
+        writeMesh(StructuredGrid.fromPoints(points), fileName);
+    }
+
+    public static void writeMesh(StructuredGrid points, String fileName) throws IOException {
+        writeMesh(points, fileName, ProgressMonitor.NONE);
+    }
+
+    /**
+     * Same as {@link #writeMesh(StructuredGrid, String)}, reporting the
+     * progress to the monitor. If the monitor is cancelled, the partially
+     * written file is deleted.
+     *
+     * @throws java.util.concurrent.CancellationException if the monitor is
+     * cancelled
+     */
+    public static void writeMesh(StructuredGrid points, String fileName,
+            ProgressMonitor monitor) throws IOException {
+        checkZetaFastest(points);
+        DatMeshWriter writer = new DatMeshWriter(fileName,
+                points.numXiPoints(), points.numEtaPoints(), points.numZetaPoints());
+        try {
+            writer.setMonitor(monitor);
+            monitor.begin("Write dat", points.numPoints(), (long) points.numEtaPoints() * points.numZetaPoints());
+            writer.accept(points, 0);
+            monitor.done();
+        } catch (CancellationException ex) {
+            try {
+                writer.delete();
+            } catch (IOException deleteFailure) {
+                ex.addSuppressed(deleteFailure);
             }
+            throw ex;
+        } finally {
+            writer.close();
         }
     }
 
     public static void writeSurfaceVtkFormat(Point[][] points, String fileName) throws IOException {
-        if (!fileName.endsWith(".vtk")) {
-            fileName += ".vtk";
-        }
-        System.out.println("Writing mesh file in vtk format: " + fileName);
+        writeSurfaceVtkFormat(StructuredGrid.fromPoints(points), fileName);
+    }
 
-        try (DataOutputStream dataStream = new DataOutputStream(new FileOutputStream(fileName))) {
-            int numXiPoints = points.length;
-            int numEtaPoints = points[0].length;
-            int numZetaPoints = 1;
+    public static void writeSurfaceVtkFormat(StructuredGrid points, String fileName) throws IOException {
+        checkSurface(points);
+        try (VtkMeshWriter writer = new VtkMeshWriter(fileName,
+                points.numXiPoints(), points.numEtaPoints(), 1, VtkPrecision.DOUBLE)) {
+            writer.accept(points, 0);
+        }
+    }
 
-            int totalNodes = numXiPoints * numEtaPoints * numZetaPoints;
+    public static void writeMeshVtkFormat(Point[][][] points, String fileName) throws IOException {
+        writeMeshVtkFormat(StructuredGrid.fromPoints(points), fileName);
+    }
 
-            dataStream.write(("# vtk DataFile Version 2.0" + "\n").getBytes("UTF-8"));
-            dataStream.write(("Structured mesh file." + "\n").getBytes("UTF-8"));
-            dataStream.write(("BINARY" + "\n").getBytes("UTF-8"));
+    public static void writeMeshVtkFormat(StructuredGrid points, String fileName) throws IOException {
+        writeMeshVtkFormat(points, fileName, VtkPrecision.FLOAT);
+    }
 
-            dataStream.write(("DATASET " + "STRUCTURED_GRID" + "\n").getBytes("UTF-8"));
-            dataStream.write((String.format("DIMENSIONS %d %d %d", numXiPoints, numEtaPoints, numZetaPoints) + "\n").getBytes("UTF-8"));
+    public static void writeMeshVtkFormat(StructuredGrid points, String fileName,
+            VtkPrecision precision) throws IOException {
+        writeMeshVtkFormat(points, fileName, precision, ProgressMonitor.NONE);
+    }
 
-            dataStream.write((String.format("POINTS %d %s", totalNodes, "double") + "\n").getBytes("UTF-8"));
+    /**
+     * Same as {@link #writeMeshVtkFormat(StructuredGrid, String, VtkPrecision)},
+     * reporting the progress to the monitor. If the monitor is cancelled, the
+     * partially written file is deleted.
+     *
+     * @throws java.util.concurrent.CancellationException if the monitor is
+     * cancelled
+     */
+    public static void writeMeshVtkFormat(StructuredGrid points, String fileName,
+            VtkPrecision precision, ProgressMonitor monitor) throws IOException {
+        VtkMeshWriter writer = new VtkMeshWriter(fileName,
+                points.numXiPoints(), points.numEtaPoints(), points.numZetaPoints(), precision);
+        try {
+            writer.setMonitor(monitor);
+            monitor.begin("Write vtk", points.numPoints(), (long) points.numXiPoints() * points.numEtaPoints());
+            writer.accept(points, 0);
+            monitor.done();
+        } catch (CancellationException ex) {
+            try {
+                writer.delete();
+            } catch (IOException deleteFailure) {
+                ex.addSuppressed(deleteFailure);
+            }
+            throw ex;
+        } finally {
+            writer.close();
+        }
+    }
 
-            for (int k = 0; k < numZetaPoints; k++) {
-                for (int j = 0; j < numEtaPoints; j++) {
-                    for (int i = 0; i < numXiPoints; i++) {
-                        dataStream.writeDouble(points[i][j].x);
-                        dataStream.writeDouble(points[i][j].y);
-                        dataStream.writeDouble(points[i][j].z);
-                    }
-                }
+    /**
+     * Writes the mesh together with the quality of every cell as cell data,
+     * one field per {@link QualityMetric}.
+     *
+     * @param quality quality of the mesh, computed with the values of every
+     * cell kept
+     */
+    public static void writeMeshVtkFormat(StructuredGrid points, String fileName,
+            VtkPrecision precision, MeshQuality quality) throws IOException {
+        if (quality.numXiCells() != points.numXiPoints() - 1
+                || quality.numEtaCells() != points.numEtaPoints() - 1
+                || quality.numZetaCells() != points.numZetaPoints() - 1
+                || !quality.hasCellData()) {
+            throw new IllegalArgumentException("The quality does not hold the cells of the mesh.");
+        }
+        try (VtkMeshWriter writer = new VtkMeshWriter(fileName,
+                points.numXiPoints(), points.numEtaPoints(), points.numZetaPoints(), precision)) {
+            writer.accept(points, 0);
+            for (QualityMetric metric : QualityMetric.values()) {
+                writer.writeCellData(metric.fieldName(), quality.cellData(metric));
             }
         }
     }
 
-    public static void writeMeshVtkFormat(Point[][][] points, String fileName) throws IOException {
-        if (!fileName.endsWith(".vtk")) {
-            fileName += ".vtk";
+    /**
+     * Writes the mesh together with the wall distance of every point as point
+     * data, in the precision of the points.
+     */
+    public static void writeMeshVtkFormat(StructuredGrid points, String fileName,
+            VtkPrecision precision, WallDistance wallDistance) throws IOException {
+        if (wallDistance.numXiPoints() != points.numXiPoints()
+                || wallDistance.numEtaPoints() != points.numEtaPoints()
+                || wallDistance.numZetaPoints() != points.numZetaPoints()) {
+            throw new IllegalArgumentException("The wall distance does not hold the points of the mesh.");
+        }
+        try (VtkMeshWriter writer = new VtkMeshWriter(fileName,
+                points.numXiPoints(), points.numEtaPoints(), points.numZetaPoints(), precision)) {
+            writer.accept(points, 0);
+            writer.writePointData("wall_distance", wallDistance.distances());
+        }
+    }
+
+    /**
+     * Writes the mesh in the VTK XML format (.vts) with the points as
+     * appended binary data, compressed in blocks in parallel unless the
+     * compression is {@link VtkCompression#NONE}.
+     */
+    public static void writeMeshVtsFormat(StructuredGrid points, String fileName,
+            VtkPrecision precision, VtkCompression compression) throws IOException {
+        VtsMeshWriter.write(points, fileName, precision, compression);
+    }
+
+    /**
+     * Same as
+     * {@link #writeMeshVtsFormat(StructuredGrid, String, VtkPrecision, VtkCompression)},
+     * split into slabs of constant zeta written concurrently to their own .vts
+     * files, with a .pvts file referring to them which is opened in ParaView.
+     *
+     * @param numPieces number of pieces, at most one per layer of cells
+     */
+    public static void writeMeshPvtsFormat(StructuredGrid points, String fileName,
+            VtkPrecision precision, VtkCompression compression, int numPieces) throws IOException {
+        VtsMeshWriter.writePieces(points, fileName, precision, compression, numPieces);
+    }
+
+    /**
+     * Writes a single precision grid. The points are the float values
+     * written with the same format as the double values.
+     */
+    public static void writeMesh(FloatGrid points, String fileName) throws IOException {
+        try (DatMeshWriter writer = new DatMeshWriter(fileName,
+                points.numXiPoints(), points.numEtaPoints(), points.numZetaPoints())) {
+            points.writeTo(writer, FLOAT_GRID_SLAB_SIZE);
         }
-        System.out.println("Writing mesh file in vtk format: " + fileName);
+    }
 
-        try (FileOutputStream outStream = new FileOutputStream(fileName)) {
-            int numXiPoints = points.length;
-            int numEtaPoints = points[0].length;
-            int numZetaPoints = points[0][0].length;
+    /**
+     * Writes a single precision grid in the vtk format with float
+     * coordinates. The file is identical to the one written from the double
+     * precision grid.
+     */
+    public static void writeMeshVtkFormat(FloatGrid points, String fileName) throws IOException {
+        try (VtkMeshWriter writer = new VtkMeshWriter(fileName,
+                points.numXiPoints(), points.numEtaPoints(), points.numZetaPoints(), VtkPrecision.FLOAT)) {
+            points.writeTo(writer, FLOAT_GRID_SLAB_SIZE);
+        }
+    }
 
-            int totalNodes = numXiPoints * numEtaPoints * numZetaPoints;
+    /**
+     * Writes every grid of the family to its own file, all concurrently. The
+     * level is appended to the file name, e.g. <code>mesh_level0.dat</code>
+     * for the finest grid.
+     */
+    public static void writeMeshFamily(GridFamily family, String fileName) throws IOException {
+        writeLevels(family, fileName, ".dat", MeshFileWriter::writeMesh);
+    }
 
-            outStream.write(("# vtk DataFile Version 2.0" + "\n").getBytes("UTF-8"));
-            outStream.write(("Structured mesh file." + "\n").getBytes("UTF-8"));
-            outStream.write(("BINARY" + "\n").getBytes("UTF-8"));
+    /**
+     * Same as {@link #writeMeshFamily(GridFamily, String)} in vtk format.
+     */
+    public static void writeMeshFamilyVtkFormat(GridFamily family, String fileName,
+            VtkPrecision precision) throws IOException {
+        writeLevels(family, fileName, ".vtk",
+                (points, levelFileName) -> writeMeshVtkFormat(points, levelFileName, precision));
+    }
+
+    /**
+     * Writes the finite volume metrics of a mesh in binary form, to be read
+     * by a solver instead of computing them from the points. The file starts
+     * with the text lines
+     * <pre>
+     * fvm 1
+     * cells numXiCells numEtaCells numZetaCells
+     * </pre>
+     * followed by little endian doubles: for every cell its volume and
+     * centroid (4 values), then for every xi face its area vector and
+     * centroid (6 values), then the eta faces and the zeta faces. Cells and
+     * faces are in the order of {@link FiniteVolumeMetrics}, zeta changing
+     * fastest. The blocks of the file are encoded and written in parallel.
+     */
+    public static void writeMetrics(FiniteVolumeMetrics metrics, String fileName) throws IOException {
+        if (!fileName.endsWith(".fvm")) {
+            fileName += ".fvm";
+        }
+        System.out.println("Writing finite volume metrics: " + fileName);
+        byte[] header = String.format("fvm 1\ncells %d %d %d\n", metrics.numXiCells(),
+                metrics.numEtaCells(), metrics.numZetaCells()).getBytes(StandardCharsets.US_ASCII);
+        PhaseEvent event = PhaseEvent.begin("Write fvm").subject(fileName).parallel();
+        try (FileChannel channel = new FileOutputStream(fileName).getChannel()) {
+            ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+            while (headerBuffer.hasRemaining()) {
+                channel.write(headerBuffer);
+            }
+            long position = header.length;
+            StructuredGrid centroids = metrics.cellCentroids();
+            double[] volumes = metrics.cellVolumes();
+            position = writeRecords(channel, position, volumes.length, 4, (n, buffer) -> buffer
+                    .putDouble(volumes[n])
+                    .putDouble(centroids.x[n]).putDouble(centroids.y[n]).putDouble(centroids.z[n]));
+            position = writeFaces(channel, position, metrics.xiFaceAreas(), metrics.xiFaceCentroids());
+            position = writeFaces(channel, position, metrics.etaFaceAreas(), metrics.etaFaceCentroids());
+            position = writeFaces(channel, position, metrics.zetaFaceAreas(), metrics.zetaFaceCentroids());
+            event.finish(volumes.length, position);
+        }
+    }
 
-            outStream.write(("DATASET " + "STRUCTURED_GRID" + "\n").getBytes("UTF-8"));
-            outStream.write((String.format("DIMENSIONS %d %d %d", numXiPoints, numEtaPoints, numZetaPoints) + "\n").getBytes("UTF-8"));
+    private interface RecordEncoder {
+
+        void encode(int record, ByteBuffer buffer);
+    }
 
-            outStream.write((String.format("POINTS %d %s", totalNodes, "float") + "\n").getBytes("UTF-8"));
+    private static long writeFaces(FileChannel channel, long position,
+            StructuredGrid areas, StructuredGrid centroids) throws IOException {
+        return writeRecords(channel, position, areas.numPoints(), 6, (n, buffer) -> buffer
+                .putDouble(areas.x[n]).putDouble(areas.y[n]).putDouble(areas.z[n])
+                .putDouble(centroids.x[n]).putDouble(centroids.y[n]).putDouble(centroids.z[n]));
+    }
 
-            ByteBuffer buffer = ByteBuffer.allocate(totalNodes * Float.BYTES * 3);
-            for (int k = 0; k < numZetaPoints; k++) {
-                for (int j = 0; j < numEtaPoints; j++) {
-                    for (int i = 0; i < numXiPoints; i++) {
-                        buffer.putFloat((float) points[i][j][k].x);
-                        buffer.putFloat((float) points[i][j][k].y);
-                        buffer.putFloat((float) points[i][j][k].z);
+    /**
+     * Writes the records at the position of the file, block by block in
+     * parallel, and returns the position after the last record.
+     */
+    private static long writeRecords(FileChannel channel, long position, int numRecords,
+            int valuesPerRecord, RecordEncoder encoder) throws IOException {
+        int recordBytes = valuesPerRecord * Double.BYTES;
+        int numBlocks = (numRecords + METRICS_RECORDS_PER_BLOCK - 1) / METRICS_RECORDS_PER_BLOCK;
+        try {
+            IntStream.range(0, numBlocks).parallel().forEach(b -> {
+                int first = b * METRICS_RECORDS_PER_BLOCK;
+                int last = Math.min(first + METRICS_RECORDS_PER_BLOCK, numRecords);
+                ByteBuffer buffer = ByteBuffer.allocate((last - first) * recordBytes)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                for (int n = first; n < last; n++) {
+                    encoder.encode(n, buffer);
+                }
+                buffer.flip();
+                long blockPosition = position + (long) first * recordBytes;
+                try {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer, blockPosition + buffer.position());
                     }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
                 }
-            }
-            outStream.write(buffer.array());
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+
+        return position + (long) numRecords * recordBytes;
+    }
+
+    private interface GridWriter {
+
+        void write(StructuredGrid points, String fileName) throws IOException;
+    }
+
+    private static void writeLevels(GridFamily family, String fileName, String extension,
+            GridWriter writer) throws IOException {
+        String baseName = fileName.endsWith(extension)
+                ? fileName.substring(0, fileName.length() - extension.length())
+                : fileName;
+        try {
+            IntStream.range(0, family.numLevels()).parallel().forEach(level -> {
+                try {
+                    writer.write(family.level(level), baseName + "_level" + level + extension);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private static void checkSurface(StructuredGrid points) {
+        if (points.numZetaPoints() != 1) {
+            throw new IllegalArgumentException("A surface grid must have a single point in zeta direction.");
+        }
+    }
+
+    // the .dat files are written in the storage order of the grid
+    private static void checkZetaFastest(StructuredGrid points) {
+        if (points.storageOrder() != StorageOrder.ZETA_FASTEST) {
+            throw new IllegalArgumentException("The grid must be stored with zeta changing fastest.");
         }
     }
 }
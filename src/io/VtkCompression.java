@@ -0,0 +1,47 @@
+package io;
+
+import java.util.zip.Deflater;
+
+/**
+ * Compression of the appended data of the VTK XML files. The data is split
+ * into blocks which are compressed independently with zlib, as read by the
+ * <code>vtkZLibDataCompressor</code> of VTK and ParaView.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public enum VtkCompression {
+
+    /**
+     * Raw data, without the block headers and without a compressor.
+     */
+    NONE {
+        @Override
+        Deflater newDeflater() {
+            return null;
+        }
+    },
+    /**
+     * Fastest zlib level, for files which are written often.
+     */
+    ZLIB_FAST {
+        @Override
+        Deflater newDeflater() {
+            return new Deflater(Deflater.BEST_SPEED);
+        }
+    },
+    /**
+     * Default zlib level, for files which are archived.
+     */
+    ZLIB {
+        @Override
+        Deflater newDeflater() {
+            return new Deflater(Deflater.DEFAULT_COMPRESSION);
+        }
+    };
+
+    /**
+     * @return a new deflater compressing the blocks, to be ended by the
+     * caller, or null if the data is not compressed
+     */
+    abstract Deflater newDeflater();
+}
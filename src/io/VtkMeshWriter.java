@@ -0,0 +1,398 @@
+package io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+import mesh.ProgressMonitor;
+import mesh.SlabDirection;
+import mesh.SlabSink;
+import mesh.StorageOrder;
+import mesh.StructuredGrid;
+import util.PhaseEvent;
+
+/**
+ * Writes a volume or surface mesh in the legacy binary VTK format, one slab
+ * of constant zeta at a time.
+ *
+ * The file is sized for all the points when it is created, and every slab is
+ * written through memory mapped windows of the file at its final position, so
+ * no copy of the points is made on the heap. The windows are disjoint and are
+ * filled in parallel. All file offsets are <code>long</code>, so the file may
+ * be larger than 2 GB.
+ *
+ * The file stores the points with xi changing fastest. Slabs stored in
+ * {@link StorageOrder#XI_FASTEST}, which the writer asks for, are copied
+ * row by row; slabs in the default zeta fastest order are transposed in small
+ * tiles, so that the reads along zeta and the writes along xi both stay
+ * within a few cache lines.
+ *
+ * The windows are dropped as soon as they are written and the operating
+ * system writes them back to the file in its own time. A durable writer
+ * instead keeps them until they are forced to the storage device, when the
+ * writer is closed or earlier once there are many of them, so that the
+ * number of live mappings stays bounded.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class VtkMeshWriter implements SlabSink, Closeable {
+
+    private static final int WINDOW_BYTES = 16 << 20;
+    // Points in xi and zeta direction of a tile of the transpose
+    private static final int TILE_XI = 64;
+    private static final int TILE_ZETA = 16;
+    // Windows kept mapped by a durable writer until they are forced, 4 GB of the file
+    private static final int MAX_UNFORCED_WINDOWS = 256;
+
+    private final int numXiPoints;
+    private final int numEtaPoints;
+    private final int numZetaPoints;
+    private final VtkPrecision precision;
+    private final String fileName;
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long dataStart;
+    private final List<MappedByteBuffer> unforcedWindows = Collections.synchronizedList(new ArrayList<>());
+    private ProgressMonitor monitor = ProgressMonitor.NONE;
+    private volatile boolean durable;
+    private int nextPlane;
+    // CELL_DATA or POINT_DATA section of the last field written
+    private String dataSection;
+
+    public VtkMeshWriter(String fileName, int numXiPoints, int numEtaPoints, int numZetaPoints) throws IOException {
+        this(fileName, numXiPoints, numEtaPoints, numZetaPoints, VtkPrecision.FLOAT);
+    }
+
+    public VtkMeshWriter(String fileName, int numXiPoints, int numEtaPoints, int numZetaPoints,
+            VtkPrecision precision) throws IOException {
+        if (!fileName.endsWith(".vtk")) {
+            fileName += ".vtk";
+        }
+        if ((long) numXiPoints * 3 * precision.bytes() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many points in xi direction: " + numXiPoints);
+        }
+        System.out.println("Writing mesh file in vtk format: " + fileName);
+        this.numXiPoints = numXiPoints;
+        this.numEtaPoints = numEtaPoints;
+        this.numZetaPoints = numZetaPoints;
+        this.precision = precision;
+        this.fileName = fileName;
+        this.file = new RandomAccessFile(fileName, "rw");
+        this.channel = file.getChannel();
+
+        long totalNodes = (long) numXiPoints * numEtaPoints * numZetaPoints;
+        String header = "# vtk DataFile Version 2.0" + "\n"
+                + "Structured mesh file." + "\n"
+                + "BINARY" + "\n"
+                + "DATASET " + "STRUCTURED_GRID" + "\n"
+                + String.format("DIMENSIONS %d %d %d", numXiPoints, numEtaPoints, numZetaPoints) + "\n"
+                + String.format("POINTS %d %s", totalNodes, precision.typeName()) + "\n";
+        byte[] headerBytes = header.getBytes(StandardCharsets.UTF_8);
+        this.dataStart = headerBytes.length;
+
+        file.setLength(0);
+        ByteBuffer headerBuffer = ByteBuffer.wrap(headerBytes);
+        while (headerBuffer.hasRemaining()) {
+            channel.write(headerBuffer);
+        }
+        file.setLength(dataStart + totalNodes * 3 * precision.bytes());
+    }
+
+    @Override
+    public SlabDirection slabDirection() {
+        return SlabDirection.ZETA;
+    }
+
+    @Override
+    public StorageOrder storageOrder() {
+        return StorageOrder.XI_FASTEST;
+    }
+
+    @Override
+    public void accept(StructuredGrid slab, int start) throws IOException {
+        int numPlanes = slab.numZetaPoints();
+        if (start != nextPlane || slab.numXiPoints() != numXiPoints
+                || slab.numEtaPoints() != numEtaPoints
+                || start + numPlanes > numZetaPoints) {
+            throw new IllegalArgumentException("The slab does not continue the mesh.");
+        }
+
+        // A row is a line of constant eta and zeta, stored with xi changing fastest
+        int rowBytes = numXiPoints * 3 * precision.bytes();
+        int numRows = numPlanes * numEtaPoints;
+        int rowsPerWindow = Math.max(1, WINDOW_BYTES / rowBytes);
+        int numWindows = (numRows + rowsPerWindow - 1) / rowsPerWindow;
+        long slabStart = dataStart + (long) start * numEtaPoints * rowBytes;
+        PhaseEvent event = PhaseEvent.begin("Write vtk").subject(fileName).parallel();
+        try {
+            IntStream.range(0, numWindows).parallel().forEach(w -> {
+                int firstRow = w * rowsPerWindow;
+                int lastRow = Math.min(firstRow + rowsPerWindow, numRows);
+                try {
+                    MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_WRITE,
+                            slabStart + (long) firstRow * rowBytes,
+                            (long) (lastRow - firstRow) * rowBytes);
+                    if (durable) {
+                        unforcedWindows.add(window);
+                    }
+                    if (slab.storageOrder() == StorageOrder.XI_FASTEST) {
+                        fillRows(slab, firstRow, lastRow, window);
+                    } else {
+                        transposeRows(slab, firstRow, lastRow, window);
+                    }
+                    monitor.completed((long) (lastRow - firstRow) * numXiPoints);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        event.finish(slab.numPoints(), (long) numRows * rowBytes);
+        nextPlane += numPlanes;
+        if (unforcedWindows.size() > MAX_UNFORCED_WINDOWS) {
+            forceWindows();
+        }
+    }
+
+    /**
+     * Copies the rows of a slab stored with xi changing fastest, in which the
+     * rows are contiguous and in the same order as in the file.
+     */
+    private void fillRows(StructuredGrid slab, int firstRow, int lastRow, ByteBuffer window) {
+        int end = lastRow * numXiPoints;
+        if (precision == VtkPrecision.FLOAT) {
+            for (int index = firstRow * numXiPoints; index < end; index++) {
+                window.putFloat((float) slab.x[index]);
+                window.putFloat((float) slab.y[index]);
+                window.putFloat((float) slab.z[index]);
+            }
+        } else {
+            for (int index = firstRow * numXiPoints; index < end; index++) {
+                window.putDouble(slab.x[index]);
+                window.putDouble(slab.y[index]);
+                window.putDouble(slab.z[index]);
+            }
+        }
+    }
+
+    /**
+     * Transposes the rows of a slab stored with zeta changing fastest into
+     * the window, one tile of TILE_XI x TILE_ZETA points of an eta plane at a
+     * time. The points of a tile are read along zeta and written at their
+     * absolute position in the window.
+     */
+    private void transposeRows(StructuredGrid slab, int firstRow, int lastRow, ByteBuffer window) {
+        int bytes = precision.bytes();
+        int rowBytes = numXiPoints * 3 * bytes;
+        int firstPlane = firstRow / numEtaPoints;
+        int lastPlane = (lastRow - 1) / numEtaPoints + 1;
+        for (int kTile = firstPlane; kTile < lastPlane; kTile += TILE_ZETA) {
+            int kEnd = Math.min(kTile + TILE_ZETA, lastPlane);
+            for (int j = 0; j < numEtaPoints; j++) {
+                // only the first and the last plane of a window may be partial
+                int kFirst = kTile;
+                while (kFirst < kEnd && kFirst * numEtaPoints + j < firstRow) {
+                    kFirst++;
+                }
+                int kLast = kEnd;
+                while (kLast > kFirst && (kLast - 1) * numEtaPoints + j >= lastRow) {
+                    kLast--;
+                }
+                for (int iTile = 0; iTile < numXiPoints; iTile += TILE_XI) {
+                    int iEnd = Math.min(iTile + TILE_XI, numXiPoints);
+                    for (int i = iTile; i < iEnd; i++) {
+                        int index = slab.index(i, j, kFirst);
+                        int position = (kFirst * numEtaPoints + j - firstRow) * rowBytes + i * 3 * bytes;
+                        for (int k = kFirst; k < kLast; k++, index++, position += numEtaPoints * rowBytes) {
+                            if (precision == VtkPrecision.FLOAT) {
+                                window.putFloat(position, (float) slab.x[index]);
+                                window.putFloat(position + 4, (float) slab.y[index]);
+                                window.putFloat(position + 8, (float) slab.z[index]);
+                            } else {
+                                window.putDouble(position, slab.x[index]);
+                                window.putDouble(position + 8, slab.y[index]);
+                                window.putDouble(position + 16, slab.z[index]);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends a scalar field of the cells to the file, after all the points
+     * have been written. The cells are numbered with xi changing fastest.
+     *
+     * @param name name of the field
+     * @param values value of every cell
+     * @throws IOException if the field cannot be written
+     */
+    public void writeCellData(String name, float[] values) throws IOException {
+        long numCells = (long) (numXiPoints - 1) * (numEtaPoints - 1) * (numZetaPoints - 1);
+        writeField("CELL_DATA " + numCells, name, VtkPrecision.FLOAT, values.length, numCells,
+                (window, first, last) -> {
+                    for (int n = first; n < last; n++) {
+                        window.putFloat(values[n]);
+                    }
+                });
+    }
+
+    /**
+     * Appends a scalar field of the points to the file, in the precision of
+     * the points, after all the points have been written. The points are
+     * numbered with xi changing fastest.
+     *
+     * @param name name of the field
+     * @param values value of every point
+     * @throws IOException if the field cannot be written
+     */
+    public void writePointData(String name, double[] values) throws IOException {
+        long numPoints = (long) numXiPoints * numEtaPoints * numZetaPoints;
+        writeField("POINT_DATA " + numPoints, name, precision, values.length, numPoints,
+                (window, first, last) -> {
+                    for (int n = first; n < last; n++) {
+                        if (precision == VtkPrecision.FLOAT) {
+                            window.putFloat((float) values[n]);
+                        } else {
+                            window.putDouble(values[n]);
+                        }
+                    }
+                });
+    }
+
+    private interface FieldEncoder {
+
+        void put(ByteBuffer window, int first, int last);
+    }
+
+    /**
+     * Appends a field at the end of the file. The section header is written
+     * before the first field of a section.
+     */
+    private void writeField(String section, String name, VtkPrecision fieldPrecision,
+            int numValues, long expectedValues, FieldEncoder encoder) throws IOException {
+        if (nextPlane != numZetaPoints) {
+            throw new IllegalStateException("The points must be written before the fields.");
+        }
+        if (numValues != expectedValues) {
+            throw new IllegalArgumentException("The field must have " + expectedValues + " values.");
+        }
+        String header = "\n"
+                + (section.equals(dataSection) ? "" : section + "\n")
+                + "SCALARS " + name + " " + fieldPrecision.typeName() + " 1" + "\n"
+                + "LOOKUP_TABLE default" + "\n";
+        dataSection = section;
+        int bytes = fieldPrecision.bytes();
+        long headerStart = file.length();
+        ByteBuffer headerBuffer = ByteBuffer.wrap(header.getBytes(StandardCharsets.UTF_8));
+        long fieldStart = headerStart + headerBuffer.remaining();
+        file.setLength(fieldStart + (long) numValues * bytes);
+        while (headerBuffer.hasRemaining()) {
+            channel.write(headerBuffer, headerStart + headerBuffer.position());
+        }
+
+        int valuesPerWindow = WINDOW_BYTES / bytes;
+        int numWindows = (numValues + valuesPerWindow - 1) / valuesPerWindow;
+        PhaseEvent event = PhaseEvent.begin("Write vtk").parallel();
+        if (PhaseEvent.isEnabled()) {
+            event.subject(fileName + " " + name);
+        }
+        try {
+            IntStream.range(0, numWindows).parallel().forEach(w -> {
+                int first = w * valuesPerWindow;
+                int last = Math.min(first + valuesPerWindow, numValues);
+                try {
+                    MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_WRITE,
+                            fieldStart + (long) first * bytes, (long) (last - first) * bytes);
+                    if (durable) {
+                        unforcedWindows.add(window);
+                    }
+                    encoder.put(window, first, last);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        event.finish(numValues, (long) numValues * bytes);
+        if (unforcedWindows.size() > MAX_UNFORCED_WINDOWS) {
+            forceWindows();
+        }
+    }
+
+    /**
+     * Writes the contents of the windows to the storage device and releases
+     * them.
+     */
+    private void forceWindows() throws IOException {
+        synchronized (unforcedWindows) {
+            try {
+                for (MappedByteBuffer window : unforcedWindows) {
+                    window.force();
+                }
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+            unforcedWindows.clear();
+        }
+    }
+
+    /**
+     * Makes the writer force the written points to the storage device before
+     * it is closed, so that the file survives a crash of the system. This
+     * costs a synchronous flush of the whole file and is off by default.
+     *
+     * @param durable true to force the points on close
+     */
+    public void setDurable(boolean durable) {
+        this.durable = durable;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            forceWindows();
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Closes the writer and deletes the file, e.g. after the generation of the
+     * mesh has been cancelled. The windows of a durable writer are released
+     * without being forced; on platforms which cannot delete a mapped file, the delete may
+     * fail until the released windows have been garbage collected.
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    public void delete() throws IOException {
+        unforcedWindows.clear();
+        file.close();
+        try {
+            Files.deleteIfExists(Paths.get(fileName));
+        } catch (IOException ex) {
+            throw new IOException("The partial file " + fileName + " could not be deleted.", ex);
+        }
+    }
+
+    /**
+     * Reports the written points to the monitor, which may also cancel the
+     * writing between two windows.
+     */
+    void setMonitor(ProgressMonitor monitor) {
+        this.monitor = monitor;
+    }
+}
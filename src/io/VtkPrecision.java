@@ -0,0 +1,42 @@
+package io;
+
+/**
+ * Precision of the point coordinates in a binary VTK file, legacy or XML.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public enum VtkPrecision {
+
+    FLOAT("float", "Float32", Float.BYTES), DOUBLE("double", "Float64", Double.BYTES);
+
+    private final String typeName;
+    private final String xmlTypeName;
+    private final int bytes;
+
+    private VtkPrecision(String typeName, String xmlTypeName, int bytes) {
+        this.typeName = typeName;
+        this.xmlTypeName = xmlTypeName;
+        this.bytes = bytes;
+    }
+
+    /**
+     * @return name of the data type in the VTK file
+     */
+    public String typeName() {
+        return typeName;
+    }
+
+    /**
+     * @return name of the data type in the VTK XML files
+     */
+    public String xmlTypeName() {
+        return xmlTypeName;
+    }
+
+    /**
+     * @return number of bytes of a single coordinate
+     */
+    public int bytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,297 @@
+package io;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import java.util.zip.Deflater;
+import mesh.StructuredGrid;
+import util.PhaseEvent;
+
+/**
+ * Writes a volume mesh in the VTK XML structured grid format (.vts), or as
+ * several pieces with a parallel structured grid file (.pvts) referring to
+ * them.
+ *
+ * The points are stored as appended raw binary data, little endian, with xi
+ * changing fastest. The data is split into blocks of BLOCK_POINTS points;
+ * the blocks are encoded, and compressed if asked for, in batches in
+ * parallel, and then written to the file in order. A single file has a
+ * batch of one block per processor; the pieces of a .pvts file share the
+ * processors, each with a batch of its share of them, so the buffers and
+ * deflaters of all the pieces together stay at about one block per
+ * processor however many pieces there are. A
+ * compressed array starts with the number of blocks, the uncompressed sizes
+ * and the compressed size of every block; the space for it is reserved and
+ * the sizes are written when all the blocks are known. The pieces of a
+ * .pvts file are slabs of constant zeta, sharing their boundary planes, and
+ * are written concurrently, so that ParaView can also read them in
+ * parallel.
+ *
+ * Grids stored with xi changing fastest are copied in the order of the
+ * file; grids stored with zeta changing fastest are gathered point by point.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+class VtsMeshWriter {
+
+    private static final int BLOCK_POINTS = 1 << 15;
+
+    private VtsMeshWriter() {
+    }
+
+    /**
+     * Writes the grid to a single .vts file.
+     */
+    static void write(StructuredGrid points, String fileName,
+            VtkPrecision precision, VtkCompression compression) throws IOException {
+        if (!fileName.endsWith(".vts")) {
+            fileName += ".vts";
+        }
+        System.out.println("Writing mesh file in vts format: " + fileName);
+        writePiece(points, 0, points.numZetaPoints() - 1, fileName, precision, compression,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Writes the grid as numPieces .vts files of about equal size, all
+     * concurrently, and the .pvts file which refers to them. The piece is
+     * appended to the file name, e.g. <code>mesh_0.vts</code> for the first
+     * piece of <code>mesh.pvts</code>.
+     */
+    static void writePieces(StructuredGrid points, String fileName, VtkPrecision precision,
+            VtkCompression compression, int numPieces) throws IOException {
+        if (numPieces < 1) {
+            throw new IllegalArgumentException("The number of pieces must be at least 1.");
+        }
+        String baseName = fileName.endsWith(".pvts")
+                ? fileName.substring(0, fileName.length() - ".pvts".length())
+                : fileName;
+        System.out.println("Writing mesh file in pvts format: " + baseName + ".pvts");
+        // every piece has at least one layer of cells, except in a surface grid
+        int numCellLayers = points.numZetaPoints() - 1;
+        int pieces = Math.max(1, Math.min(numPieces, numCellLayers));
+        int[] firstPlanes = new int[pieces + 1];
+        for (int p = 0; p <= pieces; p++) {
+            firstPlanes[p] = (int) ((long) p * numCellLayers / pieces);
+        }
+
+        StringBuilder pvts = new StringBuilder()
+                .append("<?xml version=\"1.0\"?>\n")
+                .append("<VTKFile type=\"PStructuredGrid\" version=\"1.0\" byte_order=\"LittleEndian\""
+                        + " header_type=\"UInt64\">\n")
+                .append("  <PStructuredGrid WholeExtent=\"")
+                .append(extent(points, 0, numCellLayers)).append("\" GhostLevel=\"0\">\n")
+                .append("    <PPoints>\n")
+                .append("      <PDataArray type=\"").append(precision.xmlTypeName())
+                .append("\" Name=\"Points\" NumberOfComponents=\"3\"/>\n")
+                .append("    </PPoints>\n");
+        for (int p = 0; p < pieces; p++) {
+            pvts.append("    <Piece Extent=\"").append(extent(points, firstPlanes[p], firstPlanes[p + 1]))
+                    .append("\" Source=\"").append(Paths.get(pieceName(baseName, p)).getFileName())
+                    .append("\"/>\n");
+        }
+        pvts.append("  </PStructuredGrid>\n")
+                .append("</VTKFile>\n");
+
+        int batchSize = Math.max(1, Runtime.getRuntime().availableProcessors() / pieces);
+        try {
+            IntStream.range(0, pieces).parallel().forEach(p -> {
+                try {
+                    writePiece(points, firstPlanes[p], firstPlanes[p + 1],
+                            pieceName(baseName, p), precision, compression, batchSize);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        try (FileChannel channel = new FileOutputStream(baseName + ".pvts").getChannel()) {
+            ByteBuffer buffer = ByteBuffer.wrap(pvts.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private static String pieceName(String baseName, int piece) {
+        return baseName + "_" + piece + ".vts";
+    }
+
+    private static String extent(StructuredGrid points, int firstPlane, int lastPlane) {
+        return String.format("0 %d 0 %d %d %d",
+                points.numXiPoints() - 1, points.numEtaPoints() - 1, firstPlane, lastPlane);
+    }
+
+    /**
+     * Writes the planes firstPlane to lastPlane, both included, of the grid
+     * to a .vts file, encoding batchSize blocks at a time.
+     */
+    private static void writePiece(StructuredGrid points, int firstPlane, int lastPlane, String fileName,
+            VtkPrecision precision, VtkCompression compression, int batchSize) throws IOException {
+        boolean compressed = compression != VtkCompression.NONE;
+        String header = "<?xml version=\"1.0\"?>\n"
+                + "<VTKFile type=\"StructuredGrid\" version=\"1.0\" byte_order=\"LittleEndian\""
+                + " header_type=\"UInt64\"" + (compressed ? " compressor=\"vtkZLibDataCompressor\"" : "") + ">\n"
+                + "  <StructuredGrid WholeExtent=\"" + extent(points, 0, points.numZetaPoints() - 1) + "\">\n"
+                + "    <Piece Extent=\"" + extent(points, firstPlane, lastPlane) + "\">\n"
+                + "      <Points>\n"
+                + "        <DataArray type=\"" + precision.xmlTypeName() + "\" Name=\"Points\""
+                + " NumberOfComponents=\"3\" format=\"appended\" offset=\"0\"/>\n"
+                + "      </Points>\n"
+                + "    </Piece>\n"
+                + "  </StructuredGrid>\n"
+                + "  <AppendedData encoding=\"raw\">\n"
+                + "   _";
+        String footer = "\n"
+                + "  </AppendedData>\n"
+                + "</VTKFile>\n";
+
+        long numPoints = (long) points.numXiPoints() * points.numEtaPoints() * (lastPlane - firstPlane + 1);
+        int pointBytes = 3 * precision.bytes();
+        int numBlocks = (int) ((numPoints + BLOCK_POINTS - 1) / BLOCK_POINTS);
+        PhaseEvent event = PhaseEvent.begin("Write vts").subject(fileName).parallel();
+        try (FileChannel channel = new FileOutputStream(fileName).getChannel()) {
+            long position = write(channel, 0, header.getBytes(StandardCharsets.UTF_8));
+            // number of blocks, block size and last block size, then the compressed sizes
+            ByteBuffer sizes = ByteBuffer.allocate((compressed ? 3 + numBlocks : 1) * Long.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            long sizesPosition = position;
+            position += sizes.capacity();
+
+            Block[] blocks = IntStream.range(0, Math.min(batchSize, numBlocks))
+                    .mapToObj(n -> new Block(BLOCK_POINTS * pointBytes, compression))
+                    .toArray(size -> new Block[size]);
+            try {
+                for (int first = 0; first < numBlocks; first += blocks.length) {
+                    int batchStart = first;
+                    int batchEnd = Math.min(first + blocks.length, numBlocks);
+                    IntStream.range(batchStart, batchEnd).parallel().forEach(b -> {
+                        long firstPoint = (long) b * BLOCK_POINTS;
+                        int count = (int) Math.min(BLOCK_POINTS, numPoints - firstPoint);
+                        blocks[b - batchStart].encode(points, firstPlane, firstPoint, count, precision);
+                    });
+                    for (int b = batchStart; b < batchEnd; b++) {
+                        Block block = blocks[b - batchStart];
+                        if (compressed) {
+                            sizes.putLong((3 + b) * Long.BYTES, block.length);
+                        }
+                        position = write(channel, position, block.data(), block.length);
+                    }
+                }
+            } finally {
+                for (Block block : blocks) {
+                    block.end();
+                }
+            }
+
+            long rawBytes = numPoints * pointBytes;
+            if (compressed) {
+                long blockBytes = (long) BLOCK_POINTS * pointBytes;
+                sizes.putLong(0, numBlocks)
+                        .putLong(Long.BYTES, blockBytes)
+                        .putLong(2 * Long.BYTES, rawBytes - (numBlocks - 1) * blockBytes);
+            } else {
+                sizes.putLong(0, rawBytes);
+            }
+            write(channel, sizesPosition, sizes.array());
+            position = write(channel, position, footer.getBytes(StandardCharsets.UTF_8));
+            event.finish(numPoints, position);
+        }
+    }
+
+    private static long write(FileChannel channel, long position, byte[] bytes) throws IOException {
+        return write(channel, position, bytes, bytes.length);
+    }
+
+    private static long write(FileChannel channel, long position, byte[] bytes, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+        return position + length;
+    }
+
+    /**
+     * Reusable buffers of a block, with the deflater compressing it.
+     */
+    private static class Block {
+
+        private final ByteBuffer raw;
+        private final Deflater deflater;
+        private byte[] compressed;
+        private int length;
+
+        Block(int capacity, VtkCompression compression) {
+            this.raw = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+            this.deflater = compression.newDeflater();
+            if (deflater != null) {
+                this.compressed = new byte[capacity + capacity / 64 + 64];
+            }
+        }
+
+        /**
+         * Encodes count points from firstPoint on, numbered with xi changing
+         * fastest from the plane firstPlane, and compresses them.
+         */
+        void encode(StructuredGrid points, int firstPlane, long firstPoint, int count, VtkPrecision precision) {
+            int numXi = points.numXiPoints();
+            int numEta = points.numEtaPoints();
+            int i = (int) (firstPoint % numXi);
+            long row = firstPoint / numXi;
+            int j = (int) (row % numEta);
+            int k = firstPlane + (int) (row / numEta);
+            raw.clear();
+            for (int n = 0; n < count; n++) {
+                int index = points.index(i, j, k);
+                if (precision == VtkPrecision.FLOAT) {
+                    raw.putFloat((float) points.x[index])
+                            .putFloat((float) points.y[index])
+                            .putFloat((float) points.z[index]);
+                } else {
+                    raw.putDouble(points.x[index])
+                            .putDouble(points.y[index])
+                            .putDouble(points.z[index]);
+                }
+                if (++i == numXi) {
+                    i = 0;
+                    if (++j == numEta) {
+                        j = 0;
+                        k++;
+                    }
+                }
+            }
+            if (deflater == null) {
+                length = raw.position();
+                return;
+            }
+            deflater.reset();
+            deflater.setInput(raw.array(), 0, raw.position());
+            deflater.finish();
+            length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, 2 * compressed.length);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+        }
+
+        byte[] data() {
+            return deflater == null ? raw.array() : compressed;
+        }
+
+        void end() {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+}
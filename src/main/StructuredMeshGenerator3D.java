@@ -1,13 +1,18 @@
 package main;
 
+import mesh.CancellationToken;
+import mesh.PipelineStatistics;
+import mesh.ProgressMonitor;
+import mesh.TfiKernel;
 import mesh.TransfiniteInterpolation;
 import geom.Geometry;
 import geom.GeometryFromFile;
 import geom.Point;
 import geom.HexahedronGeom;
-import io.MeshFileWriter;
+import io.DatMeshWriter;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  *
@@ -22,7 +27,16 @@ public class StructuredMeshGenerator3D {
 
         Geometry geom = new GeometryFromFile(new File("geom.dat"), 100, 50, 50);
 
-        Point[][][] points = TransfiniteInterpolation.interpolate(geom);
-        MeshFileWriter.writeMesh(points, "mesh");
+        // The mesh is written while the next slabs are generated
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try (DatMeshWriter writer = new DatMeshWriter("mesh",
+                geom.numXiPoints(), geom.numEtaPoints(), geom.numZetaPoints())) {
+            ProgressMonitor monitor = new ProgressMonitor(System.out::println, new CancellationToken());
+            PipelineStatistics statistics = TransfiniteInterpolation.interpolatePipelined(
+                    geom, TfiKernel.VECTORIZED, writer, 16, 3, pool, monitor);
+            System.out.println(statistics);
+        } finally {
+            pool.shutdown();
+        }
     }
 }
@@ -0,0 +1,102 @@
+package mesh;
+
+/**
+ * Transfinite interpolation using the precomputed blending weights.
+ *
+ * Along a line of constant xi and eta the interpolated point is
+ * <pre>
+ * x(k) = a0 x_xi0(k) + a1 x_xi1(k) + b0 x_eta0(k) + b1 x_eta1(k)
+ *      - (a0 b0 x_00(k) + a0 b1 x_01(k) + a1 b0 x_10(k) + a1 b1 x_11(k))
+ *      + c0(k) bottom + c1(k) top
+ * </pre>
+ * where a, b and c are the xi, eta and zeta weights, x_ab(k) are the four
+ * edges changing in zeta, and <code>bottom</code> and <code>top</code>
+ * collect the zeta face point, the eta-zeta and xi-zeta edge points and the
+ * corner points of the faces zeta = 0 and zeta = 1. The last two do not change
+ * along the line and are computed once per line.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+class BlendedKernel {
+
+    private BlendedKernel() {
+    }
+
+    static void interpolate(BoundaryFaces faces, int i, int j,
+            int kStart, int kEnd, StructuredGrid out, int offset) {
+        interpolate(faces, faces.xi0.x, faces.xi1.x, faces.eta0.x, faces.eta1.x,
+                faces.zeta0.x, faces.zeta1.x, i, j, kStart, kEnd, out.x, offset);
+        interpolate(faces, faces.xi0.y, faces.xi1.y, faces.eta0.y, faces.eta1.y,
+                faces.zeta0.y, faces.zeta1.y, i, j, kStart, kEnd, out.y, offset);
+        interpolate(faces, faces.xi0.z, faces.xi1.z, faces.eta0.z, faces.eta1.z,
+                faces.zeta0.z, faces.zeta1.z, i, j, kStart, kEnd, out.z, offset);
+    }
+
+    private static void interpolate(BoundaryFaces faces,
+            double[] xi0, double[] xi1, double[] eta0, double[] eta1,
+            double[] zeta0, double[] zeta1,
+            int i, int j, int kStart, int kEnd, double[] out, int offset) {
+        int numEtaPoints = faces.numEtaPoints();
+        int numZetaPoints = faces.numZetaPoints();
+        int etaEnd = numEtaPoints - 1;
+
+        double a0 = faces.xiWeight0[i];
+        double a1 = faces.xiWeight1[i];
+        double b0 = faces.etaWeight0[j];
+        double b1 = faces.etaWeight1[j];
+        double a0b0 = a0 * b0;
+        double a0b1 = a0 * b1;
+        double a1b0 = a1 * b0;
+        double a1b1 = a1 * b1;
+
+        double bottom = zetaFaceTerm(faces, zeta0, i, j);
+        double top = zetaFaceTerm(faces, zeta1, i, j);
+
+        // Start of the lines on the xi faces (eta, zeta) and eta faces (xi, zeta)
+        int xiLine = j * numZetaPoints;
+        int xiLineEtaEnd = etaEnd * numZetaPoints;
+        int etaLine = i * numZetaPoints;
+
+        double[] c0 = faces.zetaWeight0;
+        double[] c1 = faces.zetaWeight1;
+        for (int k = kStart, n = offset; k < kEnd; k++, n++) {
+            out[n] = a0 * xi0[xiLine + k] + a1 * xi1[xiLine + k]
+                    + b0 * eta0[etaLine + k] + b1 * eta1[etaLine + k]
+                    - (a0b0 * xi0[k] + a0b1 * xi0[xiLineEtaEnd + k]
+                    + a1b0 * xi1[k] + a1b1 * xi1[xiLineEtaEnd + k])
+                    + c0[k] * bottom + c1[k] * top;
+        }
+    }
+
+    /**
+     * Collects the contributions of a zeta face to the line (i, j): the face
+     * point, the eta-zeta and xi-zeta edge points and the corner points.
+     */
+    static double zetaFaceTerm(BoundaryFaces faces, double[] zetaFace, int i, int j) {
+        int numEtaPoints = faces.numEtaPoints();
+        int xiEnd = faces.numXiPoints() - 1;
+        int etaEnd = numEtaPoints - 1;
+
+        double a0 = faces.xiWeight0[i];
+        double a1 = faces.xiWeight1[i];
+        double b0 = faces.etaWeight0[j];
+        double b1 = faces.etaWeight1[j];
+
+        // Locations on the zeta face (xi, eta)
+        int ij = i * numEtaPoints + j;
+        int i0 = i * numEtaPoints;
+        int iEnd = i * numEtaPoints + etaEnd;
+        int j0 = j;
+        int jEnd = xiEnd * numEtaPoints + j;
+        int corner00 = 0;
+        int corner01 = etaEnd;
+        int corner10 = xiEnd * numEtaPoints;
+        int corner11 = xiEnd * numEtaPoints + etaEnd;
+
+        return zetaFace[ij]
+                - b0 * zetaFace[i0] - b1 * zetaFace[iEnd]
+                - a0 * zetaFace[j0] - a1 * zetaFace[jEnd]
+                + a0 * b0 * zetaFace[corner00] + a0 * b1 * zetaFace[corner01]
+                + a1 * b0 * zetaFace[corner10] + a1 * b1 * zetaFace[corner11];
+    }
+}
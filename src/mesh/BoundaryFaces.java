@@ -0,0 +1,191 @@
+package mesh;
+
+/**
+ * The six interpolated boundary faces of a volume together with the 1-D
+ * blending weights of the three directions. Everything in the interior of the
+ * volume is computed from these, so they are all that needs to be kept in
+ * memory during the volume interpolation. The blended xi faces of the
+ * vectorized kernel are only computed when that kernel first asks for them.
+ *
+ * The points on the edges and corners are shared by more than one face. They
+ * are taken from the zeta faces first, then from the eta faces and lastly from
+ * the xi faces, so that every face holds the same value for a shared point.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class BoundaryFaces {
+
+    private final int numXiPoints;
+    private final int numEtaPoints;
+    private final int numZetaPoints;
+
+    // indexed as (eta, zeta)
+    final StructuredGrid xi0, xi1;
+    // indexed as (xi, zeta)
+    final StructuredGrid eta0, eta1;
+    // indexed as (xi, eta)
+    final StructuredGrid zeta0, zeta1;
+    // xi faces minus the eta blend of their zeta changing edges,
+    // indexed as (eta, zeta), computed on first use
+    private volatile StructuredGrid[] xiBlends;
+
+    // Blending weights: weight1 is the parameter value and weight0 = 1 - weight1
+    final double[] xiWeight0, xiWeight1;
+    final double[] etaWeight0, etaWeight1;
+    final double[] zetaWeight0, zetaWeight1;
+
+    /**
+     * @param xi0 interpolated face xi = 0, indexed as (eta, zeta)
+     * @param xi1 interpolated face xi = 1, indexed as (eta, zeta)
+     * @param eta0 interpolated face eta = 0, indexed as (xi, zeta)
+     * @param eta1 interpolated face eta = 1, indexed as (xi, zeta)
+     * @param zeta0 interpolated face zeta = 0, indexed as (xi, eta)
+     * @param zeta1 interpolated face zeta = 1, indexed as (xi, eta)
+     * @throws IllegalArgumentException if the faces are not surface grids
+     * stored with zeta changing fastest, have fewer than two points in a
+     * direction or do not fit together
+     */
+    public BoundaryFaces(StructuredGrid xi0, StructuredGrid xi1,
+            StructuredGrid eta0, StructuredGrid eta1,
+            StructuredGrid zeta0, StructuredGrid zeta1) {
+        this.numXiPoints = zeta0.numXiPoints();
+        this.numEtaPoints = zeta0.numEtaPoints();
+        this.numZetaPoints = eta0.numEtaPoints();
+        if (numXiPoints < 2 || numEtaPoints < 2 || numZetaPoints < 2) {
+            throw new IllegalArgumentException("The number of points in each direction must be at least 2.");
+        }
+        checkFace("xi0", xi0, numEtaPoints, numZetaPoints);
+        checkFace("xi1", xi1, numEtaPoints, numZetaPoints);
+        checkFace("eta0", eta0, numXiPoints, numZetaPoints);
+        checkFace("eta1", eta1, numXiPoints, numZetaPoints);
+        checkFace("zeta0", zeta0, numXiPoints, numEtaPoints);
+        checkFace("zeta1", zeta1, numXiPoints, numEtaPoints);
+
+        this.xi0 = copy(xi0);
+        this.xi1 = copy(xi1);
+        this.eta0 = copy(eta0);
+        this.eta1 = copy(eta1);
+        this.zeta0 = zeta0;
+        this.zeta1 = zeta1;
+
+        int etaEnd = numEtaPoints - 1;
+        int zetaEnd = numZetaPoints - 1;
+        int[] xiIndices = {0, numXiPoints - 1};
+        StructuredGrid[] xiFaces = {this.xi0, this.xi1};
+        for (int f = 0; f < 2; f++) {
+            int i = xiIndices[f];
+            StructuredGrid face = xiFaces[f];
+            for (int k = 0; k < numZetaPoints; k++) {
+                copyPoint(eta0, i, k, face, 0, k);
+                copyPoint(eta1, i, k, face, etaEnd, k);
+            }
+            for (int j = 0; j < numEtaPoints; j++) {
+                copyPoint(zeta0, i, j, face, j, 0);
+                copyPoint(zeta1, i, j, face, j, zetaEnd);
+            }
+        }
+        for (int i = 0; i < numXiPoints; i++) {
+            copyPoint(zeta0, i, 0, this.eta0, i, 0);
+            copyPoint(zeta1, i, 0, this.eta0, i, zetaEnd);
+            copyPoint(zeta0, i, etaEnd, this.eta1, i, 0);
+            copyPoint(zeta1, i, etaEnd, this.eta1, i, zetaEnd);
+        }
+
+        xiWeight1 = new double[numXiPoints];
+        xiWeight0 = new double[numXiPoints];
+        fillWeights(xiWeight0, xiWeight1);
+        etaWeight1 = new double[numEtaPoints];
+        etaWeight0 = new double[numEtaPoints];
+        fillWeights(etaWeight0, etaWeight1);
+        zetaWeight1 = new double[numZetaPoints];
+        zetaWeight0 = new double[numZetaPoints];
+        fillWeights(zetaWeight0, zetaWeight1);
+    }
+
+    private static void checkFace(String name, StructuredGrid face, int numAPoints, int numBPoints) {
+        if (face.numXiPoints() != numAPoints || face.numEtaPoints() != numBPoints
+                || face.numZetaPoints() != 1) {
+            throw new IllegalArgumentException(String.format(
+                    "The face %s has %d x %d x %d points instead of %d x %d x 1.", name,
+                    face.numXiPoints(), face.numEtaPoints(), face.numZetaPoints(), numAPoints, numBPoints));
+        }
+        if (face.storageOrder() != StorageOrder.ZETA_FASTEST) {
+            throw new IllegalArgumentException("The face " + name + " must be stored with zeta changing fastest.");
+        }
+    }
+
+    /**
+     * @return the xi faces minus the eta blend of their zeta changing edges,
+     * xi0 first, indexed as (eta, zeta)
+     */
+    StructuredGrid[] xiBlends() {
+        StructuredGrid[] blends = xiBlends;
+        if (blends == null) {
+            synchronized (this) {
+                blends = xiBlends;
+                if (blends == null) {
+                    xiBlends = blends = new StructuredGrid[]{
+                        subtractEdgeBlend(xi0, etaWeight0, etaWeight1),
+                        subtractEdgeBlend(xi1, etaWeight0, etaWeight1)};
+                }
+            }
+        }
+        return blends;
+    }
+
+    public int numXiPoints() {
+        return numXiPoints;
+    }
+
+    public int numEtaPoints() {
+        return numEtaPoints;
+    }
+
+    public int numZetaPoints() {
+        return numZetaPoints;
+    }
+
+    private static StructuredGrid copy(StructuredGrid face) {
+        StructuredGrid copy = new StructuredGrid(
+                face.numXiPoints(), face.numEtaPoints(), face.numZetaPoints());
+        System.arraycopy(face.x, 0, copy.x, 0, face.numPoints());
+        System.arraycopy(face.y, 0, copy.y, 0, face.numPoints());
+        System.arraycopy(face.z, 0, copy.z, 0, face.numPoints());
+
+        return copy;
+    }
+
+    private static void copyPoint(StructuredGrid from, int fa, int fb,
+            StructuredGrid to, int ta, int tb) {
+        int fromIndex = from.index(fa, fb, 0);
+        to.set(ta, tb, 0, from.x[fromIndex], from.y[fromIndex], from.z[fromIndex]);
+    }
+
+    private static StructuredGrid subtractEdgeBlend(StructuredGrid xiFace,
+            double[] etaWeight0, double[] etaWeight1) {
+        int numEtaPoints = xiFace.numXiPoints();
+        int numZetaPoints = xiFace.numEtaPoints();
+        StructuredGrid blend = new StructuredGrid(numEtaPoints, numZetaPoints, 1);
+        int edgeEnd = (numEtaPoints - 1) * numZetaPoints;
+        for (int j = 0; j < numEtaPoints; j++) {
+            double b0 = etaWeight0[j];
+            double b1 = etaWeight1[j];
+            int line = j * numZetaPoints;
+            for (int k = 0; k < numZetaPoints; k++) {
+                blend.x[line + k] = xiFace.x[line + k] - b0 * xiFace.x[k] - b1 * xiFace.x[edgeEnd + k];
+                blend.y[line + k] = xiFace.y[line + k] - b0 * xiFace.y[k] - b1 * xiFace.y[edgeEnd + k];
+                blend.z[line + k] = xiFace.z[line + k] - b0 * xiFace.z[k] - b1 * xiFace.z[edgeEnd + k];
+            }
+        }
+
+        return blend;
+    }
+
+    private static void fillWeights(double[] weight0, double[] weight1) {
+        double d = 1.0 / (weight1.length - 1);
+        for (int n = 0; n < weight1.length; n++) {
+            weight1[n] = n * d;
+            weight0[n] = 1 - weight1[n];
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package mesh;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Flag through which a long running generation or write is asked to stop.
+ * The work checks the flag regularly and stops with a
+ * {@link CancellationException} soon after {@link #cancel()} is called, from
+ * any thread.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class CancellationToken {
+
+    private volatile boolean cancelled;
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @throws CancellationException if the token has been cancelled
+     */
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException("The mesh generation has been cancelled.");
+        }
+    }
+}
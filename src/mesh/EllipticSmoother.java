@@ -0,0 +1,223 @@
+package mesh;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+import util.PhaseEvent;
+
+/**
+ * Smooths a grid by iterating the Winslow equations, starting from the grid
+ * itself, usually the result of the transfinite interpolation. The boundary
+ * points are kept fixed; the kinks of the boundaries, which the interpolation
+ * carries straight into the interior, are smoothed out and folded cells on
+ * strongly curved geometries are usually untangled.
+ *
+ * The Winslow equations, with the cofactors a of the metric tensor,
+ * <pre>
+ * a11 r_xixi + a22 r_etaeta + a33 r_zetazeta
+ *         + 2 (a12 r_xieta + a13 r_xizeta + a23 r_etazeta) = 0
+ * </pre>
+ * are discretized with central differences and solved by successive over
+ * relaxation. The cross derivatives couple a point to its diagonal
+ * neighbours, which a point-wise red-black ordering would update at the same
+ * time, so the planes of constant xi are coloured instead: all odd planes are
+ * relaxed in parallel, then all even planes, each plane by a single thread.
+ * A plane reads only its own points and those of the two neighbouring planes
+ * of the other colour, so the sweeps are free of races and the result does
+ * not depend on the number of threads. The grid is updated in place and no
+ * memory is allocated per point.
+ *
+ * The residual of a sweep is the largest distance by which a point would be
+ * moved without relaxation. The iterations stop when it has dropped below
+ * the tolerance times the residual of the first sweep, or after the maximum
+ * number of iterations.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class EllipticSmoother {
+
+    private final int maxIterations;
+    private final double tolerance;
+    private final double relaxation;
+
+    /**
+     * @param maxIterations largest number of sweeps
+     * @param tolerance residual relative to the first sweep at which the
+     * iterations stop
+     * @param relaxation over relaxation factor, between 0 and 2
+     */
+    public EllipticSmoother(int maxIterations, double tolerance, double relaxation) {
+        if (maxIterations < 1) {
+            throw new IllegalArgumentException("The number of iterations must be at least 1.");
+        }
+        if (!(tolerance >= 0.0)) {
+            throw new IllegalArgumentException("The tolerance must not be negative.");
+        }
+        if (!(relaxation > 0.0 && relaxation < 2.0)) {
+            throw new IllegalArgumentException("The relaxation factor must be between 0 and 2.");
+        }
+        this.maxIterations = maxIterations;
+        this.tolerance = tolerance;
+        this.relaxation = relaxation;
+    }
+
+    /**
+     * Smooths the grid in place.
+     *
+     * @param grid grid to be smoothed, e.g. from
+     * {@link TransfiniteInterpolation#interpolate(geom.Geometry, TfiKernel, ForkJoinPool)}
+     * @param pool pool in which the sweeps are run
+     * @return the residual of every sweep
+     */
+    public SmoothingResult smooth(StructuredGrid grid, ForkJoinPool pool) {
+        return smooth(grid, pool, ProgressMonitor.NONE);
+    }
+
+    /**
+     * Same as {@link #smooth(StructuredGrid, ForkJoinPool)}, reporting the
+     * progress of the sweeps to the monitor. A cancelled smoothing leaves the
+     * grid partially smoothed.
+     *
+     * @param grid grid to be smoothed
+     * @param pool pool in which the sweeps are run
+     * @param monitor receiver of the progress and source of cancellation
+     * @return the residual of every sweep
+     * @throws java.util.concurrent.CancellationException if the monitor is
+     * cancelled
+     */
+    public SmoothingResult smooth(StructuredGrid grid, ForkJoinPool pool, ProgressMonitor monitor) {
+        return pool.invoke(ForkJoinTask.adapt(() -> smooth(grid, monitor)));
+    }
+
+    private SmoothingResult smooth(StructuredGrid grid, ProgressMonitor monitor) {
+        int numXiPoints = grid.numXiPoints();
+        int numEtaPoints = grid.numEtaPoints();
+        int numZetaPoints = grid.numZetaPoints();
+        if (numXiPoints < 3 || numEtaPoints < 3 || numZetaPoints < 3) {
+            // no interior points
+            return new SmoothingResult(new double[0], true);
+        }
+        long pointsPerPlane = (long) (numEtaPoints - 2) * (numZetaPoints - 2);
+        long pointsPerSweep = (numXiPoints - 2) * pointsPerPlane;
+        monitor.begin("Elliptic smoothing", maxIterations * pointsPerSweep,
+                pointsPerPlane);
+        PhaseEvent event = PhaseEvent.begin("Elliptic smoothing").parallel();
+
+        double[] residuals = new double[maxIterations];
+        int iterations = 0;
+        boolean converged = false;
+        while (iterations < maxIterations && !converged) {
+            double residual = 0.0;
+            for (int colour = 1; colour <= 2; colour++) {
+                int firstPlane = colour;
+                residual = Math.max(residual, IntStream.range(0, (numXiPoints - colour) / 2)
+                        .parallel()
+                        .mapToDouble(n -> {
+                            double planeResidual = relaxPlane(grid, firstPlane + 2 * n);
+                            monitor.completed(pointsPerPlane);
+                            return planeResidual;
+                        })
+                        .max().orElse(0.0));
+            }
+            residuals[iterations++] = residual;
+            converged = residual <= tolerance * residuals[0];
+        }
+        monitor.done();
+        event.finish(iterations * pointsPerSweep, 0);
+
+        double[] history = new double[iterations];
+        System.arraycopy(residuals, 0, history, 0, iterations);
+        return new SmoothingResult(history, converged);
+    }
+
+    /**
+     * Relaxes the interior points of the plane xi = i in place.
+     *
+     * @return the largest distance by which a point would have moved without
+     * relaxation
+     */
+    private double relaxPlane(StructuredGrid grid, int i) {
+        double[] x = grid.x;
+        double[] y = grid.y;
+        double[] z = grid.z;
+        int sXi = grid.index(1, 0, 0) - grid.index(0, 0, 0);
+        int sEta = grid.index(0, 1, 0) - grid.index(0, 0, 0);
+        int sZeta = grid.index(0, 0, 1) - grid.index(0, 0, 0);
+        double maxCorrection = 0.0;
+        for (int j = 1; j < grid.numEtaPoints() - 1; j++) {
+            int p = grid.index(i, j, 1);
+            for (int k = 1; k < grid.numZetaPoints() - 1; k++, p += sZeta) {
+                // first derivatives
+                double xXi = 0.5 * (x[p + sXi] - x[p - sXi]);
+                double yXi = 0.5 * (y[p + sXi] - y[p - sXi]);
+                double zXi = 0.5 * (z[p + sXi] - z[p - sXi]);
+                double xEta = 0.5 * (x[p + sEta] - x[p - sEta]);
+                double yEta = 0.5 * (y[p + sEta] - y[p - sEta]);
+                double zEta = 0.5 * (z[p + sEta] - z[p - sEta]);
+                double xZeta = 0.5 * (x[p + sZeta] - x[p - sZeta]);
+                double yZeta = 0.5 * (y[p + sZeta] - y[p - sZeta]);
+                double zZeta = 0.5 * (z[p + sZeta] - z[p - sZeta]);
+
+                // metric tensor and its cofactors
+                double g11 = xXi * xXi + yXi * yXi + zXi * zXi;
+                double g22 = xEta * xEta + yEta * yEta + zEta * zEta;
+                double g33 = xZeta * xZeta + yZeta * yZeta + zZeta * zZeta;
+                double g12 = xXi * xEta + yXi * yEta + zXi * zEta;
+                double g13 = xXi * xZeta + yXi * yZeta + zXi * zZeta;
+                double g23 = xEta * xZeta + yEta * yZeta + zEta * zZeta;
+                double a11 = g22 * g33 - g23 * g23;
+                double a22 = g11 * g33 - g13 * g13;
+                double a33 = g11 * g22 - g12 * g12;
+                double a12 = g13 * g23 - g12 * g33;
+                double a13 = g12 * g23 - g13 * g22;
+                double a23 = g12 * g13 - g11 * g23;
+                double diagonal = 2 * (a11 + a22 + a33);
+                if (!(diagonal > 0.0)) {
+                    // collapsed point, e.g. on a degenerate edge
+                    continue;
+                }
+                // the cross derivatives carry a factor 1/4, with the 2 of the equation
+                double b12 = 0.5 * a12;
+                double b13 = 0.5 * a13;
+                double b23 = 0.5 * a23;
+
+                double newX = (a11 * (x[p + sXi] + x[p - sXi])
+                        + a22 * (x[p + sEta] + x[p - sEta])
+                        + a33 * (x[p + sZeta] + x[p - sZeta])
+                        + b12 * cross(x, p, sXi, sEta)
+                        + b13 * cross(x, p, sXi, sZeta)
+                        + b23 * cross(x, p, sEta, sZeta)) / diagonal;
+                double newY = (a11 * (y[p + sXi] + y[p - sXi])
+                        + a22 * (y[p + sEta] + y[p - sEta])
+                        + a33 * (y[p + sZeta] + y[p - sZeta])
+                        + b12 * cross(y, p, sXi, sEta)
+                        + b13 * cross(y, p, sXi, sZeta)
+                        + b23 * cross(y, p, sEta, sZeta)) / diagonal;
+                double newZ = (a11 * (z[p + sXi] + z[p - sXi])
+                        + a22 * (z[p + sEta] + z[p - sEta])
+                        + a33 * (z[p + sZeta] + z[p - sZeta])
+                        + b12 * cross(z, p, sXi, sEta)
+                        + b13 * cross(z, p, sXi, sZeta)
+                        + b23 * cross(z, p, sEta, sZeta)) / diagonal;
+
+                double dx = newX - x[p];
+                double dy = newY - y[p];
+                double dz = newZ - z[p];
+                maxCorrection = Math.max(maxCorrection, Math.sqrt(dx * dx + dy * dy + dz * dz));
+                x[p] += relaxation * dx;
+                y[p] += relaxation * dy;
+                z[p] += relaxation * dz;
+            }
+        }
+
+        return maxCorrection;
+    }
+
+    /**
+     * Four times the mixed second difference in the directions with strides
+     * s and t.
+     */
+    private static double cross(double[] c, int p, int s, int t) {
+        return c[p + s + t] - c[p + s - t] - c[p - s + t] + c[p - s - t];
+    }
+}
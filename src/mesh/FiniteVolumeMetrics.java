@@ -0,0 +1,231 @@
+package mesh;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+import util.PhaseEvent;
+
+/**
+ * Geometric quantities of the cells and faces of a volume grid needed by a
+ * finite volume solver: the area vector and centroid of every face and the
+ * volume and centroid of every cell.
+ *
+ * Every face is computed once and shared by the two cells on either side.
+ * The area vector of a face is half the cross product of its diagonals, which
+ * is exact for the bilinear face through the four corners, and points in the
+ * direction of increasing index (for a right-handed grid); the centroid of a
+ * face is the mean of its corners. The cells are then built from their six
+ * faces only: a cell is split into six pyramids with a common apex at the mean
+ * of the corners, and its volume and centroid are those of the pyramids
+ * together.
+ *
+ * The faces normal to xi are indexed (i, j, k) with i from 0 to
+ * numXiPoints - 1 and j, k over the cells; likewise for eta and zeta. The
+ * cells and all faces are stored with zeta changing fastest.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class FiniteVolumeMetrics {
+
+    private final int numXiCells;
+    private final int numEtaCells;
+    private final int numZetaCells;
+
+    private final double[] cellVolumes;
+    private final StructuredGrid cellCentroids;
+    private final StructuredGrid xiFaceAreas, xiFaceCentroids;
+    private final StructuredGrid etaFaceAreas, etaFaceCentroids;
+    private final StructuredGrid zetaFaceAreas, zetaFaceCentroids;
+
+    private FiniteVolumeMetrics(int numXiCells, int numEtaCells, int numZetaCells) {
+        this.numXiCells = numXiCells;
+        this.numEtaCells = numEtaCells;
+        this.numZetaCells = numZetaCells;
+        this.cellCentroids = new StructuredGrid(numXiCells, numEtaCells, numZetaCells);
+        this.cellVolumes = new double[cellCentroids.numPoints()];
+        this.xiFaceAreas = new StructuredGrid(numXiCells + 1, numEtaCells, numZetaCells);
+        this.xiFaceCentroids = new StructuredGrid(numXiCells + 1, numEtaCells, numZetaCells);
+        this.etaFaceAreas = new StructuredGrid(numXiCells, numEtaCells + 1, numZetaCells);
+        this.etaFaceCentroids = new StructuredGrid(numXiCells, numEtaCells + 1, numZetaCells);
+        this.zetaFaceAreas = new StructuredGrid(numXiCells, numEtaCells, numZetaCells + 1);
+        this.zetaFaceCentroids = new StructuredGrid(numXiCells, numEtaCells, numZetaCells + 1);
+    }
+
+    /**
+     * Computes the metrics of all the faces and cells of a grid, first the
+     * faces and then the cells, each plane by plane in parallel.
+     *
+     * @param grid volume grid with at least two points in each direction
+     * @param pool pool in which the metrics are computed
+     * @return the metrics of the grid
+     */
+    public static FiniteVolumeMetrics compute(StructuredGrid grid, ForkJoinPool pool) {
+        if (grid.numXiPoints() < 2 || grid.numEtaPoints() < 2 || grid.numZetaPoints() < 2) {
+            throw new IllegalArgumentException("The number of points in each direction must be at least 2.");
+        }
+        FiniteVolumeMetrics metrics = new FiniteVolumeMetrics(
+                grid.numXiPoints() - 1, grid.numEtaPoints() - 1, grid.numZetaPoints() - 1);
+        PhaseEvent event = PhaseEvent.begin("Finite volume metrics").parallel();
+        pool.invoke(ForkJoinTask.adapt(() -> {
+            IntStream.range(0, metrics.numXiCells + 1).parallel().forEach(i -> metrics.computeFaces(grid, i));
+            IntStream.range(0, metrics.numXiCells).parallel().forEach(metrics::computeCells);
+        }));
+        event.finish(grid.numPoints(), 0);
+
+        return metrics;
+    }
+
+    /**
+     * Computes the xi faces of the plane i and, except for the last plane,
+     * the eta and zeta faces between the planes i and i + 1.
+     */
+    private void computeFaces(StructuredGrid grid, int i) {
+        for (int j = 0; j < numEtaCells + 1; j++) {
+            for (int k = 0; k < numZetaCells + 1; k++) {
+                if (j < numEtaCells && k < numZetaCells) {
+                    // normal to xi, spanned by eta and zeta
+                    face(grid, grid.index(i, j, k), grid.index(i, j + 1, k + 1),
+                            grid.index(i, j + 1, k), grid.index(i, j, k + 1),
+                            xiFaceAreas, xiFaceCentroids, xiFaceAreas.index(i, j, k));
+                }
+                if (i < numXiCells && k < numZetaCells) {
+                    // normal to eta, spanned by zeta and xi
+                    face(grid, grid.index(i, j, k), grid.index(i + 1, j, k + 1),
+                            grid.index(i, j, k + 1), grid.index(i + 1, j, k),
+                            etaFaceAreas, etaFaceCentroids, etaFaceAreas.index(i, j, k));
+                }
+                if (i < numXiCells && j < numEtaCells) {
+                    // normal to zeta, spanned by xi and eta
+                    face(grid, grid.index(i, j, k), grid.index(i + 1, j + 1, k),
+                            grid.index(i + 1, j, k), grid.index(i, j + 1, k),
+                            zetaFaceAreas, zetaFaceCentroids, zetaFaceAreas.index(i, j, k));
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the face with the corners p00 and p11 at the ends of one
+     * diagonal and p10 and p01 at the ends of the other, where p10 lies in
+     * the first direction spanning the face from p00.
+     */
+    private static void face(StructuredGrid grid, int p00, int p11, int p10, int p01,
+            StructuredGrid areas, StructuredGrid centroids, int face) {
+        double[] x = grid.x;
+        double[] y = grid.y;
+        double[] z = grid.z;
+        double d1x = x[p11] - x[p00], d1y = y[p11] - y[p00], d1z = z[p11] - z[p00];
+        double d2x = x[p01] - x[p10], d2y = y[p01] - y[p10], d2z = z[p01] - z[p10];
+        areas.x[face] = 0.5 * (d1y * d2z - d1z * d2y);
+        areas.y[face] = 0.5 * (d1z * d2x - d1x * d2z);
+        areas.z[face] = 0.5 * (d1x * d2y - d1y * d2x);
+        centroids.x[face] = 0.25 * (x[p00] + x[p11] + x[p10] + x[p01]);
+        centroids.y[face] = 0.25 * (y[p00] + y[p11] + y[p10] + y[p01]);
+        centroids.z[face] = 0.25 * (z[p00] + z[p11] + z[p10] + z[p01]);
+    }
+
+    /**
+     * Computes the cells of the plane i from their faces.
+     */
+    private void computeCells(int i) {
+        int[] faces = new int[6];
+        double[] sign = {-1, 1, -1, 1, -1, 1};
+        StructuredGrid[] areas = {
+            xiFaceAreas, xiFaceAreas, etaFaceAreas, etaFaceAreas, zetaFaceAreas, zetaFaceAreas
+        };
+        StructuredGrid[] centroids = {
+            xiFaceCentroids, xiFaceCentroids, etaFaceCentroids, etaFaceCentroids,
+            zetaFaceCentroids, zetaFaceCentroids
+        };
+        for (int j = 0; j < numEtaCells; j++) {
+            for (int k = 0; k < numZetaCells; k++) {
+                faces[0] = xiFaceAreas.index(i, j, k);
+                faces[1] = xiFaceAreas.index(i + 1, j, k);
+                faces[2] = etaFaceAreas.index(i, j, k);
+                faces[3] = etaFaceAreas.index(i, j + 1, k);
+                faces[4] = zetaFaceAreas.index(i, j, k);
+                faces[5] = zetaFaceAreas.index(i, j, k + 1);
+
+                // the mean of the face centroids is the mean of the corners
+                double apexX = 0.0, apexY = 0.0, apexZ = 0.0;
+                for (int f = 0; f < 6; f++) {
+                    apexX += centroids[f].x[faces[f]];
+                    apexY += centroids[f].y[faces[f]];
+                    apexZ += centroids[f].z[faces[f]];
+                }
+                apexX /= 6;
+                apexY /= 6;
+                apexZ /= 6;
+
+                double volume = 0.0, momentX = 0.0, momentY = 0.0, momentZ = 0.0;
+                for (int f = 0; f < 6; f++) {
+                    int face = faces[f];
+                    double hx = centroids[f].x[face] - apexX;
+                    double hy = centroids[f].y[face] - apexY;
+                    double hz = centroids[f].z[face] - apexZ;
+                    double pyramid = sign[f] / 3 * (areas[f].x[face] * hx
+                            + areas[f].y[face] * hy + areas[f].z[face] * hz);
+                    volume += pyramid;
+                    momentX += pyramid * (apexX + 0.75 * hx);
+                    momentY += pyramid * (apexY + 0.75 * hy);
+                    momentZ += pyramid * (apexZ + 0.75 * hz);
+                }
+                int cell = cellCentroids.index(i, j, k);
+                cellVolumes[cell] = volume;
+                if (volume != 0.0) {
+                    cellCentroids.set(i, j, k, momentX / volume, momentY / volume, momentZ / volume);
+                } else {
+                    cellCentroids.set(i, j, k, apexX, apexY, apexZ);
+                }
+            }
+        }
+    }
+
+    public int numXiCells() {
+        return numXiCells;
+    }
+
+    public int numEtaCells() {
+        return numEtaCells;
+    }
+
+    public int numZetaCells() {
+        return numZetaCells;
+    }
+
+    /**
+     * @return the volume of every cell, at the index of the cell in
+     * {@link #cellCentroids()}; negative for an inverted cell
+     */
+    public double[] cellVolumes() {
+        return cellVolumes;
+    }
+
+    public StructuredGrid cellCentroids() {
+        return cellCentroids;
+    }
+
+    public StructuredGrid xiFaceAreas() {
+        return xiFaceAreas;
+    }
+
+    public StructuredGrid xiFaceCentroids() {
+        return xiFaceCentroids;
+    }
+
+    public StructuredGrid etaFaceAreas() {
+        return etaFaceAreas;
+    }
+
+    public StructuredGrid etaFaceCentroids() {
+        return etaFaceCentroids;
+    }
+
+    public StructuredGrid zetaFaceAreas() {
+        return zetaFaceAreas;
+    }
+
+    public StructuredGrid zetaFaceCentroids() {
+        return zetaFaceCentroids;
+    }
+}
@@ -0,0 +1,137 @@
+package mesh;
+
+import java.io.IOException;
+import java.util.stream.IntStream;
+
+/**
+ * Structured grid of points stored in single precision, in the same layout
+ * as {@link StructuredGrid}, which takes half the memory of a double grid.
+ *
+ * The grid is filled by the slab-wise interpolation, to which it is a
+ * {@link SlabSink}: every slab is computed in double precision and rounded to
+ * float as it is stored. The largest difference caused by the rounding is
+ * kept, see {@link #maxDeviation()}. The grid is read by the writers through
+ * {@link #writeTo(SlabSink, int)}.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class FloatGrid implements SlabSink {
+
+    private final int numXiPoints;
+    private final int numEtaPoints;
+    private final int numZetaPoints;
+
+    public final float[] x, y, z;
+
+    private double maxDeviation;
+
+    public FloatGrid(int numXiPoints, int numEtaPoints, int numZetaPoints) {
+        if (numXiPoints < 1 || numEtaPoints < 1 || numZetaPoints < 1) {
+            throw new IllegalArgumentException("The number of points in each direction must be at least 1.");
+        }
+        long numPoints = (long) numXiPoints * numEtaPoints * numZetaPoints;
+        if (numPoints > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(
+                    "The grid has " + numPoints + " points, which exceeds the array size limit.");
+        }
+
+        this.numXiPoints = numXiPoints;
+        this.numEtaPoints = numEtaPoints;
+        this.numZetaPoints = numZetaPoints;
+
+        this.x = new float[(int) numPoints];
+        this.y = new float[(int) numPoints];
+        this.z = new float[(int) numPoints];
+    }
+
+    public int numXiPoints() {
+        return numXiPoints;
+    }
+
+    public int numEtaPoints() {
+        return numEtaPoints;
+    }
+
+    public int numZetaPoints() {
+        return numZetaPoints;
+    }
+
+    public int numPoints() {
+        return x.length;
+    }
+
+    public int index(int i, int j, int k) {
+        return (i * numEtaPoints + j) * numZetaPoints + k;
+    }
+
+    /**
+     * @return the largest absolute difference of a coordinate from its
+     * double precision value, over all the points stored so far
+     */
+    public double maxDeviation() {
+        return maxDeviation;
+    }
+
+    @Override
+    public SlabDirection slabDirection() {
+        return SlabDirection.XI;
+    }
+
+    /**
+     * Rounds a slab of constant xi to float and stores it. The slabs may
+     * arrive in any order.
+     */
+    @Override
+    public void accept(StructuredGrid slab, int start) {
+        if (slab.numEtaPoints() != numEtaPoints || slab.numZetaPoints() != numZetaPoints
+                || start + slab.numXiPoints() > numXiPoints) {
+            throw new IllegalArgumentException("The slab does not fit in the grid.");
+        }
+        if (slab.storageOrder() != StorageOrder.ZETA_FASTEST) {
+            throw new IllegalArgumentException("The slab must be stored with zeta changing fastest.");
+        }
+        int first = index(start, 0, 0);
+        double slabDeviation = IntStream.range(0, slab.numXiPoints() * numEtaPoints).parallel()
+                .mapToDouble(line -> {
+                    double deviation = 0.0;
+                    int from = line * numZetaPoints;
+                    for (int n = from; n < from + numZetaPoints; n++) {
+                        x[first + n] = (float) slab.x[n];
+                        y[first + n] = (float) slab.y[n];
+                        z[first + n] = (float) slab.z[n];
+                        deviation = Math.max(deviation, Math.abs(x[first + n] - slab.x[n]));
+                        deviation = Math.max(deviation, Math.abs(y[first + n] - slab.y[n]));
+                        deviation = Math.max(deviation, Math.abs(z[first + n] - slab.z[n]));
+                    }
+                    return deviation;
+                })
+                .max().orElse(0.0);
+        maxDeviation = Math.max(maxDeviation, slabDeviation);
+    }
+
+    /**
+     * Passes the whole grid to the sink, one slab at a time in double
+     * precision, in the direction the sink asks for.
+     *
+     * @param sink receiver of the slabs, e.g. a mesh writer
+     * @param slabSize number of planes in each slab
+     * @throws IOException if the sink fails to write a slab
+     */
+    public void writeTo(SlabSink sink, int slabSize) throws IOException {
+        SlabReader.writeTo(this::read, numXiPoints, numEtaPoints, numZetaPoints, sink, slabSize);
+    }
+
+    private void read(StructuredGrid slab, int iStart, int kStart) {
+        int slabEta = slab.numEtaPoints();
+        int slabZeta = slab.numZetaPoints();
+        IntStream.range(0, slab.numXiPoints() * slabEta).parallel().forEach(line -> {
+            int from = index(iStart + line / slabEta, line % slabEta, kStart);
+            int to = line * slabZeta;
+            for (int k = 0; k < slabZeta; k++) {
+                slab.x[to + k] = x[from + k];
+                slab.y[to + k] = y[from + k];
+                slab.z[to + k] = z[from + k];
+            }
+        });
+    }
+}
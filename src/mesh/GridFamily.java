@@ -0,0 +1,122 @@
+package mesh;
+
+import geom.Geometry;
+import geom.ParametricGeometry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+
+/**
+ * Nested grids with spacing h, 2h, 4h, ..., as needed for grid convergence
+ * studies or as multigrid levels. Only the finest grid is interpolated; every
+ * coarser grid is obtained by injection, i.e. by taking every second point of
+ * the next finer grid, so the coarse points coincide exactly with fine points.
+ *
+ * For this, the number of points in each direction must be of the form
+ * <code>n = 2^(numLevels - 1) * m + 1</code>.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class GridFamily {
+
+    private final StructuredGrid[] levels;
+
+    private GridFamily(StructuredGrid[] levels) {
+        this.levels = levels;
+    }
+
+    /**
+     * Samples the geometry at the finest resolution and generates the family.
+     *
+     * @param geom geometry to be meshed
+     * @param numXiPoints number of points of the finest grid in xi direction
+     * @param numEtaPoints number of points of the finest grid in eta direction
+     * @param numZetaPoints number of points of the finest grid in zeta
+     * direction
+     * @param numLevels number of grids in the family, including the finest
+     * @param kernel kernel used for the interior points
+     * @param pool pool in which the grids are computed
+     * @return the family of grids
+     */
+    public static GridFamily generate(ParametricGeometry geom,
+            int numXiPoints, int numEtaPoints, int numZetaPoints, int numLevels,
+            TfiKernel kernel, ForkJoinPool pool) {
+        checkSizes(numXiPoints, numEtaPoints, numZetaPoints, numLevels);
+        return generate(geom.sample(numXiPoints, numEtaPoints, numZetaPoints), numLevels, kernel, pool);
+    }
+
+    /**
+     * Generates the family from a geometry sampled at the finest resolution.
+     *
+     * @param finest geometry sampled for the finest grid
+     * @param numLevels number of grids in the family, including the finest
+     * @param kernel kernel used for the interior points
+     * @param pool pool in which the grids are computed
+     * @return the family of grids
+     */
+    public static GridFamily generate(Geometry finest, int numLevels,
+            TfiKernel kernel, ForkJoinPool pool) {
+        checkSizes(finest.numXiPoints(), finest.numEtaPoints(), finest.numZetaPoints(), numLevels);
+        StructuredGrid[] levels = new StructuredGrid[numLevels];
+        levels[0] = TransfiniteInterpolation.interpolate(finest, kernel, pool);
+        for (int level = 1; level < numLevels; level++) {
+            StructuredGrid fine = levels[level - 1];
+            levels[level] = pool.invoke(ForkJoinTask.adapt(() -> inject(fine)));
+        }
+
+        return new GridFamily(levels);
+    }
+
+    /**
+     * Checks that grids with the given number of points can be coarsened
+     * <code>numLevels - 1</code> times.
+     *
+     * @throws IllegalArgumentException if the sizes are not compatible
+     */
+    public static void checkSizes(int numXiPoints, int numEtaPoints, int numZetaPoints, int numLevels) {
+        if (numLevels < 1 || numLevels > 31) {
+            throw new IllegalArgumentException("The number of levels must be from 1 to 31.");
+        }
+        int factor = 1 << (numLevels - 1);
+        int[] sizes = {numXiPoints, numEtaPoints, numZetaPoints};
+        for (int size : sizes) {
+            if (size < 2 || (size - 1) % factor != 0) {
+                throw new IllegalArgumentException("For " + numLevels + " levels the number of points "
+                        + "in each direction must be of the form " + factor + " * m + 1, but is " + size + ".");
+            }
+        }
+    }
+
+    public int numLevels() {
+        return levels.length;
+    }
+
+    /**
+     * @param level 0 for the finest grid, up to <code>numLevels() - 1</code>
+     * for the coarsest
+     * @return the grid with spacing <code>2^level h</code>
+     */
+    public StructuredGrid level(int level) {
+        return levels[level];
+    }
+
+    private static StructuredGrid inject(StructuredGrid fine) {
+        StructuredGrid coarse = new StructuredGrid((fine.numXiPoints() + 1) / 2,
+                (fine.numEtaPoints() + 1) / 2, (fine.numZetaPoints() + 1) / 2);
+        int numEtaPoints = coarse.numEtaPoints();
+        int numZetaPoints = coarse.numZetaPoints();
+        IntStream.range(0, coarse.numXiPoints() * numEtaPoints).parallel().forEach(line -> {
+            int i = line / numEtaPoints;
+            int j = line % numEtaPoints;
+            int from = fine.index(2 * i, 2 * j, 0);
+            int to = coarse.index(i, j, 0);
+            for (int k = 0; k < numZetaPoints; k++) {
+                coarse.x[to + k] = fine.x[from + 2 * k];
+                coarse.y[to + k] = fine.y[from + 2 * k];
+                coarse.z[to + k] = fine.z[from + 2 * k];
+            }
+        });
+
+        return coarse;
+    }
+}
@@ -0,0 +1,419 @@
+package mesh;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+import util.PhaseEvent;
+
+/**
+ * Quality of the hexahedral cells of a volume grid, see
+ * {@link QualityMetric}. For every measure a histogram and the worst cell are
+ * kept; the values of every cell are kept too if asked for, e.g. to be
+ * written as cell data of a VTK file.
+ *
+ * The quality is computed either for a whole grid with
+ * {@link #analyze(StructuredGrid, ForkJoinPool)}, or slab by slab as a
+ * {@link SlabSink} while the grid is generated or written, in which case only
+ * the last plane of the previous slab is kept. The lines of cells of a slab
+ * are analyzed in parallel; the result does not depend on the number of
+ * threads or on the slab size.
+ *
+ * The cell (i, j, k) has the points (i, j, k) and (i + 1, j + 1, k + 1) as
+ * opposite corners. The cells are numbered with i changing fastest, as in the
+ * VTK files.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class MeshQuality implements SlabSink {
+
+    public static final int NUM_BINS = 20;
+
+    private static final QualityMetric[] METRICS = QualityMetric.values();
+    // corners of the faces xi0, xi1, eta0, eta1, zeta0 and zeta1 in VTK order
+    private static final int[][] FACES = {
+        {0, 3, 7, 4}, {1, 2, 6, 5},
+        {0, 1, 5, 4}, {3, 2, 6, 7},
+        {0, 1, 2, 3}, {4, 5, 6, 7}
+    };
+    // corners of the four xi edges, the four eta edges and the four zeta edges
+    private static final int[][] EDGES = {
+        {0, 1}, {3, 2}, {4, 5}, {7, 6},
+        {0, 3}, {1, 2}, {4, 7}, {5, 6},
+        {0, 4}, {1, 5}, {3, 7}, {2, 6}
+    };
+    // xi, eta and zeta edge meeting at each corner
+    private static final int[][] CORNER_EDGES = {
+        {0, 4, 8}, {0, 5, 9}, {1, 5, 11}, {1, 4, 10},
+        {2, 6, 8}, {2, 7, 9}, {3, 7, 11}, {3, 6, 10}
+    };
+
+    private final int numXiPoints;
+    private final int numEtaPoints;
+    private final int numZetaPoints;
+    private final float[][] cellData;
+    private final StructuredGrid previous;
+    private final Statistics statistics = new Statistics();
+    private int nextPlane;
+
+    /**
+     * @param numXiPoints number of points of the grid in xi direction
+     * @param numEtaPoints number of points of the grid in eta direction
+     * @param numZetaPoints number of points of the grid in zeta direction
+     * @param keepCellData true to keep the values of every cell
+     */
+    public MeshQuality(int numXiPoints, int numEtaPoints, int numZetaPoints, boolean keepCellData) {
+        if (numXiPoints < 2 || numEtaPoints < 2 || numZetaPoints < 2) {
+            throw new IllegalArgumentException("The number of points in each direction must be at least 2.");
+        }
+        long numCells = (long) (numXiPoints - 1) * (numEtaPoints - 1) * (numZetaPoints - 1);
+        if (keepCellData && numCells > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(
+                    "The grid has " + numCells + " cells, which exceeds the array size limit.");
+        }
+        this.numXiPoints = numXiPoints;
+        this.numEtaPoints = numEtaPoints;
+        this.numZetaPoints = numZetaPoints;
+        this.cellData = keepCellData ? new float[METRICS.length][(int) numCells] : null;
+        this.previous = new StructuredGrid(1, numEtaPoints, numZetaPoints);
+    }
+
+    /**
+     * Computes the quality of all the cells of a grid.
+     *
+     * @param grid volume grid
+     * @param pool pool in which the cells are analyzed
+     * @return the quality of the grid, without the values of every cell
+     */
+    public static MeshQuality analyze(StructuredGrid grid, ForkJoinPool pool) {
+        return analyze(grid, pool, false);
+    }
+
+    /**
+     * Computes the quality of all the cells of a grid.
+     *
+     * @param grid volume grid
+     * @param pool pool in which the cells are analyzed
+     * @param keepCellData true to keep the values of every cell
+     * @return the quality of the grid
+     */
+    public static MeshQuality analyze(StructuredGrid grid, ForkJoinPool pool, boolean keepCellData) {
+        MeshQuality quality = new MeshQuality(
+                grid.numXiPoints(), grid.numEtaPoints(), grid.numZetaPoints(), keepCellData);
+        pool.invoke(ForkJoinTask.adapt(() -> quality.accept(grid, 0)));
+        return quality;
+    }
+
+    @Override
+    public SlabDirection slabDirection() {
+        return SlabDirection.XI;
+    }
+
+    @Override
+    public void accept(StructuredGrid slab, int start) {
+        int numPlanes = slab.numXiPoints();
+        if (start != nextPlane || slab.numEtaPoints() != numEtaPoints
+                || slab.numZetaPoints() != numZetaPoints
+                || start + numPlanes > numXiPoints) {
+            throw new IllegalArgumentException("The slab does not continue the mesh.");
+        }
+        PhaseEvent event = PhaseEvent.begin("Mesh quality").parallel();
+        // the cells between the last plane of the previous slab and this slab
+        int numCellPlanes = start == 0 ? numPlanes - 1 : numPlanes;
+        int firstCell = start == 0 ? 0 : start - 1;
+        int numCellLines = numCellPlanes * (numEtaPoints - 1);
+        Statistics slabStatistics = IntStream.range(0, numCellLines).parallel()
+                .collect(Statistics::new, (lineStatistics, line) -> {
+                    int i = firstCell + line / (numEtaPoints - 1);
+                    int j = line % (numEtaPoints - 1);
+                    if (i < start) {
+                        analyzeLine(previous, 0, slab, 0, i, j, lineStatistics);
+                    } else {
+                        analyzeLine(slab, i - start, slab, i - start + 1, i, j, lineStatistics);
+                    }
+                }, Statistics::merge);
+        statistics.merge(slabStatistics);
+
+        for (int j = 0; j < numEtaPoints; j++) {
+            for (int k = 0; k < numZetaPoints; k++) {
+                int index = slab.index(numPlanes - 1, j, k);
+                previous.set(0, j, k, slab.x[index], slab.y[index], slab.z[index]);
+            }
+        }
+        event.finish((long) numCellLines * (numZetaPoints - 1), 0);
+        nextPlane += numPlanes;
+    }
+
+    /**
+     * Analyzes the cells (i, j, 0) to (i, j, numZetaPoints - 2), whose xi
+     * faces are the plane i0 of grid0 and the plane i1 of grid1.
+     */
+    private void analyzeLine(StructuredGrid grid0, int i0, StructuredGrid grid1, int i1,
+            int i, int j, Statistics lineStatistics) {
+        double[] corners = lineStatistics.corners;
+        double[] values = lineStatistics.values;
+        for (int k = 0; k < numZetaPoints - 1; k++) {
+            loadCorner(grid0, i0, j, k, corners, 0);
+            loadCorner(grid1, i1, j, k, corners, 1);
+            loadCorner(grid1, i1, j + 1, k, corners, 2);
+            loadCorner(grid0, i0, j + 1, k, corners, 3);
+            loadCorner(grid0, i0, j, k + 1, corners, 4);
+            loadCorner(grid1, i1, j, k + 1, corners, 5);
+            loadCorner(grid1, i1, j + 1, k + 1, corners, 6);
+            loadCorner(grid0, i0, j + 1, k + 1, corners, 7);
+            cellQuality(corners, lineStatistics.scratch, values);
+
+            long cell = ((long) k * (numEtaPoints - 1) + j) * (numXiPoints - 1) + i;
+            lineStatistics.add(values, cell);
+            if (cellData != null) {
+                for (int m = 0; m < METRICS.length; m++) {
+                    cellData[m][(int) cell] = (float) values[m];
+                }
+            }
+        }
+    }
+
+    private static void loadCorner(StructuredGrid grid, int i, int j, int k, double[] corners, int corner) {
+        int index = grid.index(i, j, k);
+        corners[3 * corner] = grid.x[index];
+        corners[3 * corner + 1] = grid.y[index];
+        corners[3 * corner + 2] = grid.z[index];
+    }
+
+    /**
+     * Computes the quality measures of a cell, in the order of
+     * {@link QualityMetric}.
+     *
+     * @param c coordinates of the eight corners in VTK order
+     * @param scratch space for 48 intermediate values
+     * @param values the computed measures
+     */
+    static void cellQuality(double[] c, double[] scratch, double[] values) {
+        // unit vectors of the twelve edges, each edge pointing in increasing index direction
+        double[] edges = scratch;
+        for (int e = 0; e < 12; e++) {
+            int from = 3 * EDGES[e][0];
+            int to = 3 * EDGES[e][1];
+            double ex = c[to] - c[from];
+            double ey = c[to + 1] - c[from + 1];
+            double ez = c[to + 2] - c[from + 2];
+            double length = Math.sqrt(ex * ex + ey * ey + ez * ez);
+            double scale = length > 0.0 ? 1.0 / length : 0.0;
+            edges[3 * e] = ex * scale;
+            edges[3 * e + 1] = ey * scale;
+            edges[3 * e + 2] = ez * scale;
+        }
+        // scaled Jacobian at each corner, from the three edges meeting there
+        double minJacobian = Double.POSITIVE_INFINITY;
+        for (int[] corner : CORNER_EDGES) {
+            minJacobian = Math.min(minJacobian,
+                    determinant(edges, 3 * corner[0], 3 * corner[1], 3 * corner[2]));
+        }
+        values[0] = Math.max(-1.0, Math.min(1.0, minJacobian));
+
+        // principal axes: sums of the four edges in each direction
+        double[] axes = scratch;
+        for (int n = 0; n < 3; n++) {
+            axes[36 + n] = c[3 + n] - c[n] + c[6 + n] - c[9 + n] + c[15 + n] - c[12 + n] + c[18 + n] - c[21 + n];
+            axes[39 + n] = c[9 + n] - c[n] + c[6 + n] - c[3 + n] + c[21 + n] - c[12 + n] + c[18 + n] - c[15 + n];
+            axes[42 + n] = c[12 + n] - c[n] + c[15 + n] - c[3 + n] + c[18 + n] - c[6 + n] + c[21 + n] - c[9 + n];
+        }
+        double length1 = length(axes, 36);
+        double length2 = length(axes, 39);
+        double length3 = length(axes, 42);
+        double minLength = Math.min(length1, Math.min(length2, length3));
+        if (minLength > 0.0) {
+            double cos12 = Math.abs(dot(axes, 36, axes, 39)) / (length1 * length2);
+            double cos13 = Math.abs(dot(axes, 36, axes, 42)) / (length1 * length3);
+            double cos23 = Math.abs(dot(axes, 39, axes, 42)) / (length2 * length3);
+            values[1] = Math.min(1.0, Math.max(cos12, Math.max(cos13, cos23)));
+            values[2] = Math.max(length1, Math.max(length2, length3)) / minLength;
+        } else {
+            values[1] = 1.0;
+            values[2] = Double.POSITIVE_INFINITY;
+        }
+
+        // orthogonality of the faces to the line from the cell centre
+        double[] centre = scratch;
+        for (int n = 0; n < 3; n++) {
+            centre[45 + n] = 0.0;
+            for (int corner = 0; corner < 8; corner++) {
+                centre[45 + n] += 0.125 * c[3 * corner + n];
+            }
+        }
+        double minCos = 1.0;
+        for (int[] face : FACES) {
+            int p0 = 3 * face[0], p1 = 3 * face[1], p2 = 3 * face[2], p3 = 3 * face[3];
+            // area vector from the cross product of the diagonals
+            double d1x = c[p2] - c[p0], d1y = c[p2 + 1] - c[p0 + 1], d1z = c[p2 + 2] - c[p0 + 2];
+            double d2x = c[p3] - c[p1], d2y = c[p3 + 1] - c[p1 + 1], d2z = c[p3 + 2] - c[p1 + 2];
+            double ax = d1y * d2z - d1z * d2y;
+            double ay = d1z * d2x - d1x * d2z;
+            double az = d1x * d2y - d1y * d2x;
+            double fx = 0.25 * (c[p0] + c[p1] + c[p2] + c[p3]) - centre[45];
+            double fy = 0.25 * (c[p0 + 1] + c[p1 + 1] + c[p2 + 1] + c[p3 + 1]) - centre[46];
+            double fz = 0.25 * (c[p0 + 2] + c[p1 + 2] + c[p2 + 2] + c[p3 + 2]) - centre[47];
+            double norm = Math.sqrt((ax * ax + ay * ay + az * az) * (fx * fx + fy * fy + fz * fz));
+            minCos = norm > 0.0 ? Math.min(minCos, Math.abs(ax * fx + ay * fy + az * fz) / norm) : 0.0;
+        }
+        values[3] = Math.min(1.0, minCos);
+    }
+
+    private static double determinant(double[] v, int a, int b, int c) {
+        return v[a] * (v[b + 1] * v[c + 2] - v[b + 2] * v[c + 1])
+                - v[a + 1] * (v[b] * v[c + 2] - v[b + 2] * v[c])
+                + v[a + 2] * (v[b] * v[c + 1] - v[b + 1] * v[c]);
+    }
+
+    private static double length(double[] v, int offset) {
+        return Math.sqrt(dot(v, offset, v, offset));
+    }
+
+    private static double dot(double[] u, int uOffset, double[] v, int vOffset) {
+        return u[uOffset] * v[vOffset] + u[uOffset + 1] * v[vOffset + 1] + u[uOffset + 2] * v[vOffset + 2];
+    }
+
+    public int numXiCells() {
+        return numXiPoints - 1;
+    }
+
+    public int numEtaCells() {
+        return numEtaPoints - 1;
+    }
+
+    public int numZetaCells() {
+        return numZetaPoints - 1;
+    }
+
+    /**
+     * @return number of cells analyzed so far
+     */
+    public long numCells() {
+        return statistics.numCells;
+    }
+
+    /**
+     * @return number of cells with a scaled Jacobian of zero or less
+     */
+    public long numInvertedCells() {
+        return statistics.numInverted;
+    }
+
+    /**
+     * @return the number of cells in each of the {@link #NUM_BINS} bins, see
+     * {@link QualityMetric#binStart(int, int)}
+     */
+    public long[] histogram(QualityMetric metric) {
+        return statistics.histograms[metric.ordinal()].clone();
+    }
+
+    /**
+     * @return the value of the worst cell
+     */
+    public double worst(QualityMetric metric) {
+        return statistics.worst[metric.ordinal()];
+    }
+
+    /**
+     * @return the indices (i, j, k) of the worst cell, the first in VTK
+     * order if several cells are equally bad
+     */
+    public int[] worstCell(QualityMetric metric) {
+        long cell = statistics.worstCell[metric.ordinal()];
+        int numXiCells = numXiPoints - 1;
+        int numEtaCells = numEtaPoints - 1;
+        return new int[]{
+            (int) (cell % numXiCells),
+            (int) (cell / numXiCells % numEtaCells),
+            (int) (cell / numXiCells / numEtaCells)
+        };
+    }
+
+    /**
+     * @return true if the values of every cell have been kept
+     */
+    public boolean hasCellData() {
+        return cellData != null;
+    }
+
+    /**
+     * @return the value of every cell, numbered with i changing fastest
+     * @throws IllegalStateException if the values have not been kept
+     */
+    public float[] cellData(QualityMetric metric) {
+        if (cellData == null) {
+            throw new IllegalStateException("The values of the cells have not been kept.");
+        }
+        return cellData[metric.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder(String.format(Locale.ROOT,
+                "%d cells, %d inverted", numCells(), numInvertedCells()));
+        for (QualityMetric metric : METRICS) {
+            summary.append(String.format(Locale.ROOT, "%n%s: worst %.4g at %s",
+                    metric.fieldName(), worst(metric), Arrays.toString(worstCell(metric))));
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Histograms and worst cells of a part of the grid, merged into the
+     * statistics of the whole grid.
+     */
+    private static class Statistics {
+
+        final long[][] histograms = new long[METRICS.length][NUM_BINS];
+        final double[] worst = new double[METRICS.length];
+        final long[] worstCell = new long[METRICS.length];
+        long numCells;
+        long numInverted;
+        // scratch space of the thread filling these statistics
+        final double[] corners = new double[24];
+        final double[] scratch = new double[48];
+        final double[] values = new double[METRICS.length];
+
+        Statistics() {
+            for (int m = 0; m < METRICS.length; m++) {
+                worst[m] = METRICS[m].higherIsWorse() ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+                worstCell[m] = Long.MAX_VALUE;
+            }
+        }
+
+        void add(double[] cellValues, long cell) {
+            for (int m = 0; m < METRICS.length; m++) {
+                histograms[m][METRICS[m].bin(cellValues[m], NUM_BINS)]++;
+                update(m, cellValues[m], cell);
+            }
+            if (!(cellValues[QualityMetric.JACOBIAN.ordinal()] > 0.0)) {
+                numInverted++;
+            }
+            numCells++;
+        }
+
+        void merge(Statistics other) {
+            for (int m = 0; m < METRICS.length; m++) {
+                for (int bin = 0; bin < NUM_BINS; bin++) {
+                    histograms[m][bin] += other.histograms[m][bin];
+                }
+                update(m, other.worst[m], other.worstCell[m]);
+            }
+            numCells += other.numCells;
+            numInverted += other.numInverted;
+        }
+
+        private void update(int m, double value, long cell) {
+            // a cell with undefined quality, e.g. with NaN coordinates, is the worst
+            boolean worse = Double.isNaN(value)
+                    ? !Double.isNaN(worst[m])
+                    : METRICS[m].higherIsWorse() ? value > worst[m] : value < worst[m];
+            boolean equal = Double.compare(value, worst[m]) == 0;
+            if (worse || equal && cell < worstCell[m]) {
+                worst[m] = value;
+                worstCell[m] = cell;
+            }
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package mesh;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+
+/**
+ * Volume grid stored outside of the Java heap, either in direct memory or in
+ * a memory mapped file. The points are addressed with <code>long</code>
+ * indices and stored in chunks of at most {@value #POINTS_PER_CHUNK} points,
+ * so the size of the grid is not limited by the maximum length of an array.
+ *
+ * A mapped grid, created with {@link #map(Path, int, int, int)}, is limited
+ * only by the disk and is the way to hold grids larger than the heap. Direct
+ * memory is limited by <code>-XX:MaxDirectMemorySize</code>, which defaults
+ * to the maximum heap size, so a grid from
+ * {@link #allocate(int, int, int)} larger than the heap needs that option
+ * to be raised.
+ *
+ * The point (i, j, k) is stored at the same index as in
+ * {@link StructuredGrid}, zeta changing fastest, with the three coordinates
+ * of a point next to each other.
+ *
+ * The grid is filled by the slab-wise interpolation, to which it is a
+ * {@link SlabSink}, and read by the writers through
+ * {@link #writeTo(SlabSink, int)}. Only a single slab at a time is held on the
+ * heap. After {@link #close()} the grid can no longer be used; its memory is
+ * released once it is no longer referenced, at the next garbage collection.
+ * The grid may be read and written by many threads at once, but must not be
+ * closed while it is still being used.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class OffHeapGrid implements SlabSink, AutoCloseable {
+
+    private static final int POINTS_PER_CHUNK = 1 << 24;
+    private static final int POINT_BYTES = 3 * Double.BYTES;
+
+    private final int numXiPoints;
+    private final int numEtaPoints;
+    private final int numZetaPoints;
+    private final long numPoints;
+    private final RandomAccessFile file;
+    // null once the grid is closed
+    private volatile ByteBuffer[] chunks;
+
+    private OffHeapGrid(int numXiPoints, int numEtaPoints, int numZetaPoints, RandomAccessFile file) throws IOException {
+        if (numXiPoints < 1 || numEtaPoints < 1 || numZetaPoints < 1) {
+            throw new IllegalArgumentException("The number of points in each direction must be at least 1.");
+        }
+        if ((long) numEtaPoints * numZetaPoints > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("A plane of constant xi exceeds the array size limit.");
+        }
+        this.numXiPoints = numXiPoints;
+        this.numEtaPoints = numEtaPoints;
+        this.numZetaPoints = numZetaPoints;
+        this.numPoints = (long) numXiPoints * numEtaPoints * numZetaPoints;
+        this.file = file;
+
+        int numChunks = (int) ((numPoints + POINTS_PER_CHUNK - 1) / POINTS_PER_CHUNK);
+        ByteBuffer[] newChunks = new ByteBuffer[numChunks];
+        for (int c = 0; c < numChunks; c++) {
+            long first = (long) c * POINTS_PER_CHUNK;
+            int bytes = (int) Math.min(POINTS_PER_CHUNK, numPoints - first) * POINT_BYTES;
+            ByteBuffer chunk = file == null
+                    ? allocateDirect(bytes)
+                    : file.getChannel().map(FileChannel.MapMode.READ_WRITE, first * POINT_BYTES, bytes);
+            newChunks[c] = chunk.order(ByteOrder.nativeOrder());
+        }
+        chunks = newChunks;
+    }
+
+    private ByteBuffer allocateDirect(int bytes) {
+        try {
+            return ByteBuffer.allocateDirect(bytes);
+        } catch (OutOfMemoryError ex) {
+            OutOfMemoryError error = new OutOfMemoryError(String.format(
+                    "A grid of %d points does not fit in direct memory; raise -XX:MaxDirectMemorySize"
+                    + " or map the grid to a file with OffHeapGrid.map.", numPoints));
+            error.initCause(ex);
+            throw error;
+        }
+    }
+
+    /**
+     * Allocates the grid in direct memory, which is limited by
+     * <code>-XX:MaxDirectMemorySize</code>. Grids larger than the heap are
+     * better mapped to a file with {@link #map(Path, int, int, int)}.
+     *
+     * @throws OutOfMemoryError if the direct memory is exhausted
+     */
+    public static OffHeapGrid allocate(int numXiPoints, int numEtaPoints, int numZetaPoints) {
+        try {
+            return new OffHeapGrid(numXiPoints, numEtaPoints, numZetaPoints, null);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Creates the grid in a memory mapped file, which is created or resized
+     * as needed. The points remain in the file after the grid is closed, in
+     * native byte order.
+     *
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public static OffHeapGrid map(Path path, int numXiPoints, int numEtaPoints, int numZetaPoints) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw");
+        try {
+            file.setLength((long) numXiPoints * numEtaPoints * numZetaPoints * POINT_BYTES);
+            return new OffHeapGrid(numXiPoints, numEtaPoints, numZetaPoints, file);
+        } catch (IOException | RuntimeException ex) {
+            file.close();
+            throw ex;
+        }
+    }
+
+    public int numXiPoints() {
+        return numXiPoints;
+    }
+
+    public int numEtaPoints() {
+        return numEtaPoints;
+    }
+
+    public int numZetaPoints() {
+        return numZetaPoints;
+    }
+
+    public long numPoints() {
+        return numPoints;
+    }
+
+    public long index(int i, int j, int k) {
+        return ((long) i * numEtaPoints + j) * numZetaPoints + k;
+    }
+
+    public double getX(long index) {
+        return chunk(index).getDouble(offset(index));
+    }
+
+    public double getY(long index) {
+        return chunk(index).getDouble(offset(index) + Double.BYTES);
+    }
+
+    public double getZ(long index) {
+        return chunk(index).getDouble(offset(index) + 2 * Double.BYTES);
+    }
+
+    public void set(long index, double x, double y, double z) {
+        ByteBuffer chunk = chunk(index);
+        int offset = offset(index);
+        chunk.putDouble(offset, x);
+        chunk.putDouble(offset + Double.BYTES, y);
+        chunk.putDouble(offset + 2 * Double.BYTES, z);
+    }
+
+    private ByteBuffer chunk(long index) {
+        ByteBuffer[] current = chunks;
+        if (current == null) {
+            throw new IllegalStateException("The grid has been closed.");
+        }
+        return current[(int) (index / POINTS_PER_CHUNK)];
+    }
+
+    private static int offset(long index) {
+        return (int) (index % POINTS_PER_CHUNK) * POINT_BYTES;
+    }
+
+    @Override
+    public SlabDirection slabDirection() {
+        return SlabDirection.XI;
+    }
+
+    /**
+     * Stores a slab of constant xi. The slabs may arrive in any order.
+     */
+    @Override
+    public void accept(StructuredGrid slab, int start) {
+        if (slab.numEtaPoints() != numEtaPoints || slab.numZetaPoints() != numZetaPoints
+                || start + slab.numXiPoints() > numXiPoints) {
+            throw new IllegalArgumentException("The slab does not fit in the grid.");
+        }
+        if (slab.storageOrder() != StorageOrder.ZETA_FASTEST) {
+            throw new IllegalArgumentException("The slab must be stored with zeta changing fastest.");
+        }
+        long first = index(start, 0, 0);
+        IntStream.range(0, slab.numXiPoints() * numEtaPoints).parallel().forEach(line -> {
+            int from = line * numZetaPoints;
+            for (int k = 0; k < numZetaPoints; k++) {
+                set(first + from + k, slab.x[from + k], slab.y[from + k], slab.z[from + k]);
+            }
+        });
+    }
+
+    /**
+     * Passes the whole grid to the sink, one slab at a time, in the direction
+     * the sink asks for.
+     *
+     * @param sink receiver of the slabs, e.g. a mesh writer
+     * @param slabSize number of planes in each slab
+     * @throws IOException if the sink fails to write a slab
+     */
+    public void writeTo(SlabSink sink, int slabSize) throws IOException {
+        SlabReader.writeTo(this::read, numXiPoints, numEtaPoints, numZetaPoints, sink, slabSize);
+    }
+
+    /**
+     * Copies the lines of constant xi and eta of the slab, each a contiguous
+     * run of points in this grid.
+     */
+    private void read(StructuredGrid slab, int iStart, int kStart) {
+        int slabEta = slab.numEtaPoints();
+        int slabZeta = slab.numZetaPoints();
+        IntStream.range(0, slab.numXiPoints() * slabEta).parallel().forEach(line -> {
+            int i = line / slabEta;
+            int j = line % slabEta;
+            long from = index(iStart + i, j, kStart);
+            int to = line * slabZeta;
+            for (int k = 0; k < slabZeta; k++) {
+                slab.x[to + k] = getX(from + k);
+                slab.y[to + k] = getY(from + k);
+                slab.z[to + k] = getZ(from + k);
+            }
+        });
+    }
+
+    /**
+     * Releases the grid. A mapped grid is written to its file first. The
+     * memory itself is returned at the next garbage collection, as Java 8
+     * cannot free direct or mapped buffers explicitly. Must not be called
+     * while other threads still access the grid.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        ByteBuffer[] current = chunks;
+        if (current == null) {
+            return;
+        }
+        chunks = null;
+        if (file != null) {
+            for (ByteBuffer chunk : current) {
+                ((MappedByteBuffer) chunk).force();
+            }
+            file.close();
+        }
+    }
+}
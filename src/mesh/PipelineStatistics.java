@@ -0,0 +1,69 @@
+package mesh;
+
+/**
+ * Timings of a pipelined generation, where the slabs are computed on one side
+ * and written on the other. A large compute stall means the writer is the
+ * bottleneck, and a large write stall means the computation is.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class PipelineStatistics {
+
+    int numSlabs;
+    long computeNanos;
+    long computeStallNanos;
+    long writeNanos;
+    long writeStallNanos;
+    long elapsedNanos;
+
+    PipelineStatistics() {
+    }
+
+    public int numSlabs() {
+        return numSlabs;
+    }
+
+    /**
+     * @return time spent computing slabs
+     */
+    public long computeNanos() {
+        return computeNanos;
+    }
+
+    /**
+     * @return time the computation waited for a free buffer
+     */
+    public long computeStallNanos() {
+        return computeStallNanos;
+    }
+
+    /**
+     * @return time spent writing slabs
+     */
+    public long writeNanos() {
+        return writeNanos;
+    }
+
+    /**
+     * @return time the writer waited for a computed slab
+     */
+    public long writeStallNanos() {
+        return writeStallNanos;
+    }
+
+    /**
+     * @return wall clock time of the whole pipeline
+     */
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d slabs in %.3f s: compute %.3f s (stalled %.3f s), "
+                + "write %.3f s (stalled %.3f s)",
+                numSlabs, elapsedNanos * 1e-9,
+                computeNanos * 1e-9, computeStallNanos * 1e-9,
+                writeNanos * 1e-9, writeStallNanos * 1e-9);
+    }
+}
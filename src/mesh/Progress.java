@@ -0,0 +1,73 @@
+package mesh;
+
+import java.util.Locale;
+
+/**
+ * Snapshot of the progress of a task, in points and in planes of points.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class Progress {
+
+    private final String task;
+    private final long completedNodes;
+    private final long totalNodes;
+    private final long nodesPerPlane;
+    private final long elapsedNanos;
+
+    Progress(String task, long completedNodes, long totalNodes, long nodesPerPlane, long elapsedNanos) {
+        this.task = task;
+        this.completedNodes = completedNodes;
+        this.totalNodes = totalNodes;
+        this.nodesPerPlane = nodesPerPlane;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public String task() {
+        return task;
+    }
+
+    public long completedNodes() {
+        return completedNodes;
+    }
+
+    public long totalNodes() {
+        return totalNodes;
+    }
+
+    public long completedPlanes() {
+        return completedNodes / nodesPerPlane;
+    }
+
+    public long totalPlanes() {
+        return totalNodes / nodesPerPlane;
+    }
+
+    public double fraction() {
+        return totalNodes == 0 ? 1.0 : (double) completedNodes / totalNodes;
+    }
+
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double nodesPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : completedNodes / (elapsedNanos * 1e-9);
+    }
+
+    /**
+     * @return estimated time to completion at the average rate so far, or
+     * infinity before any point is completed
+     */
+    public double remainingSeconds() {
+        double rate = nodesPerSecond();
+        return rate == 0.0 ? Double.POSITIVE_INFINITY : (totalNodes - completedNodes) / rate;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s: %d of %d planes (%.1f%%), %.3g nodes/s, %.1f s remaining",
+                task, completedPlanes(), totalPlanes(), 100 * fraction(),
+                nodesPerSecond(), remainingSeconds());
+    }
+}
@@ -0,0 +1,18 @@
+package mesh;
+
+/**
+ * Receives the progress of a long running generation or write.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public interface ProgressListener {
+
+    /**
+     * Called at most once per reporting interval, and once more when the
+     * task is complete. The calls may come from any of the threads doing the
+     * work, but never concurrently.
+     *
+     * @param progress the progress of the current task
+     */
+    public void progress(Progress progress);
+}
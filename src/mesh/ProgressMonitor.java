@@ -0,0 +1,113 @@
+package mesh;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connects the generation and the writers to a progress listener and a
+ * cancellation token. The workers report the points they complete; the
+ * listener is called at most once per reporting interval, so the cost stays
+ * small however finely the work is reported. Every report also checks the
+ * token and stops the work with a {@link CancellationException} once it is
+ * cancelled.
+ *
+ * A monitor follows one task at a time; it may be reused for the next task,
+ * e.g. the interpolation followed by the writing of a mesh.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class ProgressMonitor {
+
+    /**
+     * Monitor without listener which is never cancelled.
+     */
+    public static final ProgressMonitor NONE = new ProgressMonitor(null, new CancellationToken(), 0);
+
+    private static final long DEFAULT_INTERVAL_MILLIS = 500;
+
+    private final ProgressListener listener;
+    private final CancellationToken token;
+    private final long intervalNanos;
+
+    private final AtomicLong completedNodes = new AtomicLong();
+    private final AtomicLong nextReport = new AtomicLong();
+    private volatile String task;
+    private volatile long totalNodes;
+    private volatile long nodesPerPlane;
+    private volatile long startTime;
+
+    public ProgressMonitor(ProgressListener listener, CancellationToken token) {
+        this(listener, token, DEFAULT_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param listener receiver of the progress, or null
+     * @param token token checked for cancellation
+     * @param intervalMillis minimum time between two reports
+     */
+    public ProgressMonitor(ProgressListener listener, CancellationToken token, long intervalMillis) {
+        this.listener = listener;
+        this.token = token;
+        this.intervalNanos = intervalMillis * 1_000_000;
+    }
+
+    /**
+     * Starts following a new task.
+     *
+     * @param task name of the task
+     * @param totalNodes number of points in the task
+     * @param nodesPerPlane number of points in a plane of the task
+     */
+    public void begin(String task, long totalNodes, long nodesPerPlane) {
+        token.throwIfCancelled();
+        this.task = task;
+        this.totalNodes = totalNodes;
+        this.nodesPerPlane = Math.max(1, nodesPerPlane);
+        this.startTime = System.nanoTime();
+        completedNodes.set(0);
+        nextReport.set(startTime + intervalNanos);
+    }
+
+    /**
+     * Adds completed points to the current task, and reports the progress if
+     * the reporting interval has passed.
+     *
+     * @param nodes number of points just completed
+     * @throws CancellationException if the work has been cancelled
+     */
+    public void completed(long nodes) {
+        token.throwIfCancelled();
+        if (listener == null) {
+            return;
+        }
+        completedNodes.addAndGet(nodes);
+        long now = System.nanoTime();
+        long next = nextReport.get();
+        if (now - next >= 0 && nextReport.compareAndSet(next, now + intervalNanos)) {
+            report(false);
+        }
+    }
+
+    /**
+     * Reports the completion of the current task.
+     */
+    public void done() {
+        if (listener != null) {
+            report(true);
+        }
+    }
+
+    /**
+     * @throws CancellationException if the work has been cancelled
+     */
+    public void checkCancelled() {
+        token.throwIfCancelled();
+    }
+
+    private synchronized void report(boolean done) {
+        // read under the lock, so that the reports never go backwards
+        long completed = done ? totalNodes : Math.min(completedNodes.get(), totalNodes);
+        listener.progress(new Progress(task, completed, totalNodes,
+                nodesPerPlane, System.nanoTime() - startTime));
+    }
+}
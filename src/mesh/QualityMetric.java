@@ -0,0 +1,101 @@
+package mesh;
+
+/**
+ * Quality measures of a hexahedral cell, computed by {@link MeshQuality}.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public enum QualityMetric {
+
+    /**
+     * Smallest scaled Jacobian determinant of the eight corners, i.e. the
+     * determinant of the three unit edge vectors meeting at a corner, from -1
+     * to 1. A cube has 1; zero or a negative value marks a degenerate or
+     * inverted cell. The sign is that of a right-handed (xi, eta, zeta)
+     * system, so all the cells of a left-handed grid are negative.
+     */
+    JACOBIAN("jacobian", -1.0, 1.0, false, false),
+    /**
+     * Largest cosine of the angles between the three principal axes of the
+     * cell, from 0 (orthogonal axes) to 1.
+     */
+    SKEWNESS("skewness", 0.0, 1.0, true, false),
+    /**
+     * Length of the longest principal axis of the cell divided by the
+     * shortest, from 1 upwards. The histogram is logarithmic up to 10^4.
+     */
+    ASPECT_RATIO("aspect_ratio", 1.0, 1e4, true, true),
+    /**
+     * Smallest cosine of the angle between the area vector of a face and the
+     * line from the cell centre to the face centre, over the six faces, from
+     * 0 to 1 (orthogonal).
+     */
+    ORTHOGONALITY("orthogonality", 0.0, 1.0, false, false);
+
+    private final String fieldName;
+    private final double lower;
+    private final double upper;
+    private final boolean higherIsWorse;
+    private final boolean logarithmic;
+
+    private QualityMetric(String fieldName, double lower, double upper,
+            boolean higherIsWorse, boolean logarithmic) {
+        this.fieldName = fieldName;
+        this.lower = lower;
+        this.upper = upper;
+        this.higherIsWorse = higherIsWorse;
+        this.logarithmic = logarithmic;
+    }
+
+    /**
+     * @return name of the field in the mesh files
+     */
+    public String fieldName() {
+        return fieldName;
+    }
+
+    /**
+     * @return true if a larger value marks a worse cell
+     */
+    public boolean higherIsWorse() {
+        return higherIsWorse;
+    }
+
+    /**
+     * @return the lower limit of the first bin of the histogram
+     */
+    public double lower() {
+        return lower;
+    }
+
+    /**
+     * @return the upper limit of the last bin of the histogram
+     */
+    public double upper() {
+        return upper;
+    }
+
+    /**
+     * @return the lower limit of the given bin of a histogram with numBins bins
+     */
+    public double binStart(int bin, int numBins) {
+        double fraction = (double) bin / numBins;
+        return logarithmic
+                ? lower * Math.pow(upper / lower, fraction)
+                : lower + (upper - lower) * fraction;
+    }
+
+    /**
+     * @return the bin in which the value falls, values outside the range are
+     * counted in the first or last bin
+     */
+    int bin(double value, int numBins) {
+        double fraction = logarithmic
+                ? Math.log(value / lower) / Math.log(upper / lower)
+                : (value - lower) / (upper - lower);
+        if (!(fraction > 0.0)) {
+            return 0;
+        }
+        return (int) Math.min(numBins - 1, fraction * numBins);
+    }
+}
@@ -0,0 +1,92 @@
+package mesh;
+
+import geom.Point;
+
+/**
+ * Point by point evaluation of the transfinite interpolation formula.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+class ReferenceKernel {
+
+    private ReferenceKernel() {
+    }
+
+    static void interpolate(BoundaryFaces faces, int i, int j,
+            int kStart, int kEnd, StructuredGrid out, int offset) {
+        int numXiPoints = faces.numXiPoints();
+        int numEtaPoints = faces.numEtaPoints();
+        int numZetaPoints = faces.numZetaPoints();
+
+        double dXi = 1.0 / (numXiPoints - 1);
+        double dEta = 1.0 / (numEtaPoints - 1);
+        double dZeta = 1.0 / (numZetaPoints - 1);
+        int xiEnd = numXiPoints - 1;
+        int etaEnd = numEtaPoints - 1;
+        int zetaEnd = numZetaPoints - 1;
+        double xi = i * dXi;
+        double eta = j * dEta;
+
+        StructuredGrid xi0 = faces.xi0;
+        StructuredGrid xi1 = faces.xi1;
+        StructuredGrid eta0 = faces.eta0;
+        StructuredGrid eta1 = faces.eta1;
+        StructuredGrid zeta0 = faces.zeta0;
+        StructuredGrid zeta1 = faces.zeta1;
+        for (int k = kStart; k < kEnd; k++) {
+            double zeta = k * dZeta;
+
+            // Linear projection
+            Point proj_xi = xi0.getPoint(j, k, 0).mul(1 - xi)
+                    .add(xi1.getPoint(j, k, 0).mul(xi));
+
+            Point proj_eta = eta0.getPoint(i, k, 0).mul(1 - eta)
+                    .add(eta1.getPoint(i, k, 0).mul(eta));
+
+            Point proj_zeta = zeta0.getPoint(i, j, 0).mul(1 - zeta)
+                    .add(zeta1.getPoint(i, j, 0).mul(zeta));
+
+            // Bi-linear projection
+            Point proj_xi_eta
+                    = xi0.getPoint(0, k, 0).mul((1 - xi) * (1 - eta))
+                    .add(xi0.getPoint(etaEnd, k, 0).mul((1 - xi) * eta))
+                    .add(xi1.getPoint(0, k, 0).mul(xi * (1 - eta)))
+                    .add(xi1.getPoint(etaEnd, k, 0).mul(xi * eta));
+
+            Point proj_eta_zeta
+                    = zeta0.getPoint(i, 0, 0).mul((1 - eta) * (1 - zeta))
+                    .add(zeta1.getPoint(i, 0, 0).mul((1 - eta) * zeta))
+                    .add(zeta0.getPoint(i, etaEnd, 0).mul(eta * (1 - zeta)))
+                    .add(zeta1.getPoint(i, etaEnd, 0).mul(eta * zeta));
+
+            Point proj_xi_zeta
+                    = zeta0.getPoint(0, j, 0).mul((1 - xi) * (1 - zeta))
+                    .add(zeta1.getPoint(0, j, 0).mul((1 - xi) * zeta))
+                    .add(zeta0.getPoint(xiEnd, j, 0).mul(xi * (1 - zeta)))
+                    .add(zeta1.getPoint(xiEnd, j, 0).mul(xi * zeta));
+
+            // Tri-linear projection
+            Point proj_xi_eta_zeta
+                    = zeta0.getPoint(0, 0, 0).mul((1 - xi) * (1 - eta) * (1 - zeta))
+                    .add(zeta0.getPoint(xiEnd, 0, 0).mul(xi * (1 - eta) * (1 - zeta)))
+                    .add(zeta0.getPoint(0, etaEnd, 0).mul((1 - xi) * eta * (1 - zeta)))
+                    .add(zeta1.getPoint(0, 0, 0).mul((1 - xi) * (1 - eta) * zeta))
+                    .add(zeta0.getPoint(xiEnd, etaEnd, 0).mul(xi * eta * (1 - zeta)))
+                    .add(zeta1.getPoint(xiEnd, 0, 0).mul(xi * (1 - eta) * zeta))
+                    .add(zeta1.getPoint(0, etaEnd, 0).mul((1 - xi) * eta * zeta))
+                    .add(zeta1.getPoint(xiEnd, etaEnd, 0).mul(xi * eta * zeta));
+
+            Point p = proj_xi
+                    .add(proj_eta)
+                    .add(proj_zeta)
+                    .sub(proj_eta_zeta)
+                    .sub(proj_xi_eta)
+                    .sub(proj_xi_zeta)
+                    .add(proj_xi_eta_zeta);
+            int index = offset + k - kStart;
+            out.x[index] = p.x;
+            out.y[index] = p.y;
+            out.z[index] = p.z;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package mesh;
+
+/**
+ * Direction in which a volume is cut into slabs when it is generated one slab
+ * at a time.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public enum SlabDirection {
+
+    /**
+     * Slabs of constant xi. Each slab is a contiguous part of the volume in
+     * the storage order of {@link StructuredGrid}, xi changing slowest.
+     */
+    XI,
+    /**
+     * Slabs of constant zeta, which suit formats storing the points with xi
+     * changing fastest and zeta changing slowest, such as VTK.
+     */
+    ZETA;
+
+    /**
+     * Allocates a slab of the volume with the given number of planes.
+     */
+    StructuredGrid newSlab(int numXiPoints, int numEtaPoints, int numZetaPoints, int numPlanes) {
+        return newSlab(numXiPoints, numEtaPoints, numZetaPoints, numPlanes, StorageOrder.ZETA_FASTEST);
+    }
+
+    StructuredGrid newSlab(int numXiPoints, int numEtaPoints, int numZetaPoints, int numPlanes,
+            StorageOrder storageOrder) {
+        return this == XI
+                ? new StructuredGrid(numPlanes, numEtaPoints, numZetaPoints, storageOrder)
+                : new StructuredGrid(numXiPoints, numEtaPoints, numPlanes, storageOrder);
+    }
+}
@@ -0,0 +1,182 @@
+package mesh;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Computes slabs in a pool while a separate writer thread passes the
+ * previously computed slabs to the sink. The slabs circulate through a small
+ * ring of reusable buffers: the computation takes a free buffer, fills it and
+ * queues it for the writer, which returns it to the free queue once written.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+class SlabPipeline {
+
+    private static final FilledSlab END = new FilledSlab(null, -1);
+
+    private final BlockingQueue<StructuredGrid> freeSlabs;
+    private final BlockingQueue<FilledSlab> filledSlabs;
+    private final PipelineStatistics statistics = new PipelineStatistics();
+    private volatile Throwable writeFailure;
+    private volatile boolean stopped;
+
+    private SlabPipeline(int numBuffers) {
+        freeSlabs = new ArrayBlockingQueue<>(numBuffers);
+        filledSlabs = new ArrayBlockingQueue<>(numBuffers + 1);
+    }
+
+    static PipelineStatistics run(BoundaryFaces faces, TfiKernel kernel, SlabSink sink,
+            int slabSize, int numBuffers, ForkJoinPool pool, ProgressMonitor monitor) throws IOException {
+        if (slabSize < 1 || numBuffers < 1) {
+            throw new IllegalArgumentException("The slab size and the number of buffers must be at least 1.");
+        }
+
+        return new SlabPipeline(numBuffers).run(faces, kernel, sink, slabSize, pool, monitor);
+    }
+
+    private PipelineStatistics run(BoundaryFaces faces, TfiKernel kernel, SlabSink sink,
+            int slabSize, ForkJoinPool pool, ProgressMonitor monitor) throws IOException {
+        long startTime = System.nanoTime();
+        int numXiPoints = faces.numXiPoints();
+        int numEtaPoints = faces.numEtaPoints();
+        int numZetaPoints = faces.numZetaPoints();
+        SlabDirection direction = sink.slabDirection();
+        int numPlanes = direction == SlabDirection.XI ? numXiPoints : numZetaPoints;
+
+        int numFullSlabs = numPlanes / slabSize;
+        for (int n = 0; n < Math.min(numFullSlabs, freeSlabs.remainingCapacity()); n++) {
+            freeSlabs.add(direction.newSlab(numXiPoints, numEtaPoints, numZetaPoints, slabSize,
+                    sink.storageOrder()));
+        }
+
+        monitor.begin("Volume interpolation", (long) numXiPoints * numEtaPoints * numZetaPoints,
+                (long) numXiPoints * numEtaPoints * numZetaPoints / numPlanes);
+        Thread writer = new Thread(() -> write(sink), "slab-writer");
+        writer.setDaemon(true);
+        writer.start();
+        boolean completed = false;
+        try {
+            for (int start = 0; start < numPlanes && writeFailure == null; start += slabSize) {
+                int size = Math.min(slabSize, numPlanes - start);
+                StructuredGrid slab;
+                if (size == slabSize) {
+                    long waitStart = System.nanoTime();
+                    slab = freeSlabs.take();
+                    statistics.computeStallNanos += System.nanoTime() - waitStart;
+                } else {
+                    slab = direction.newSlab(numXiPoints, numEtaPoints, numZetaPoints, size,
+                            sink.storageOrder());
+                }
+
+                long computeStart = System.nanoTime();
+                int slabStart = start;
+                pool.invoke(ForkJoinTask.adapt(() -> TransfiniteInterpolation.interpolateSlab(
+                        faces, kernel, direction, slabStart, slab, true, monitor)));
+                statistics.computeNanos += System.nanoTime() - computeStart;
+
+                filledSlabs.put(new FilledSlab(slab, start));
+            }
+            completed = true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while generating the mesh.");
+        } finally {
+            if (!completed) {
+                // e.g. cancelled or out of memory: stop the writer without
+                // writing the queued slabs, so that the sink is free again
+                // when this returns
+                stopped = true;
+            }
+            stopWriter(writer);
+        }
+
+        if (writeFailure instanceof IOException) {
+            throw (IOException) writeFailure;
+        }
+        if (writeFailure instanceof Error) {
+            throw (Error) writeFailure;
+        }
+        if (writeFailure != null) {
+            throw (RuntimeException) writeFailure;
+        }
+        statistics.elapsedNanos = System.nanoTime() - startTime;
+        monitor.done();
+
+        return statistics;
+    }
+
+    /**
+     * Queues the end of the slabs and waits for the writer to finish. If
+     * this thread is interrupted, the writer is interrupted instead of
+     * waiting for the queued slabs; the interrupt is kept for the caller.
+     */
+    private void stopWriter(Thread writer) {
+        boolean interrupted = Thread.interrupted();
+        if (interrupted) {
+            writer.interrupt();
+        } else {
+            try {
+                filledSlabs.put(END);
+            } catch (InterruptedException ex) {
+                interrupted = true;
+                writer.interrupt();
+            }
+        }
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException ex) {
+                interrupted = true;
+                writer.interrupt();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(SlabSink sink) {
+        try {
+            while (true) {
+                long waitStart = System.nanoTime();
+                FilledSlab filled = filledSlabs.take();
+                statistics.writeStallNanos += System.nanoTime() - waitStart;
+                if (filled == END) {
+                    return;
+                }
+
+                // After a failure the slabs are only recycled, so that the
+                // computation is never blocked waiting for a buffer.
+                if (writeFailure == null && !stopped) {
+                    long writeStart = System.nanoTime();
+                    try {
+                        sink.accept(filled.slab, filled.start);
+                    } catch (IOException | RuntimeException | Error ex) {
+                        writeFailure = ex;
+                    }
+                    statistics.writeNanos += System.nanoTime() - writeStart;
+                    statistics.numSlabs++;
+                }
+                freeSlabs.offer(filled.slab);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class FilledSlab {
+
+        final StructuredGrid slab;
+        final int start;
+
+        FilledSlab(StructuredGrid slab, int start) {
+            this.slab = slab;
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package mesh;
+
+import java.io.IOException;
+
+/**
+ * Source of the points of a volume stored in some other form than a
+ * {@link StructuredGrid}, read back one slab at a time to be passed to a
+ * {@link SlabSink}.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+interface SlabReader {
+
+    /**
+     * Fills the slab with the points of the volume starting at the given
+     * indices.
+     */
+    void read(StructuredGrid slab, int iStart, int kStart);
+
+    /**
+     * Passes the whole volume to the sink, one slab at a time, in the
+     * direction the sink asks for.
+     */
+    static void writeTo(SlabReader reader, int numXiPoints, int numEtaPoints, int numZetaPoints,
+            SlabSink sink, int slabSize) throws IOException {
+        if (slabSize < 1) {
+            throw new IllegalArgumentException("The slab size must be at least 1.");
+        }
+        SlabDirection direction = sink.slabDirection();
+        int numPlanes = direction == SlabDirection.XI ? numXiPoints : numZetaPoints;
+        StructuredGrid slab = null;
+        for (int start = 0; start < numPlanes; start += slabSize) {
+            int size = Math.min(slabSize, numPlanes - start);
+            if (slab == null || size != slabSize) {
+                slab = direction.newSlab(numXiPoints, numEtaPoints, numZetaPoints, size);
+            }
+            reader.read(slab, direction == SlabDirection.XI ? start : 0,
+                    direction == SlabDirection.ZETA ? start : 0);
+            sink.accept(slab, start);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package mesh;
+
+import java.io.IOException;
+
+/**
+ * Receives a volume grid one slab at a time, in increasing order of the
+ * slab position.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public interface SlabSink {
+
+    /**
+     * @return direction in which the slabs must be supplied
+     */
+    public SlabDirection slabDirection();
+
+    /**
+     * @return order in which the points of the slabs are to be stored
+     */
+    public default StorageOrder storageOrder() {
+        return StorageOrder.ZETA_FASTEST;
+    }
+
+    /**
+     * Accepts the next slab. The slab is reused for the following slabs, so
+     * its points must be consumed (or copied) before this method returns.
+     *
+     * @param slab points of the slab, indexed relative to the slab start
+     * @param start index of the first plane of the slab in the volume
+     * @throws IOException if the slab cannot be written
+     */
+    public void accept(StructuredGrid slab, int start) throws IOException;
+}
@@ -0,0 +1,54 @@
+package mesh;
+
+import java.util.Locale;
+
+/**
+ * Convergence history of an {@link EllipticSmoother}.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class SmoothingResult {
+
+    private final double[] residuals;
+    private final boolean converged;
+
+    SmoothingResult(double[] residuals, boolean converged) {
+        this.residuals = residuals;
+        this.converged = converged;
+    }
+
+    public int iterations() {
+        return residuals.length;
+    }
+
+    /**
+     * @param iteration sweep, starting from 0
+     * @return the largest distance by which a point would have moved in the
+     * sweep without relaxation
+     */
+    public double residual(int iteration) {
+        return residuals[iteration];
+    }
+
+    /**
+     * @return the residual of the last sweep, or 0 for a grid without
+     * interior points
+     */
+    public double finalResidual() {
+        return residuals.length == 0 ? 0.0 : residuals[residuals.length - 1];
+    }
+
+    /**
+     * @return true if the residual dropped below the tolerance before the
+     * maximum number of iterations
+     */
+    public boolean converged() {
+        return converged;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s after %d iterations, residual %.3g",
+                converged ? "Converged" : "Not converged", iterations(), finalResidual());
+    }
+}
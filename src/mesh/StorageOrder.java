@@ -0,0 +1,20 @@
+package mesh;
+
+/**
+ * Order in which the points of a {@link StructuredGrid} are stored.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public enum StorageOrder {
+
+    /**
+     * The zeta index changes fastest and the xi index slowest, the same order
+     * as <code>Point[i][j][k]</code> and as the .dat mesh files.
+     */
+    ZETA_FASTEST,
+    /**
+     * The xi index changes fastest and the zeta index slowest, the order of
+     * the VTK files, which can then be written without reordering.
+     */
+    XI_FASTEST
+}
@@ -0,0 +1,171 @@
+package mesh;
+
+import geom.Point;
+
+/**
+ * Structured grid of points stored as three contiguous coordinate arrays
+ * (structure of arrays). The point (i, j, k) is stored at
+ * <code>(i * numEtaPoints + j) * numZetaPoints + k</code>, i.e. the zeta index
+ * changes fastest, which is the same order as <code>Point[i][j][k]</code>.
+ * A grid may instead be created with the xi index changing fastest, see
+ * {@link StorageOrder}; {@link #index(int, int, int)} gives the position in
+ * either case.
+ *
+ * A surface is represented as a grid with a single zeta point.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class StructuredGrid {
+
+    private final int numXiPoints;
+    private final int numEtaPoints;
+    private final int numZetaPoints;
+    private final StorageOrder storageOrder;
+
+    public final double[] x, y, z;
+
+    public StructuredGrid(int numXiPoints, int numEtaPoints, int numZetaPoints) {
+        this(numXiPoints, numEtaPoints, numZetaPoints, StorageOrder.ZETA_FASTEST);
+    }
+
+    public StructuredGrid(int numXiPoints, int numEtaPoints, int numZetaPoints, StorageOrder storageOrder) {
+        if (numXiPoints < 1 || numEtaPoints < 1 || numZetaPoints < 1) {
+            throw new IllegalArgumentException("The number of points in each direction must be at least 1.");
+        }
+        long numPoints = (long) numXiPoints * numEtaPoints * numZetaPoints;
+        if (numPoints > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(
+                    "The grid has " + numPoints + " points, which exceeds the array size limit.");
+        }
+
+        this.numXiPoints = numXiPoints;
+        this.numEtaPoints = numEtaPoints;
+        this.numZetaPoints = numZetaPoints;
+        this.storageOrder = storageOrder;
+
+        this.x = new double[(int) numPoints];
+        this.y = new double[(int) numPoints];
+        this.z = new double[(int) numPoints];
+    }
+
+    public int numXiPoints() {
+        return numXiPoints;
+    }
+
+    public int numEtaPoints() {
+        return numEtaPoints;
+    }
+
+    public int numZetaPoints() {
+        return numZetaPoints;
+    }
+
+    public int numPoints() {
+        return x.length;
+    }
+
+    public StorageOrder storageOrder() {
+        return storageOrder;
+    }
+
+    public int index(int i, int j, int k) {
+        return storageOrder == StorageOrder.ZETA_FASTEST
+                ? (i * numEtaPoints + j) * numZetaPoints + k
+                : (k * numEtaPoints + j) * numXiPoints + i;
+    }
+
+    public double getX(int i, int j, int k) {
+        return x[index(i, j, k)];
+    }
+
+    public double getY(int i, int j, int k) {
+        return y[index(i, j, k)];
+    }
+
+    public double getZ(int i, int j, int k) {
+        return z[index(i, j, k)];
+    }
+
+    public Point getPoint(int i, int j, int k) {
+        int index = index(i, j, k);
+        return new Point(x[index], y[index], z[index]);
+    }
+
+    public void set(int i, int j, int k, double px, double py, double pz) {
+        int index = index(i, j, k);
+        x[index] = px;
+        y[index] = py;
+        z[index] = pz;
+    }
+
+    public void set(int i, int j, int k, Point p) {
+        set(i, j, k, p.x, p.y, p.z);
+    }
+
+    /**
+     * Converts the grid to nested point arrays, for callers which still work
+     * with <code>Point[][][]</code>.
+     *
+     * @return points indexed as [xi][eta][zeta]
+     */
+    public Point[][][] toPoints() {
+        Point[][][] points = new Point[numXiPoints][numEtaPoints][numZetaPoints];
+        for (int i = 0; i < numXiPoints; i++) {
+            for (int j = 0; j < numEtaPoints; j++) {
+                for (int k = 0; k < numZetaPoints; k++) {
+                    points[i][j][k] = getPoint(i, j, k);
+                }
+            }
+        }
+
+        return points;
+    }
+
+    /**
+     * Converts a surface grid (single zeta point) to nested point arrays.
+     *
+     * @return points indexed as [xi][eta]
+     */
+    public Point[][] toSurfacePoints() {
+        if (numZetaPoints != 1) {
+            throw new IllegalStateException("The grid is not a surface grid.");
+        }
+        Point[][] points = new Point[numXiPoints][numEtaPoints];
+        for (int i = 0; i < numXiPoints; i++) {
+            for (int j = 0; j < numEtaPoints; j++) {
+                points[i][j] = getPoint(i, j, 0);
+            }
+        }
+
+        return points;
+    }
+
+    public static StructuredGrid fromPoints(Point[][][] points) {
+        int numXiPoints = points.length;
+        int numEtaPoints = points[0].length;
+        int numZetaPoints = points[0][0].length;
+        StructuredGrid grid = new StructuredGrid(numXiPoints, numEtaPoints, numZetaPoints);
+        for (int i = 0; i < numXiPoints; i++) {
+            for (int j = 0; j < numEtaPoints; j++) {
+                for (int k = 0; k < numZetaPoints; k++) {
+                    grid.set(i, j, k, points[i][j][k]);
+                }
+            }
+        }
+
+        return grid;
+    }
+
+    public static StructuredGrid fromPoints(Point[][] points) {
+        int numXiPoints = points.length;
+        int numEtaPoints = points[0].length;
+        StructuredGrid grid = new StructuredGrid(numXiPoints, numEtaPoints, 1);
+        for (int i = 0; i < numXiPoints; i++) {
+            for (int j = 0; j < numEtaPoints; j++) {
+                grid.set(i, j, 0, points[i][j]);
+            }
+        }
+
+        return grid;
+    }
+}
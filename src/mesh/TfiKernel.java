@@ -0,0 +1,109 @@
+package mesh;
+
+/**
+ * Implementations of the volume transfinite interpolation. Every kernel
+ * computes the points of a line of constant xi and eta from the boundary
+ * faces, so the lines can be computed in any order and by any thread.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public enum TfiKernel {
+
+    /**
+     * Sums the linear, bi-linear and tri-linear projections point by point,
+     * exactly as they are written in the formula. It is slow and allocates
+     * many temporary points, but is kept as the reference for the other
+     * kernels.
+     */
+    REFERENCE {
+        @Override
+        void interpolateInterior(BoundaryFaces faces, int i, int j,
+                int kStart, int kEnd, StructuredGrid out, int offset) {
+            ReferenceKernel.interpolate(faces, i, j, kStart, kEnd, out, offset);
+        }
+    },
+    /**
+     * Works on the coordinate arrays using precomputed blending weights, and
+     * combines the contributions which do not change along the line before
+     * looping over it. No objects are allocated.
+     */
+    BLENDED {
+        @Override
+        void interpolateInterior(BoundaryFaces faces, int i, int j,
+                int kStart, int kEnd, StructuredGrid out, int offset) {
+            BlendedKernel.interpolate(faces, i, j, kStart, kEnd, out, offset);
+        }
+    },
+    /**
+     * Same formula as {@link #BLENDED}, with the xi face terms reduced to two
+     * precomputed planes so that the inner loop is a short stream of
+     * multiply-adds over contiguous arrays, which HotSpot compiles to SIMD
+     * instructions where the processor supports them.
+     */
+    VECTORIZED {
+        @Override
+        void interpolateInterior(BoundaryFaces faces, int i, int j,
+                int kStart, int kEnd, StructuredGrid out, int offset) {
+            VectorizedKernel.interpolate(faces, i, j, kStart, kEnd, out, offset);
+        }
+    };
+
+    /**
+     * Computes the points (i, j, k) for kStart &le; k &lt; kEnd, and stores
+     * them in consecutive locations of <code>out</code> starting at
+     * <code>offset</code>.
+     */
+    void interpolateLine(BoundaryFaces faces, int i, int j,
+            int kStart, int kEnd, StructuredGrid out, int offset) {
+        int xiEnd = faces.numXiPoints() - 1;
+        int etaEnd = faces.numEtaPoints() - 1;
+        int zetaEnd = faces.numZetaPoints() - 1;
+
+        if (i == 0 || i == xiEnd) {
+            copyLine(i == 0 ? faces.xi0 : faces.xi1, j, kStart, kEnd, out, offset);
+            return;
+        }
+        if (j == 0 || j == etaEnd) {
+            copyLine(j == 0 ? faces.eta0 : faces.eta1, i, kStart, kEnd, out, offset);
+            return;
+        }
+
+        int interiorStart = Math.max(kStart, 1);
+        int interiorEnd = Math.min(kEnd, zetaEnd);
+        if (kStart == 0) {
+            copyPoint(faces.zeta0, i, j, out, offset);
+        }
+        if (interiorStart < interiorEnd) {
+            interpolateInterior(faces, i, j, interiorStart, interiorEnd,
+                    out, offset + interiorStart - kStart);
+        }
+        if (kEnd > zetaEnd) {
+            copyPoint(faces.zeta1, i, j, out, offset + zetaEnd - kStart);
+        }
+    }
+
+    /**
+     * Same as
+     * {@link #interpolateLine(BoundaryFaces, int, int, int, int, StructuredGrid, int)}
+     * for interior lines, with 1 &le; kStart &lt; kEnd &le; numZetaPoints - 1.
+     */
+    abstract void interpolateInterior(BoundaryFaces faces, int i, int j,
+            int kStart, int kEnd, StructuredGrid out, int offset);
+
+    private static void copyLine(StructuredGrid face, int a,
+            int kStart, int kEnd, StructuredGrid out, int offset) {
+        int from = face.index(a, kStart, 0);
+        int length = kEnd - kStart;
+        System.arraycopy(face.x, from, out.x, offset, length);
+        System.arraycopy(face.y, from, out.y, offset, length);
+        System.arraycopy(face.z, from, out.z, offset, length);
+    }
+
+    private static void copyPoint(StructuredGrid face, int a, int b,
+            StructuredGrid out, int offset) {
+        int from = face.index(a, b, 0);
+        out.x[offset] = face.x[from];
+        out.y[offset] = face.y[from];
+        out.z[offset] = face.z[from];
+    }
+}
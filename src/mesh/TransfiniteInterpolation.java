@@ -1,8 +1,19 @@
 package mesh;
 
+import geom.Curve;
+import geom.Edge;
 import geom.Face;
+import geom.FaceSet;
 import geom.Geometry;
 import geom.Point;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import util.PhaseEvent;
 
 /**
  *
@@ -10,164 +21,568 @@ import geom.Point;
  */
 public class TransfiniteInterpolation {
 
-    public static Point[][][] interpolate(Geometry geom) {
-        int numXiPoints = geom.numXiPoints();
-        int numEtaPoints = geom.numEtaPoints();
-        int numZetaPoints = geom.numZetaPoints();
-        Point[][][] volPoints
-                = new Point[numXiPoints][numEtaPoints][numZetaPoints];
-
-        int i, j, k;
-
-        // Calculate interpolaetd points for all faces
-        // xi = 0
-        Point[][] xi0 = interpolateFace(geom.xi0());
-        i = 0;
-        for (j = 0; j < numEtaPoints; j++) {
-            for (k = 0; k < numZetaPoints; k++) {
-                volPoints[i][j][k] = xi0[j][k];
-            }
-        }
+    // Planes of a slab computed in double before being rounded to float
+    private static final int SINGLE_PRECISION_SLAB_SIZE = 4;
+    // Points in xi and zeta direction of a tile of the transpose into xi fastest slabs
+    private static final int TILE_XI = 64;
+    private static final int TILE_ZETA = 16;
+    // Lines along zeta of a tile, reused by every worker thread for all slabs
+    private static final ThreadLocal<StructuredGrid> LINE_BUFFER
+            = ThreadLocal.withInitial(() -> new StructuredGrid(TILE_XI, 1, 1));
 
-        // xi = 1
-        Point[][] xi1 = interpolateFace(geom.xi1());
-        i = numXiPoints - 1;
-        for (j = 0; j < numEtaPoints; j++) {
-            for (k = 0; k < numZetaPoints; k++) {
-                volPoints[i][j][k] = xi1[j][k];
-            }
+    public static StructuredGrid interpolate(Geometry geom) {
+        return interpolate(geom, TfiKernel.REFERENCE);
+    }
+
+    public static StructuredGrid interpolate(Geometry geom, int numThreads) {
+        return interpolate(geom, TfiKernel.REFERENCE, numThreads);
+    }
+
+    public static StructuredGrid interpolate(Geometry geom, ForkJoinPool pool) {
+        return interpolate(geom, TfiKernel.REFERENCE, pool);
+    }
+
+    public static StructuredGrid interpolate(Geometry geom, TfiKernel kernel) {
+        return interpolate(interpolateFaces(geom, false), kernel, false, ProgressMonitor.NONE,
+                StorageOrder.ZETA_FASTEST);
+    }
+
+    /**
+     * Interpolates the volume using a pool of the given number of threads.
+     * The result is identical to the serial interpolation with the same
+     * kernel.
+     *
+     * @param geom geometry to be meshed
+     * @param kernel kernel used for the interior points
+     * @param numThreads number of threads to be used
+     * @return interpolated volume grid
+     */
+    public static StructuredGrid interpolate(Geometry geom, TfiKernel kernel, int numThreads) {
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        try {
+            return interpolate(geom, kernel, pool);
+        } finally {
+            pool.shutdown();
         }
+    }
 
-        // eta = 0
-        Point[][] eta0 = interpolateFace(geom.eta0());
-        j = 0;
-        for (i = 0; i < numXiPoints; i++) {
-            for (k = 0; k < numZetaPoints; k++) {
-                volPoints[i][j][k] = eta0[i][k];
-            }
+    /**
+     * Interpolates the volume using the supplied pool. The faces are
+     * interpolated concurrently and the volume is partitioned into lines of
+     * constant xi and eta, each of which is computed by a single task. The
+     * result is identical to the serial interpolation with the same kernel.
+     *
+     * @param geom geometry to be meshed
+     * @param kernel kernel used for the interior points
+     * @param pool pool in which the interpolation is run
+     * @return interpolated volume grid
+     */
+    public static StructuredGrid interpolate(Geometry geom, TfiKernel kernel, ForkJoinPool pool) {
+        return interpolate(geom, kernel, pool, ProgressMonitor.NONE);
+    }
+
+    /**
+     * Same as {@link #interpolate(Geometry, TfiKernel, ForkJoinPool)},
+     * reporting the progress of the volume interpolation to the monitor.
+     *
+     * @param geom geometry to be meshed
+     * @param kernel kernel used for the interior points
+     * @param pool pool in which the interpolation is run
+     * @param monitor receiver of the progress and source of cancellation
+     * @return interpolated volume grid
+     * @throws java.util.concurrent.CancellationException if the monitor is
+     * cancelled
+     */
+    public static StructuredGrid interpolate(Geometry geom, TfiKernel kernel, ForkJoinPool pool,
+            ProgressMonitor monitor) {
+        return pool.invoke(ForkJoinTask.adapt(
+                () -> interpolate(interpolateFaces(geom, true), kernel, true, monitor,
+                        StorageOrder.ZETA_FASTEST)));
+    }
+
+    /**
+     * Same as {@link #interpolate(Geometry, TfiKernel, ForkJoinPool)}, storing
+     * the points in the given order. A grid stored with
+     * {@link StorageOrder#XI_FASTEST} is written to VTK files without
+     * reordering the points; the .dat writer requires
+     * {@link StorageOrder#ZETA_FASTEST}.
+     *
+     * @param geom geometry to be meshed
+     * @param kernel kernel used for the interior points
+     * @param pool pool in which the interpolation is run
+     * @param storageOrder order of the points in the returned grid
+     * @return interpolated volume grid
+     */
+    public static StructuredGrid interpolate(Geometry geom, TfiKernel kernel, ForkJoinPool pool,
+            StorageOrder storageOrder) {
+        return pool.invoke(ForkJoinTask.adapt(() -> interpolate(
+                interpolateFaces(geom, true), kernel, true, ProgressMonitor.NONE, storageOrder)));
+    }
+
+    /**
+     * Interpolates the volume from boundary faces computed earlier, so that
+     * repeated generations at the same resolution interpolate the faces only
+     * once.
+     *
+     * @param faces boundary faces from {@link #interpolateFaces(Geometry)}
+     * @param kernel kernel used for the interior points
+     * @return interpolated volume grid
+     */
+    public static StructuredGrid interpolate(BoundaryFaces faces, TfiKernel kernel) {
+        return interpolate(faces, kernel, false, ProgressMonitor.NONE, StorageOrder.ZETA_FASTEST);
+    }
+
+    /**
+     * Same as {@link #interpolate(BoundaryFaces, TfiKernel)}, computed in the
+     * supplied pool.
+     *
+     * @param faces boundary faces from {@link #interpolateFaces(Geometry)}
+     * @param kernel kernel used for the interior points
+     * @param pool pool in which the interpolation is run
+     * @return interpolated volume grid
+     */
+    public static StructuredGrid interpolate(BoundaryFaces faces, TfiKernel kernel, ForkJoinPool pool) {
+        return interpolate(faces, kernel, pool, ProgressMonitor.NONE);
+    }
+
+    /**
+     * Same as {@link #interpolate(BoundaryFaces, TfiKernel, ForkJoinPool)},
+     * reporting the progress to the monitor.
+     *
+     * @param faces boundary faces from {@link #interpolateFaces(Geometry)}
+     * @param kernel kernel used for the interior points
+     * @param pool pool in which the interpolation is run
+     * @param monitor receiver of the progress and source of cancellation
+     * @return interpolated volume grid
+     * @throws java.util.concurrent.CancellationException if the monitor is
+     * cancelled
+     */
+    public static StructuredGrid interpolate(BoundaryFaces faces, TfiKernel kernel, ForkJoinPool pool,
+            ProgressMonitor monitor) {
+        return pool.invoke(ForkJoinTask.adapt(
+                () -> interpolate(faces, kernel, true, monitor, StorageOrder.ZETA_FASTEST)));
+    }
+
+    /**
+     * Same as {@link #interpolate(BoundaryFaces, TfiKernel, ForkJoinPool)},
+     * storing the points in the given order.
+     *
+     * @param faces boundary faces from {@link #interpolateFaces(Geometry)}
+     * @param kernel kernel used for the interior points
+     * @param pool pool in which the interpolation is run
+     * @param storageOrder order of the points in the returned grid
+     * @return interpolated volume grid
+     */
+    public static StructuredGrid interpolate(BoundaryFaces faces, TfiKernel kernel, ForkJoinPool pool,
+            StorageOrder storageOrder) {
+        return pool.invoke(ForkJoinTask.adapt(
+                () -> interpolate(faces, kernel, true, ProgressMonitor.NONE, storageOrder)));
+    }
+
+    private static StructuredGrid interpolate(BoundaryFaces faces, TfiKernel kernel, boolean parallel,
+            ProgressMonitor monitor, StorageOrder storageOrder) {
+        StructuredGrid volPoints = new StructuredGrid(
+                faces.numXiPoints(), faces.numEtaPoints(), faces.numZetaPoints(), storageOrder);
+        monitor.begin("Volume interpolation", volPoints.numPoints(),
+                (long) faces.numEtaPoints() * faces.numZetaPoints());
+        interpolateSlab(faces, kernel, SlabDirection.XI, 0, volPoints, parallel, monitor);
+        monitor.done();
+
+        return volPoints;
+    }
+
+    /**
+     * Interpolates the volume in single precision storage. The slabs are
+     * computed in double precision and rounded as they are stored, so the
+     * grid takes half the memory of a double grid; the largest rounding error
+     * is reported by {@link FloatGrid#maxDeviation()}.
+     *
+     * @param geom geometry to be meshed
+     * @param kernel kernel used for the interior points
+     * @param pool pool in which the interpolation is run
+     * @return interpolated volume grid
+     */
+    public static FloatGrid interpolateSinglePrecision(Geometry geom, TfiKernel kernel, ForkJoinPool pool) {
+        FloatGrid grid = new FloatGrid(geom.numXiPoints(), geom.numEtaPoints(), geom.numZetaPoints());
+        try {
+            interpolate(geom, kernel, grid, SINGLE_PRECISION_SLAB_SIZE, pool);
+        } catch (IOException ex) {
+            // a FloatGrid does not throw
+            throw new IllegalStateException(ex);
         }
 
-        // eta = 1
-        Point[][] eta1 = interpolateFace(geom.eta1());
-        j = numEtaPoints - 1;
-        for (i = 0; i < numXiPoints; i++) {
-            for (k = 0; k < numZetaPoints; k++) {
-                volPoints[i][j][k] = eta1[i][k];
-            }
+        return grid;
+    }
+
+    /**
+     * Interpolates the volume one slab at a time and passes each slab to the
+     * sink as soon as it is computed. Only the boundary faces and a single
+     * slab are held in memory, so the memory needed grows with the size of a
+     * face and not with the size of the volume.
+     *
+     * @param geom geometry to be meshed
+     * @param kernel kernel used for the interior points
+     * @param sink receiver of the slabs
+     * @param slabSize number of planes in each slab
+     * @throws IOException if the sink fails to write a slab
+     */
+    public static void interpolate(Geometry geom, TfiKernel kernel,
+            SlabSink sink, int slabSize) throws IOException {
+        BoundaryFaces faces = interpolateFaces(geom, false);
+        interpolateSlabs(faces, kernel, sink, slabSize, null);
+    }
+
+    /**
+     * Same as {@link #interpolate(Geometry, TfiKernel, SlabSink, int)}, with
+     * each slab computed concurrently in the supplied pool. The sink is
+     * called from the calling thread.
+     *
+     * @param geom geometry to be meshed
+     * @param kernel kernel used for the interior points
+     * @param sink receiver of the slabs
+     * @param slabSize number of planes in each slab
+     * @param pool pool in which the slabs are computed
+     * @throws IOException if the sink fails to write a slab
+     */
+    public static void interpolate(Geometry geom, TfiKernel kernel,
+            SlabSink sink, int slabSize, ForkJoinPool pool) throws IOException {
+        interpolate(interpolateFaces(geom, pool), kernel, sink, slabSize, pool);
+    }
+
+    /**
+     * Same as
+     * {@link #interpolate(Geometry, TfiKernel, SlabSink, int, ForkJoinPool)},
+     * from boundary faces computed earlier.
+     *
+     * @param faces boundary faces from {@link #interpolateFaces(Geometry)}
+     * @param kernel kernel used for the interior points
+     * @param sink receiver of the slabs
+     * @param slabSize number of planes in each slab
+     * @param pool pool in which the slabs are computed
+     * @throws IOException if the sink fails to write a slab
+     */
+    public static void interpolate(BoundaryFaces faces, TfiKernel kernel,
+            SlabSink sink, int slabSize, ForkJoinPool pool) throws IOException {
+        interpolateSlabs(faces, kernel, sink, slabSize, pool);
+    }
+
+    /**
+     * Same as
+     * {@link #interpolate(Geometry, TfiKernel, SlabSink, int, ForkJoinPool)},
+     * with the computation and the writing overlapped. The slabs are computed
+     * in the pool into a ring of reusable buffers, while a separate thread
+     * passes the computed slabs to the sink.
+     *
+     * @param geom geometry to be meshed
+     * @param kernel kernel used for the interior points
+     * @param sink receiver of the slabs, called from the writer thread
+     * @param slabSize number of planes in each slab
+     * @param numBuffers number of slab buffers in the ring
+     * @param pool pool in which the slabs are computed
+     * @return time spent in, and waiting for, computing and writing
+     * @throws IOException if the sink fails to write a slab
+     */
+    public static PipelineStatistics interpolatePipelined(Geometry geom, TfiKernel kernel,
+            SlabSink sink, int slabSize, int numBuffers, ForkJoinPool pool) throws IOException {
+        return interpolatePipelined(geom, kernel, sink, slabSize, numBuffers, pool, ProgressMonitor.NONE);
+    }
+
+    /**
+     * Same as
+     * {@link #interpolatePipelined(Geometry, TfiKernel, SlabSink, int, int, ForkJoinPool)},
+     * reporting the progress of the computation to the monitor. On
+     * cancellation the sink receives no further slabs; the caller is
+     * responsible for discarding what it has written so far.
+     *
+     * @param geom geometry to be meshed
+     * @param kernel kernel used for the interior points
+     * @param sink receiver of the slabs, called from the writer thread
+     * @param slabSize number of planes in each slab
+     * @param numBuffers number of slab buffers in the ring
+     * @param pool pool in which the slabs are computed
+     * @param monitor receiver of the progress and source of cancellation
+     * @return time spent in, and waiting for, computing and writing
+     * @throws IOException if the sink fails to write a slab
+     * @throws java.util.concurrent.CancellationException if the monitor is
+     * cancelled
+     */
+    public static PipelineStatistics interpolatePipelined(Geometry geom, TfiKernel kernel,
+            SlabSink sink, int slabSize, int numBuffers, ForkJoinPool pool,
+            ProgressMonitor monitor) throws IOException {
+        return interpolatePipelined(interpolateFaces(geom, pool), kernel, sink, slabSize, numBuffers,
+                pool, monitor);
+    }
+
+    /**
+     * Same as
+     * {@link #interpolatePipelined(Geometry, TfiKernel, SlabSink, int, int, ForkJoinPool)},
+     * from boundary faces computed earlier.
+     *
+     * @param faces boundary faces from {@link #interpolateFaces(Geometry)}
+     * @param kernel kernel used for the interior points
+     * @param sink receiver of the slabs, called from the writer thread
+     * @param slabSize number of planes in each slab
+     * @param numBuffers number of slab buffers in the ring
+     * @param pool pool in which the slabs are computed
+     * @return time spent in, and waiting for, computing and writing
+     * @throws IOException if the sink fails to write a slab
+     */
+    public static PipelineStatistics interpolatePipelined(BoundaryFaces faces, TfiKernel kernel,
+            SlabSink sink, int slabSize, int numBuffers, ForkJoinPool pool) throws IOException {
+        return interpolatePipelined(faces, kernel, sink, slabSize, numBuffers, pool, ProgressMonitor.NONE);
+    }
+
+    /**
+     * Same as
+     * {@link #interpolatePipelined(Geometry, TfiKernel, SlabSink, int, int, ForkJoinPool, ProgressMonitor)},
+     * from boundary faces computed earlier.
+     *
+     * @param faces boundary faces from {@link #interpolateFaces(Geometry)}
+     * @param kernel kernel used for the interior points
+     * @param sink receiver of the slabs, called from the writer thread
+     * @param slabSize number of planes in each slab
+     * @param numBuffers number of slab buffers in the ring
+     * @param pool pool in which the slabs are computed
+     * @param monitor receiver of the progress and source of cancellation
+     * @return time spent in, and waiting for, computing and writing
+     * @throws IOException if the sink fails to write a slab
+     * @throws java.util.concurrent.CancellationException if the monitor is
+     * cancelled
+     */
+    public static PipelineStatistics interpolatePipelined(BoundaryFaces faces, TfiKernel kernel,
+            SlabSink sink, int slabSize, int numBuffers, ForkJoinPool pool,
+            ProgressMonitor monitor) throws IOException {
+        return SlabPipeline.run(faces, kernel, sink, slabSize, numBuffers, pool, monitor);
+    }
+
+    private static void interpolateSlabs(BoundaryFaces faces, TfiKernel kernel,
+            SlabSink sink, int slabSize, ForkJoinPool pool) throws IOException {
+        if (slabSize < 1) {
+            throw new IllegalArgumentException("The slab size must be at least 1.");
         }
+        int numXiPoints = faces.numXiPoints();
+        int numEtaPoints = faces.numEtaPoints();
+        int numZetaPoints = faces.numZetaPoints();
+        SlabDirection direction = sink.slabDirection();
+        int numPlanes = direction == SlabDirection.XI ? numXiPoints : numZetaPoints;
 
-        // zeta = 0
-        Point[][] zeta0 = interpolateFace(geom.zeta0());
-        k = 0;
-        for (i = 0; i < numXiPoints; i++) {
-            for (j = 0; j < numEtaPoints; j++) {
-                volPoints[i][j][k] = zeta0[i][j];
+        StructuredGrid slab = null;
+        for (int start = 0; start < numPlanes; start += slabSize) {
+            int size = Math.min(slabSize, numPlanes - start);
+            if (slab == null || size != slabSize) {
+                slab = direction.newSlab(numXiPoints, numEtaPoints, numZetaPoints, size,
+                        sink.storageOrder());
+            }
+            if (pool == null) {
+                interpolateSlab(faces, kernel, direction, start, slab, false, ProgressMonitor.NONE);
+            } else {
+                StructuredGrid currentSlab = slab;
+                int currentStart = start;
+                pool.invoke(ForkJoinTask.adapt(() -> interpolateSlab(
+                        faces, kernel, direction, currentStart, currentSlab, true, ProgressMonitor.NONE)));
             }
+            sink.accept(slab, start);
         }
+    }
 
-        // zeta = 1
-        Point[][] zeta1 = interpolateFace(geom.zeta1());
-        k = numZetaPoints - 1;
-        for (i = 0; i < numXiPoints; i++) {
-            for (j = 0; j < numEtaPoints; j++) {
-                volPoints[i][j][k] = zeta1[i][j];
-            }
+    /**
+     * Computes the slab starting at the given plane. The slab is filled line
+     * by line; each line depends only on the boundary faces, so the lines can
+     * be computed independently. Every completed line is reported to the
+     * monitor.
+     */
+    static void interpolateSlab(BoundaryFaces faces, TfiKernel kernel,
+            SlabDirection direction, int start, StructuredGrid slab, boolean parallel,
+            ProgressMonitor monitor) {
+        PhaseEvent event = PhaseEvent.begin("Volume interpolation");
+        if (PhaseEvent.isEnabled()) {
+            // built for every slab, so only when it is recorded
+            event.subject(direction + " planes from " + start);
         }
+        if (parallel) {
+            event.parallel();
+        }
+        int numEtaPoints = slab.numEtaPoints();
+        int iStart = direction == SlabDirection.XI ? start : 0;
+        int kStart = direction == SlabDirection.ZETA ? start : 0;
+        int kEnd = kStart + slab.numZetaPoints();
+        if (slab.storageOrder() == StorageOrder.XI_FASTEST) {
+            int numTiles = (slab.numXiPoints() + TILE_XI - 1) / TILE_XI;
+            range(0, numEtaPoints * numTiles, parallel).forEach(tile -> interpolateXiFastest(
+                    faces, kernel, iStart, tile / numTiles, (tile % numTiles) * TILE_XI,
+                    kStart, kEnd, slab, monitor));
+        } else {
+            range(0, slab.numXiPoints() * numEtaPoints, parallel).forEach(line -> {
+                int i = line / numEtaPoints;
+                int j = line % numEtaPoints;
+                kernel.interpolateLine(faces, iStart + i, j, kStart, kEnd,
+                        slab, slab.index(i, j, 0));
+                monitor.completed(kEnd - kStart);
+            });
+        }
+        event.finish(slab.numPoints(), 0);
+    }
 
-        double dXi = 1.0 / (numXiPoints - 1);
-        double dEta = 1.0 / (numEtaPoints - 1);
-        double dZeta = 1.0 / (numZetaPoints - 1);
-        int xiEnd = numXiPoints - 1;
-        int etaEnd = numEtaPoints - 1;
-        int zetaEnd = numZetaPoints - 1;
-        for (i = 1; i < numXiPoints - 1; i++) {
-            double xi = i * dXi;
-            for (j = 1; j < numEtaPoints - 1; j++) {
-                double eta = j * dEta;
-                for (k = 1; k < numZetaPoints - 1; k++) {
-                    double zeta = k * dZeta;
-
-                    // Linear projection
-                    Point proj_xi = volPoints[0][j][k].mul(1 - xi)
-                            .add(volPoints[xiEnd][j][k].mul(xi));
-
-                    Point proj_eta = volPoints[i][0][k].mul(1 - eta)
-                            .add(volPoints[i][etaEnd][k].mul(eta));
-
-                    Point proj_zeta = volPoints[i][j][0].mul(1 - zeta)
-                            .add(volPoints[i][j][zetaEnd].mul(zeta));
-
-                    // Bi-linear projection
-                    Point proj_xi_eta
-                            = volPoints[0][0][k].mul((1 - xi) * (1 - eta))
-                            .add(volPoints[0][etaEnd][k].mul((1 - xi) * eta))
-                            .add(volPoints[xiEnd][0][k].mul(xi * (1 - eta)))
-                            .add(volPoints[xiEnd][etaEnd][k].mul(xi * eta));
-
-                    Point proj_eta_zeta
-                            = volPoints[i][0][0].mul((1 - eta) * (1 - zeta))
-                            .add(volPoints[i][0][zetaEnd].mul((1 - eta) * zeta))
-                            .add(volPoints[i][etaEnd][0].mul(eta * (1 - zeta)))
-                            .add(volPoints[i][etaEnd][zetaEnd].mul(eta * zeta));
-
-                    Point proj_xi_zeta
-                            = volPoints[0][j][0].mul((1 - xi) * (1 - zeta))
-                            .add(volPoints[0][j][zetaEnd].mul((1 - xi) * zeta))
-                            .add(volPoints[xiEnd][j][0].mul(xi * (1 - zeta)))
-                            .add(volPoints[xiEnd][j][zetaEnd].mul(xi * zeta));
-
-                    // Tri-linear projection
-                    Point proj_xi_eta_zeta
-                            = volPoints[0][0][0].mul((1 - xi) * (1 - eta) * (1 - zeta))
-                            .add(volPoints[xiEnd][0][0].mul(xi * (1 - eta) * (1 - zeta)))
-                            .add(volPoints[0][etaEnd][0].mul((1 - xi) * eta * (1 - zeta)))
-                            .add(volPoints[0][0][zetaEnd].mul((1 - xi) * (1 - eta) * zeta))
-                            .add(volPoints[xiEnd][etaEnd][0].mul(xi * eta * (1 - zeta)))
-                            .add(volPoints[xiEnd][0][zetaEnd].mul(xi * (1 - eta) * zeta))
-                            .add(volPoints[0][etaEnd][zetaEnd].mul((1 - xi) * eta * zeta))
-                            .add(volPoints[xiEnd][etaEnd][zetaEnd].mul(xi * eta * zeta));
-
-                    volPoints[i][j][k] = proj_xi
-                            .add(proj_eta)
-                            .add(proj_zeta)
-                            .sub(proj_eta_zeta)
-                            .sub(proj_xi_eta)
-                            .sub(proj_xi_zeta)
-                            .add(proj_xi_eta_zeta);
+    /**
+     * Interpolates TILE_XI lines of the eta plane j, from the xi index
+     * iFirst on, of a slab stored with the xi index changing fastest. The
+     * kernels produce lines along zeta, so the lines are computed into the
+     * zeta fastest buffer of the worker thread and then transposed into the
+     * slab in tiles of TILE_XI x TILE_ZETA points, reading along zeta and
+     * writing contiguous xi rows.
+     */
+    private static void interpolateXiFastest(BoundaryFaces faces, TfiKernel kernel,
+            int iStart, int j, int iFirst, int kStart, int kEnd, StructuredGrid slab,
+            ProgressMonitor monitor) {
+        int numLines = Math.min(TILE_XI, slab.numXiPoints() - iFirst);
+        int numPlanes = kEnd - kStart;
+        StructuredGrid buffer = LINE_BUFFER.get();
+        if (buffer.numZetaPoints() < numPlanes) {
+            buffer = new StructuredGrid(TILE_XI, 1, numPlanes);
+            LINE_BUFFER.set(buffer);
+        }
+        for (int i = 0; i < numLines; i++) {
+            kernel.interpolateLine(faces, iStart + iFirst + i, j, kStart, kEnd,
+                    buffer, buffer.index(i, 0, 0));
+            monitor.completed(numPlanes);
+        }
+        for (int kTile = 0; kTile < numPlanes; kTile += TILE_ZETA) {
+            int kTileEnd = Math.min(kTile + TILE_ZETA, numPlanes);
+            for (int i = 0; i < numLines; i++) {
+                int from = buffer.index(i, 0, kTile);
+                for (int k = kTile; k < kTileEnd; k++, from++) {
+                    int to = slab.index(iFirst + i, j, k);
+                    slab.x[to] = buffer.x[from];
+                    slab.y[to] = buffer.y[from];
+                    slab.z[to] = buffer.z[from];
                 }
             }
         }
+    }
 
-        return volPoints;
+    /**
+     * Interpolates the six boundary faces of the geometry. The result can be
+     * passed to the interpolation methods taking {@link BoundaryFaces} any
+     * number of times.
+     *
+     * @param geom geometry to be meshed
+     * @return the interpolated boundary faces
+     */
+    public static BoundaryFaces interpolateFaces(Geometry geom) {
+        return interpolateFaces(geom, false);
+    }
+
+    /**
+     * Same as {@link #interpolateFaces(Geometry)}, with the faces interpolated
+     * concurrently in the supplied pool.
+     *
+     * @param geom geometry to be meshed
+     * @param pool pool in which the faces are interpolated
+     * @return the interpolated boundary faces
+     */
+    public static BoundaryFaces interpolateFaces(Geometry geom, ForkJoinPool pool) {
+        return pool.invoke(ForkJoinTask.adapt(() -> interpolateFaces(geom, true)));
+    }
+
+    private static BoundaryFaces interpolateFaces(Geometry geom, boolean parallel) {
+        PhaseEvent event = PhaseEvent.begin("Face interpolation");
+        if (parallel) {
+            event.parallel();
+        }
+        FaceSet set = geom.faces();
+        List<Supplier<StructuredGrid>> faces = Arrays.asList(
+                () -> interpolateFace(set.edge(Edge.xi0_eta0), set.edge(Edge.xi0_eta1),
+                        set.edge(Edge.xi0_zeta0), set.edge(Edge.xi0_zeta1)),
+                () -> interpolateFace(set.edge(Edge.xi1_eta0), set.edge(Edge.xi1_eta1),
+                        set.edge(Edge.xi1_zeta0), set.edge(Edge.xi1_zeta1)),
+                () -> interpolateFace(set.edge(Edge.xi0_eta0), set.edge(Edge.xi1_eta0),
+                        set.edge(Edge.eta0_zeta0), set.edge(Edge.eta0_zeta1)),
+                () -> interpolateFace(set.edge(Edge.xi0_eta1), set.edge(Edge.xi1_eta1),
+                        set.edge(Edge.eta1_zeta0), set.edge(Edge.eta1_zeta1)),
+                () -> interpolateFace(set.edge(Edge.xi0_zeta0), set.edge(Edge.xi1_zeta0),
+                        set.edge(Edge.eta0_zeta0), set.edge(Edge.eta1_zeta0)),
+                () -> interpolateFace(set.edge(Edge.xi0_zeta1), set.edge(Edge.xi1_zeta1),
+                        set.edge(Edge.eta0_zeta1), set.edge(Edge.eta1_zeta1)));
+        StructuredGrid[] facePoints = range(0, faces.size(), parallel)
+                .mapToObj(f -> faces.get(f).get())
+                .toArray(size -> new StructuredGrid[size]);
+
+        BoundaryFaces boundaryFaces = new BoundaryFaces(facePoints[0], facePoints[1],
+                facePoints[2], facePoints[3], facePoints[4], facePoints[5]);
+        long numPoints = 0;
+        for (StructuredGrid face : facePoints) {
+            numPoints += face.numPoints();
+        }
+        event.finish(numPoints, 0);
+
+        return boundaryFaces;
     }
 
+    /**
+     * Interpolates the points on a face bounded by four curves.
+     *
+     * @param face the bounding curves of the face
+     * @return surface points indexed as [dirB][dirA], i.e. the points along
+     * <code>dirB0()</code> change with the first index.
+     */
     public static Point[][] interpolateFace(Face face) {
-        Point[] xi0 = face.dirA0(); // left
-        Point[] xi1 = face.dirA1(); // right
-        Point[] eta0 = face.dirB0(); // bottom
-        Point[] eta1 = face.dirB1(); // top
+        return interpolateFaceGrid(face).toSurfacePoints();
+    }
 
-        int numEtaPoints = xi0.length;
-        int numXiPoints = eta0.length;
-        Point[][] surfacePoints = new Point[numXiPoints][numEtaPoints];
+    /**
+     * Same as {@link #interpolateFace(Face)}, with the points in a surface
+     * grid.
+     *
+     * @param face the bounding curves of the face
+     * @return surface grid indexed as (dirB, dirA), i.e. the points along
+     * <code>dirB0()</code> change with the first index.
+     */
+    public static StructuredGrid interpolateFaceGrid(Face face) {
+        return interpolateFace(Curve.fromPoints(face.dirA0()), Curve.fromPoints(face.dirA1()),
+                Curve.fromPoints(face.dirB0()), Curve.fromPoints(face.dirB1()));
+    }
+
+    private static StructuredGrid interpolateFace(Curve xi0, Curve xi1, Curve eta0, Curve eta1) {
+        int numEtaPoints = xi0.numPoints();
+        int numXiPoints = eta0.numPoints();
+        StructuredGrid surfacePoints = new StructuredGrid(numXiPoints, numEtaPoints, 1);
 
+        int end = numXiPoints - 1;
         double dXi = 1.0 / (numXiPoints - 1);
         double dEta = 1.0 / (numEtaPoints - 1);
         for (int iXi = 0; iXi < numXiPoints; iXi++) {
             double xi = iXi * dXi;
+            int line = iXi * numEtaPoints;
             for (int iEta = 0; iEta < numEtaPoints; iEta++) {
                 double eta = iEta * dEta;
-                surfacePoints[iXi][iEta] = (xi0[iEta].mul(1 - xi))
-                        .add(xi1[iEta].mul(xi))
-                        .add(eta0[iXi].mul(1 - eta))
-                        .add(eta1[iXi].mul(eta))
-                        .sub(eta0[0].mul((1 - xi) * (1 - eta)))
-                        .sub(eta1[0].mul((1 - xi) * eta))
-                        .sub(eta0[numXiPoints - 1].mul(xi * (1 - eta)))
-                        .sub(eta1[numXiPoints - 1].mul(xi * eta));
+                double a0 = 1 - xi;
+                double a1 = xi;
+                double b0 = 1 - eta;
+                double b1 = eta;
+                double c00 = (1 - xi) * (1 - eta);
+                double c01 = (1 - xi) * eta;
+                double c10 = xi * (1 - eta);
+                double c11 = xi * eta;
+                surfacePoints.x[line + iEta] = xi0.x[iEta] * a0 + xi1.x[iEta] * a1
+                        + eta0.x[iXi] * b0 + eta1.x[iXi] * b1
+                        - eta0.x[0] * c00 - eta1.x[0] * c01
+                        - eta0.x[end] * c10 - eta1.x[end] * c11;
+                surfacePoints.y[line + iEta] = xi0.y[iEta] * a0 + xi1.y[iEta] * a1
+                        + eta0.y[iXi] * b0 + eta1.y[iXi] * b1
+                        - eta0.y[0] * c00 - eta1.y[0] * c01
+                        - eta0.y[end] * c10 - eta1.y[end] * c11;
+                surfacePoints.z[line + iEta] = xi0.z[iEta] * a0 + xi1.z[iEta] * a1
+                        + eta0.z[iXi] * b0 + eta1.z[iXi] * b1
+                        - eta0.z[0] * c00 - eta1.z[0] * c01
+                        - eta0.z[end] * c10 - eta1.z[end] * c11;
             }
         }
 
         return surfacePoints;
     }
+
+    private static IntStream range(int startInclusive, int endExclusive, boolean parallel) {
+        IntStream range = IntStream.range(startInclusive, endExclusive);
+        return parallel ? range.parallel() : range;
+    }
 }
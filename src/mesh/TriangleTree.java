@@ -0,0 +1,263 @@
+package mesh;
+
+/**
+ * Bounding volume hierarchy of triangles for nearest distance queries. The
+ * tree is built by splitting the triangles at the median of their centroids
+ * along the longest extent, down to a few triangles per leaf. The nodes and
+ * the triangles are stored in flat arrays, the triangles of every leaf
+ * contiguous, and the queries allocate nothing, so any number of threads may
+ * query the tree at the same time.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+class TriangleTree {
+
+    private static final int LEAF_SIZE = 4;
+    // deep enough for a median split tree of any array size
+    static final int STACK_SIZE = 64;
+
+    // three corners of every triangle, in leaf order
+    private final double[] vertices;
+    // minX, minY, minZ, maxX, maxY, maxZ of every node
+    private final double[] bounds;
+    // index of the first child of an inner node, the second follows it
+    private final int[] firstChild;
+    // triangles of a leaf, empty for an inner node
+    private final int[] firstTriangle;
+    private final int[] numTriangles;
+    private int numNodes;
+
+    /**
+     * @param triangles three corners of every triangle, x, y and z of each
+     */
+    TriangleTree(double[] triangles) {
+        int count = triangles.length / 9;
+        if (count == 0) {
+            throw new IllegalArgumentException("There must be at least one triangle.");
+        }
+        // six bounds for each of up to two nodes per triangle
+        if (12L * count > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(
+                    "The hierarchy of " + count + " triangles exceeds the array size limit.");
+        }
+        double[] centroids = new double[3 * count];
+        int[] order = new int[count];
+        for (int t = 0; t < count; t++) {
+            order[t] = t;
+            for (int n = 0; n < 3; n++) {
+                centroids[3 * t + n] = (triangles[9 * t + n] + triangles[9 * t + 3 + n]
+                        + triangles[9 * t + 6 + n]) / 3;
+            }
+        }
+        int maxNodes = 2 * count;
+        bounds = new double[6 * maxNodes];
+        firstChild = new int[maxNodes];
+        firstTriangle = new int[maxNodes];
+        numTriangles = new int[maxNodes];
+        numNodes = 1;
+        build(0, 0, count, triangles, centroids, order);
+
+        vertices = new double[9 * count];
+        for (int t = 0; t < count; t++) {
+            System.arraycopy(triangles, 9 * order[t], vertices, 9 * t, 9);
+        }
+    }
+
+    private void build(int node, int start, int end, double[] triangles, double[] centroids, int[] order) {
+        double[] box = {
+            Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+            Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY
+        };
+        double[] centroidBox = box.clone();
+        for (int n = start; n < end; n++) {
+            int t = order[n];
+            for (int c = 0; c < 3; c++) {
+                for (int d = 0; d < 3; d++) {
+                    double value = triangles[9 * t + 3 * c + d];
+                    box[d] = Math.min(box[d], value);
+                    box[3 + d] = Math.max(box[3 + d], value);
+                }
+            }
+            for (int d = 0; d < 3; d++) {
+                centroidBox[d] = Math.min(centroidBox[d], centroids[3 * t + d]);
+                centroidBox[3 + d] = Math.max(centroidBox[3 + d], centroids[3 * t + d]);
+            }
+        }
+        System.arraycopy(box, 0, bounds, 6 * node, 6);
+
+        if (end - start <= LEAF_SIZE) {
+            firstTriangle[node] = start;
+            numTriangles[node] = end - start;
+            return;
+        }
+        int axis = 0;
+        for (int d = 1; d < 3; d++) {
+            if (centroidBox[3 + d] - centroidBox[d] > centroidBox[3 + axis] - centroidBox[axis]) {
+                axis = d;
+            }
+        }
+        int middle = (start + end) >>> 1;
+        select(order, centroids, axis, start, end - 1, middle);
+
+        int left = numNodes;
+        numNodes += 2;
+        firstChild[node] = left;
+        build(left, start, middle, triangles, centroids, order);
+        build(left + 1, middle, end, triangles, centroids, order);
+    }
+
+    /**
+     * Partially sorts order[low..high] by the centroid coordinate so that
+     * the element at k is in its sorted place.
+     */
+    private static void select(int[] order, double[] centroids, int axis, int low, int high, int k) {
+        while (high > low) {
+            double pivot = centroids[3 * order[(low + high) >>> 1] + axis];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (centroids[3 * order[i] + axis] < pivot) {
+                    i++;
+                }
+                while (centroids[3 * order[j] + axis] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = order[i];
+                    order[i] = order[j];
+                    order[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                high = j;
+            } else if (k >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Finds the squared distance from the point to the nearest triangle.
+     *
+     * @param stack scratch space of {@link #STACK_SIZE} nodes
+     * @param stackDistances scratch space of {@link #STACK_SIZE} distances
+     * @param nearest on input a triangle likely to be near, e.g. the result
+     * for a neighbouring point, and on output the nearest triangle
+     * @return squared distance to the nearest triangle
+     */
+    double distanceSquared(double px, double py, double pz, int[] stack, double[] stackDistances,
+            int[] nearest) {
+        int best = nearest[0];
+        double bestDistance = triangleDistanceSquared(best, px, py, pz);
+        int top = 0;
+        stack[top] = 0;
+        stackDistances[top++] = boxDistanceSquared(0, px, py, pz);
+        while (top > 0) {
+            int node = stack[--top];
+            if (stackDistances[top] >= bestDistance) {
+                continue;
+            }
+            int count = numTriangles[node];
+            if (count > 0) {
+                int first = firstTriangle[node];
+                for (int t = first; t < first + count; t++) {
+                    double distance = triangleDistanceSquared(t, px, py, pz);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = t;
+                    }
+                }
+            } else {
+                // visit the nearer child first, so it is pushed last
+                int left = firstChild[node];
+                double leftDistance = boxDistanceSquared(left, px, py, pz);
+                double rightDistance = boxDistanceSquared(left + 1, px, py, pz);
+                boolean leftFirst = leftDistance < rightDistance;
+                if (leftFirst && rightDistance < bestDistance) {
+                    stack[top] = left + 1;
+                    stackDistances[top++] = rightDistance;
+                }
+                if (leftDistance < bestDistance) {
+                    stack[top] = left;
+                    stackDistances[top++] = leftDistance;
+                }
+                if (!leftFirst && rightDistance < bestDistance) {
+                    stack[top] = left + 1;
+                    stackDistances[top++] = rightDistance;
+                }
+            }
+        }
+        nearest[0] = best;
+        return bestDistance;
+    }
+
+    private double boxDistanceSquared(int node, double px, double py, double pz) {
+        int b = 6 * node;
+        double dx = Math.max(0.0, Math.max(bounds[b] - px, px - bounds[b + 3]));
+        double dy = Math.max(0.0, Math.max(bounds[b + 1] - py, py - bounds[b + 4]));
+        double dz = Math.max(0.0, Math.max(bounds[b + 2] - pz, pz - bounds[b + 5]));
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Squared distance from the point to the closest point of the triangle,
+     * found from the region of the triangle plane in which the point lies.
+     */
+    private double triangleDistanceSquared(int t, double px, double py, double pz) {
+        double[] v = vertices;
+        int a = 9 * t;
+        double ax = v[a], ay = v[a + 1], az = v[a + 2];
+        double abx = v[a + 3] - ax, aby = v[a + 4] - ay, abz = v[a + 5] - az;
+        double acx = v[a + 6] - ax, acy = v[a + 7] - ay, acz = v[a + 8] - az;
+        double apx = px - ax, apy = py - ay, apz = pz - az;
+
+        double d1 = abx * apx + aby * apy + abz * apz;
+        double d2 = acx * apx + acy * apy + acz * apz;
+        if (d1 <= 0.0 && d2 <= 0.0) {
+            return squared(apx, apy, apz);
+        }
+        double bpx = apx - abx, bpy = apy - aby, bpz = apz - abz;
+        double d3 = abx * bpx + aby * bpy + abz * bpz;
+        double d4 = acx * bpx + acy * bpy + acz * bpz;
+        if (d3 >= 0.0 && d4 <= d3) {
+            return squared(bpx, bpy, bpz);
+        }
+        double vc = d1 * d4 - d3 * d2;
+        if (vc <= 0.0 && d1 >= 0.0 && d3 <= 0.0) {
+            double s = d1 / (d1 - d3);
+            return squared(apx - s * abx, apy - s * aby, apz - s * abz);
+        }
+        double cpx = apx - acx, cpy = apy - acy, cpz = apz - acz;
+        double d5 = abx * cpx + aby * cpy + abz * cpz;
+        double d6 = acx * cpx + acy * cpy + acz * cpz;
+        if (d6 >= 0.0 && d5 <= d6) {
+            return squared(cpx, cpy, cpz);
+        }
+        double vb = d5 * d2 - d1 * d6;
+        if (vb <= 0.0 && d2 >= 0.0 && d6 <= 0.0) {
+            double s = d2 / (d2 - d6);
+            return squared(apx - s * acx, apy - s * acy, apz - s * acz);
+        }
+        double va = d3 * d6 - d5 * d4;
+        if (va <= 0.0 && (d4 - d3) >= 0.0 && (d5 - d6) >= 0.0) {
+            double s = (d4 - d3) / ((d4 - d3) + (d5 - d6));
+            return squared(bpx - s * (acx - abx), bpy - s * (acy - aby), bpz - s * (acz - abz));
+        }
+        double sum = va + vb + vc;
+        if (!(sum > 0.0)) {
+            // degenerate triangle, all its points lie on a line or coincide
+            return squared(apx, apy, apz);
+        }
+        double s = vb / sum;
+        double w = vc / sum;
+        return squared(apx - s * abx - w * acx, apy - s * aby - w * acy, apz - s * abz - w * acz);
+    }
+
+    private static double squared(double x, double y, double z) {
+        return x * x + y * y + z * z;
+    }
+}
@@ -0,0 +1,63 @@
+package mesh;
+
+/**
+ * Blended transfinite interpolation arranged for automatic vectorization.
+ *
+ * The xi face terms and the xi-eta edge terms of a line only differ in the
+ * eta weights, so they are combined once per face in
+ * <code>BoundaryFaces.xiBlends()</code>. What remains
+ * along a line is
+ * <pre>
+ * x(k) = a0 d0(k) + a1 d1(k) + b0 x_eta0(k) + b1 x_eta1(k) + c0(k) bottom + c1(k) top
+ * </pre>
+ * which is computed one coordinate at a time, in a counted loop with a
+ * single index and no branches. HotSpot's superword optimization turns this
+ * loop into packed SIMD instructions of whatever width the processor offers,
+ * and runs it as scalar code otherwise.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+class VectorizedKernel {
+
+    private VectorizedKernel() {
+    }
+
+    static void interpolate(BoundaryFaces faces, int i, int j,
+            int kStart, int kEnd, StructuredGrid out, int offset) {
+        StructuredGrid[] xiBlends = faces.xiBlends();
+        StructuredGrid xi0Blend = xiBlends[0];
+        StructuredGrid xi1Blend = xiBlends[1];
+        interpolate(faces, xi0Blend.x, xi1Blend.x, faces.eta0.x, faces.eta1.x,
+                faces.zeta0.x, faces.zeta1.x, i, j, kStart, kEnd, out.x, offset);
+        interpolate(faces, xi0Blend.y, xi1Blend.y, faces.eta0.y, faces.eta1.y,
+                faces.zeta0.y, faces.zeta1.y, i, j, kStart, kEnd, out.y, offset);
+        interpolate(faces, xi0Blend.z, xi1Blend.z, faces.eta0.z, faces.eta1.z,
+                faces.zeta0.z, faces.zeta1.z, i, j, kStart, kEnd, out.z, offset);
+    }
+
+    private static void interpolate(BoundaryFaces faces,
+            double[] xi0Blend, double[] xi1Blend, double[] eta0, double[] eta1,
+            double[] zeta0, double[] zeta1,
+            int i, int j, int kStart, int kEnd, double[] out, int offset) {
+        int numZetaPoints = faces.numZetaPoints();
+
+        double a0 = faces.xiWeight0[i];
+        double a1 = faces.xiWeight1[i];
+        double b0 = faces.etaWeight0[j];
+        double b1 = faces.etaWeight1[j];
+
+        double bottom = BlendedKernel.zetaFaceTerm(faces, zeta0, i, j);
+        double top = BlendedKernel.zetaFaceTerm(faces, zeta1, i, j);
+
+        int xiLine = j * numZetaPoints + kStart;
+        int etaLine = i * numZetaPoints + kStart;
+        double[] c0 = faces.zetaWeight0;
+        double[] c1 = faces.zetaWeight1;
+        int length = kEnd - kStart;
+        for (int n = 0; n < length; n++) {
+            out[offset + n] = a0 * xi0Blend[xiLine + n] + a1 * xi1Blend[xiLine + n]
+                    + b0 * eta0[etaLine + n] + b1 * eta1[etaLine + n]
+                    + c0[kStart + n] * bottom + c1[kStart + n] * top;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package mesh;
+
+import geom.BoundaryFace;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+import util.PhaseEvent;
+
+/**
+ * Distance from every point of a volume grid to the nearest wall, as needed
+ * by turbulence models. The walls are any of the six boundary faces of the
+ * grid.
+ *
+ * Every cell face on a wall is split into two triangles, which are put into a
+ * bounding volume hierarchy. The distance of a point is then found by
+ * descending the hierarchy, pruning the boxes farther away than the nearest
+ * triangle so far. The points are processed line by line in parallel, and
+ * the search for a point starts from the nearest triangle of the previous
+ * point of the line, which prunes most of the boxes right away. The distance
+ * is exact to the triangulated walls, independent of the number of threads.
+ *
+ * The distances are numbered with i changing fastest, as in the VTK files.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class WallDistance {
+
+    private final int numXiPoints;
+    private final int numEtaPoints;
+    private final int numZetaPoints;
+    private final double[] distances;
+
+    private WallDistance(int numXiPoints, int numEtaPoints, int numZetaPoints) {
+        this.numXiPoints = numXiPoints;
+        this.numEtaPoints = numEtaPoints;
+        this.numZetaPoints = numZetaPoints;
+        this.distances = new double[numXiPoints * numEtaPoints * numZetaPoints];
+    }
+
+    /**
+     * Computes the distance from every point of the grid to the nearest of
+     * the wall faces. The boundary faces of the grid are the faces from
+     * {@link TransfiniteInterpolation#interpolateFaces(geom.Geometry)}, and
+     * stay fixed by {@link EllipticSmoother}.
+     *
+     * @param grid volume grid
+     * @param walls boundary faces of the grid which are walls
+     * @param pool pool in which the distances are computed
+     * @return the distance of every point
+     */
+    public static WallDistance compute(StructuredGrid grid, Set<BoundaryFace> walls, ForkJoinPool pool) {
+        if (walls.isEmpty()) {
+            throw new IllegalArgumentException("At least one face must be a wall.");
+        }
+        if (grid.numXiPoints() < 2 || grid.numEtaPoints() < 2 || grid.numZetaPoints() < 2) {
+            throw new IllegalArgumentException("The number of points in each direction must be at least 2.");
+        }
+        WallDistance wallDistance = new WallDistance(
+                grid.numXiPoints(), grid.numEtaPoints(), grid.numZetaPoints());
+        PhaseEvent event = PhaseEvent.begin("Wall distance").parallel();
+        if (PhaseEvent.isEnabled()) {
+            event.subject(walls.toString());
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> wallDistance.compute(grid, new TriangleTree(triangles(grid, walls)))));
+        event.finish(grid.numPoints(), 0);
+
+        return wallDistance;
+    }
+
+    private void compute(StructuredGrid grid, TriangleTree tree) {
+        IntStream.range(0, numEtaPoints * numZetaPoints).parallel().forEach(line -> {
+            int j = line % numEtaPoints;
+            int k = line / numEtaPoints;
+            int[] stack = new int[TriangleTree.STACK_SIZE];
+            double[] stackDistances = new double[TriangleTree.STACK_SIZE];
+            int[] nearest = new int[1];
+            for (int i = 0; i < numXiPoints; i++) {
+                int p = grid.index(i, j, k);
+                distances[line * numXiPoints + i] = Math.sqrt(
+                        tree.distanceSquared(grid.x[p], grid.y[p], grid.z[p], stack, stackDistances, nearest));
+            }
+        });
+    }
+
+    /**
+     * Splits the cell faces of the walls into triangles.
+     */
+    private static double[] triangles(StructuredGrid grid, Set<BoundaryFace> walls) {
+        int numXi = grid.numXiPoints();
+        int numEta = grid.numEtaPoints();
+        int numZeta = grid.numZetaPoints();
+        long numTriangles = 0;
+        for (BoundaryFace wall : walls) {
+            switch (wall) {
+                case xi0:
+                case xi1:
+                    numTriangles += 2L * (numEta - 1) * (numZeta - 1);
+                    break;
+                case eta0:
+                case eta1:
+                    numTriangles += 2L * (numXi - 1) * (numZeta - 1);
+                    break;
+                default:
+                    numTriangles += 2L * (numXi - 1) * (numEta - 1);
+                    break;
+            }
+        }
+        if (9 * numTriangles > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(
+                    "The walls have " + numTriangles + " triangles, which exceeds the array size limit.");
+        }
+        double[] triangles = new double[(int) (9 * numTriangles)];
+        int offset = 0;
+        for (BoundaryFace wall : walls) {
+            // the face as points (a, b) of a surface, mapped to (i, j, k) of the grid
+            int numA = wall == BoundaryFace.xi0 || wall == BoundaryFace.xi1 ? numEta : numXi;
+            int numB = wall == BoundaryFace.zeta0 || wall == BoundaryFace.zeta1 ? numEta : numZeta;
+            for (int a = 0; a < numA - 1; a++) {
+                for (int b = 0; b < numB - 1; b++) {
+                    int p00 = surfaceIndex(grid, wall, a, b);
+                    int p10 = surfaceIndex(grid, wall, a + 1, b);
+                    int p11 = surfaceIndex(grid, wall, a + 1, b + 1);
+                    int p01 = surfaceIndex(grid, wall, a, b + 1);
+                    offset = addPoint(triangles, offset, grid, p00);
+                    offset = addPoint(triangles, offset, grid, p10);
+                    offset = addPoint(triangles, offset, grid, p11);
+                    offset = addPoint(triangles, offset, grid, p00);
+                    offset = addPoint(triangles, offset, grid, p11);
+                    offset = addPoint(triangles, offset, grid, p01);
+                }
+            }
+        }
+
+        return triangles;
+    }
+
+    private static int surfaceIndex(StructuredGrid grid, BoundaryFace wall, int a, int b) {
+        switch (wall) {
+            case xi0:
+                return grid.index(0, a, b);
+            case xi1:
+                return grid.index(grid.numXiPoints() - 1, a, b);
+            case eta0:
+                return grid.index(a, 0, b);
+            case eta1:
+                return grid.index(a, grid.numEtaPoints() - 1, b);
+            case zeta0:
+                return grid.index(a, b, 0);
+            default:
+                return grid.index(a, b, grid.numZetaPoints() - 1);
+        }
+    }
+
+    private static int addPoint(double[] triangles, int offset, StructuredGrid grid, int p) {
+        triangles[offset] = grid.x[p];
+        triangles[offset + 1] = grid.y[p];
+        triangles[offset + 2] = grid.z[p];
+        return offset + 3;
+    }
+
+    public int numXiPoints() {
+        return numXiPoints;
+    }
+
+    public int numEtaPoints() {
+        return numEtaPoints;
+    }
+
+    public int numZetaPoints() {
+        return numZetaPoints;
+    }
+
+    public double distance(int i, int j, int k) {
+        return distances[(k * numEtaPoints + j) * numXiPoints + i];
+    }
+
+    /**
+     * @return the distance of every point, numbered with i changing fastest
+     */
+    public double[] distances() {
+        return distances;
+    }
+}
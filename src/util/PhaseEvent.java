@@ -0,0 +1,218 @@
+package util;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Flight recorder event covering one phase of the mesh generation: parsing,
+ * parameterization, sampling, interpolation or writing. The event records
+ * the thread which ran the phase, like every flight recorder event; phases
+ * run in parallel also record the number of worker threads.
+ *
+ * The events are recorded with <code>-XX:StartFlightRecording</code>, and
+ * cost next to nothing when no recording is running. The flight recorder API
+ * is not part of Java SE 8, so the event type
+ * <code>StructuredMeshGenerator.Phase</code> is registered reflectively
+ * through <code>jdk.jfr.EventFactory</code> when the running JVM has it; on
+ * other JVMs the events are never enabled.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class PhaseEvent {
+
+    private static final Recorder RECORDER = Recorder.create();
+    private static final PhaseEvent DISABLED = new PhaseEvent(null, null);
+
+    private final String phase;
+    private final Object event;
+    private String subject;
+    private int threads = 1;
+
+    private PhaseEvent(String phase, Object event) {
+        this.phase = phase;
+        this.event = event;
+    }
+
+    /**
+     * @return true if the phase events are being recorded, e.g. to skip
+     * building a subject which would not be recorded
+     */
+    public static boolean isEnabled() {
+        return RECORDER != null && RECORDER.isEnabled();
+    }
+
+    /**
+     * Starts timing a phase.
+     *
+     * @param phase name of the phase
+     * @return the started event
+     */
+    public static PhaseEvent begin(String phase) {
+        if (!isEnabled()) {
+            return DISABLED;
+        }
+        Object event = RECORDER.newEvent();
+        if (event == null) {
+            return DISABLED;
+        }
+
+        return new PhaseEvent(phase, event);
+    }
+
+    public PhaseEvent subject(String subject) {
+        if (event != null) {
+            this.subject = subject;
+        }
+        return this;
+    }
+
+    /**
+     * Records the parallelism of the fork/join pool running the current
+     * thread, or of the common pool outside of any pool.
+     */
+    public PhaseEvent parallel() {
+        if (event != null) {
+            ForkJoinPool pool = ForkJoinTask.getPool();
+            this.threads = (pool == null ? ForkJoinPool.commonPool() : pool).getParallelism();
+        }
+        return this;
+    }
+
+    /**
+     * Ends the phase and commits the event if it is being recorded.
+     *
+     * @param nodes number of points handled in the phase
+     * @param bytes number of bytes read or written in the phase
+     */
+    public void finish(long nodes, long bytes) {
+        if (event != null) {
+            RECORDER.commit(event, phase, subject, nodes, bytes, threads);
+        }
+    }
+
+    /**
+     * The event type, created with the flight recorder API of the running
+     * JVM, and the methods of its events.
+     */
+    private static class Recorder {
+
+        private final Object factory;
+        private final Object eventType;
+        private final Method newEvent;
+        private final Method isEnabled;
+        private final Method begin;
+        private final Method end;
+        private final Method shouldCommit;
+        private final Method set;
+        private final Method commit;
+
+        private Recorder() throws ReflectiveOperationException {
+            Class<?> elementClass = Class.forName("jdk.jfr.AnnotationElement");
+            Class<?> descriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+            Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory");
+            Class<?> eventClass = Class.forName("jdk.jfr.Event");
+            Constructor<?> element = elementClass.getConstructor(Class.class, Object.class);
+            Constructor<?> descriptor = descriptorClass.getConstructor(Class.class, String.class, List.class);
+
+            List<Object> annotations = Arrays.asList(
+                    element.newInstance(annotation("Name"), "StructuredMeshGenerator.Phase"),
+                    element.newInstance(annotation("Label"), "Mesh Generation Phase"),
+                    element.newInstance(annotation("Category"), new String[]{"Structured Mesh Generator"}),
+                    element.newInstance(annotation("Description"),
+                            "A phase of the mesh generation with the number of points handled"),
+                    element.newInstance(annotation("StackTrace"), false));
+            // in the order of the values in commit
+            List<Object> fields = Arrays.asList(
+                    descriptor.newInstance(String.class, "phase", labels(element, "Phase")),
+                    descriptor.newInstance(String.class, "subject", Arrays.asList(
+                            element.newInstance(annotation("Label"), "Subject"),
+                            element.newInstance(annotation("Description"),
+                                    "File or part of the mesh handled in the phase"))),
+                    descriptor.newInstance(long.class, "nodes", labels(element, "Nodes")),
+                    descriptor.newInstance(long.class, "bytes", Arrays.asList(
+                            element.newInstance(annotation("Label"), "Bytes"),
+                            element.newInstance(annotation("DataAmount"), "BYTES"))),
+                    descriptor.newInstance(int.class, "threads", labels(element, "Worker Threads")));
+
+            factory = factoryClass.getMethod("create", List.class, List.class)
+                    .invoke(null, annotations, fields);
+            eventType = factoryClass.getMethod("getEventType").invoke(factory);
+            newEvent = factoryClass.getMethod("newEvent");
+            isEnabled = eventType.getClass().getMethod("isEnabled");
+            begin = eventClass.getMethod("begin");
+            end = eventClass.getMethod("end");
+            shouldCommit = eventClass.getMethod("shouldCommit");
+            set = eventClass.getMethod("set", int.class, Object.class);
+            commit = eventClass.getMethod("commit");
+        }
+
+        /**
+         * @return the recorder, or null if the flight recorder API is not
+         * available
+         */
+        static Recorder create() {
+            try {
+                return new Recorder();
+            } catch (ReflectiveOperationException | RuntimeException | LinkageError ex) {
+                return null;
+            }
+        }
+
+        private static Class<?> annotation(String name) throws ClassNotFoundException {
+            return Class.forName("jdk.jfr." + name).asSubclass(Annotation.class);
+        }
+
+        private static List<Object> labels(Constructor<?> element, String label)
+                throws ReflectiveOperationException {
+            return Collections.singletonList(element.newInstance(annotation("Label"), label));
+        }
+
+        boolean isEnabled() {
+            try {
+                return (Boolean) isEnabled.invoke(eventType);
+            } catch (ReflectiveOperationException ex) {
+                return false;
+            }
+        }
+
+        /**
+         * @return a started event, or null if it cannot be created
+         */
+        Object newEvent() {
+            try {
+                Object event = newEvent.invoke(factory);
+                begin.invoke(event);
+                return event;
+            } catch (ReflectiveOperationException ex) {
+                return null;
+            }
+        }
+
+        void commit(Object event, String phase, String subject, long nodes, long bytes, int threads) {
+            try {
+                end.invoke(event);
+                if ((Boolean) shouldCommit.invoke(event)) {
+                    Object[] values = {phase, subject, nodes, bytes, threads};
+                    for (int n = 0; n < values.length; n++) {
+                        set.invoke(event, n, values[n]);
+                    }
+                    commit.invoke(event);
+                }
+            } catch (InvocationTargetException ex) {
+                if (ex.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                throw new IllegalStateException(ex.getCause());
+            } catch (IllegalAccessException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package geom;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Writes the geometry file of a box of size 2 x 1 x 1 whose edges bulge
+ * outwards, so that every edge is a true curve and the interpolation is not
+ * exact in any direction.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class CurvedBox {
+
+    private static final double[][] CORNERS = {
+        {0, 0, 0}, {2, 0, 0}, {2, 1, 0}, {0, 1, 0},
+        {0, 0, 1}, {2, 0, 1}, {2, 1, 1}, {0, 1, 1}
+    };
+
+    // label, start corner and end corner of each edge
+    private static final Object[][] EDGES = {
+        {"xi0_eta0", 0, 4}, {"xi0_eta1", 3, 7}, {"xi1_eta0", 1, 5}, {"xi1_eta1", 2, 6},
+        {"eta0_zeta0", 0, 1}, {"eta0_zeta1", 4, 5}, {"eta1_zeta0", 3, 2}, {"eta1_zeta1", 7, 6},
+        {"xi0_zeta0", 0, 3}, {"xi0_zeta1", 4, 7}, {"xi1_zeta0", 1, 2}, {"xi1_zeta1", 5, 6}
+    };
+
+    private CurvedBox() {
+    }
+
+    /**
+     * Writes the geometry with the given number of points on every edge.
+     */
+    public static File write(File file, int pointsPerCurve) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
+            for (Object[] edge : EDGES) {
+                double[] a = CORNERS[(Integer) edge[1]];
+                double[] b = CORNERS[(Integer) edge[2]];
+                writer.println(edge[0] + " " + pointsPerCurve);
+                for (int n = 0; n < pointsPerCurve; n++) {
+                    double t = n / (pointsPerCurve - 1.0);
+                    double bulge = 0.1 * Math.sin(Math.PI * t);
+                    writer.println((a[0] + (b[0] - a[0]) * t + bulge) + " "
+                            + (a[1] + (b[1] - a[1]) * t - bulge) + " "
+                            + (a[2] + (b[2] - a[2]) * t + bulge));
+                }
+                writer.println();
+            }
+        }
+
+        return file;
+    }
+}
@@ -0,0 +1,143 @@
+package io;
+
+import geom.Curve;
+import io.GeometryFileReader.Label;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * The hand-written number parser must give exactly the values of
+ * <code>Double.parseDouble</code>, and malformed files must be reported with
+ * the offending line.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class GeometryFileReaderTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("geom", ".dat");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void parsesNumbersLikeDoubleParseDouble() throws IOException {
+        List<String> tokens = new ArrayList<>();
+        String[] special = {
+            "0", "-0", "+1", "1.", ".5", "-.5", "007", "1e0", "1E+22", "1e23", "1e-22", "1e-23",
+            "123456789012345", "1234567890123456789", "0.000000000000000000000000001",
+            "9007199254740993", "2.2250738585072014E-308", "4.9e-324", "1.7976931348623157e308",
+            "1e400", "-1e-400", "0.1", "0.30000000000000004", "3.141592653589793238462643"
+        };
+        for (String token : special) {
+            tokens.add(token);
+        }
+        Random random = new Random(7);
+        for (int n = 0; n < 3000; n++) {
+            double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(40) - 20);
+            switch (n % 4) {
+                case 0:
+                    tokens.add(Double.toString(value));
+                    break;
+                case 1:
+                    tokens.add(String.format(Locale.ROOT, "%.6f", value));
+                    break;
+                case 2:
+                    tokens.add(String.format(Locale.ROOT, "%.10e", value));
+                    break;
+                default:
+                    tokens.add(String.format(Locale.ROOT, "%.17g", value));
+                    break;
+            }
+        }
+        while (tokens.size() % 3 != 0) {
+            tokens.add("1");
+        }
+
+        try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
+            writer.println("# coordinates in every format");
+            writer.println(Label.xi0_eta0 + " " + tokens.size() / 3);
+            for (int n = 0; n < tokens.size(); n += 3) {
+                writer.println(tokens.get(n) + " \t" + tokens.get(n + 1) + "  " + tokens.get(n + 2));
+            }
+        }
+        Curve curve = GeometryFileReader.readCurves(file).get(Label.xi0_eta0);
+        assertEquals(tokens.size() / 3, curve.numPoints());
+        for (int n = 0; n < tokens.size(); n++) {
+            double[] coordinates = n % 3 == 0 ? curve.x : n % 3 == 1 ? curve.y : curve.z;
+            double expected = Double.parseDouble(tokens.get(n));
+            double actual = coordinates[n / 3];
+            assertEquals(tokens.get(n), Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(actual));
+        }
+    }
+
+    @Test
+    public void readsAllLabelsInOnePass() throws IOException {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
+            writer.println(Label.eta1_zeta1 + " 2   # comment after the count");
+            writer.println("1 2 3");
+            writer.println("4 5 6");
+            writer.println();
+            writer.println(Label.xi0_zeta0 + " 1");
+            writer.println("  7 8 9  ");
+        }
+        Map<Label, Curve> curves = GeometryFileReader.readCurves(file);
+        assertEquals(Label.values().length, curves.size());
+        assertEquals(2, curves.get(Label.eta1_zeta1).numPoints());
+        assertEquals(6.0, curves.get(Label.eta1_zeta1).z[1], 0.0);
+        assertEquals(8.0, curves.get(Label.xi0_zeta0).y[0], 0.0);
+        assertEquals(0, curves.get(Label.xi0_eta0).numPoints());
+    }
+
+    @Test
+    public void reportsTheLineOfAnInvalidCoordinate() throws IOException {
+        assertError(":4: invalid coordinate '2,5'",
+                Label.xi0_eta0 + " 3", "0 0 0", "", "1 2,5 3", "4 5 6");
+    }
+
+    @Test
+    public void reportsTheLineOfAMissingCoordinate() throws IOException {
+        assertError(":3: expected three coordinates",
+                Label.xi0_eta0 + " 2", "0 0 0", "1 2");
+    }
+
+    @Test
+    public void reportsTheEndOfFileWithinACurve() throws IOException {
+        assertError("end of file after 1 of the 3 points of xi1_eta1 (declared on line 2)",
+                "# header", Label.xi1_eta1 + " 3", "0 0 0");
+    }
+
+    private void assertError(String expected, String... lines) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
+            for (String line : lines) {
+                writer.println(line);
+            }
+        }
+        try {
+            GeometryFileReader.readCurves(file);
+            fail("The file is not well formed.");
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().startsWith(file.getName() + ":"));
+            assertTrue(ex.getMessage(), ex.getMessage().contains(expected));
+        }
+    }
+}
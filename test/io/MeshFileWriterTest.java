@@ -0,0 +1,140 @@
+package io;
+
+import geom.CurvedBox;
+import geom.Geometry;
+import geom.GeometryFromFile;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CancellationException;
+import mesh.CancellationToken;
+import mesh.ProgressMonitor;
+import mesh.StructuredGrid;
+import mesh.TfiKernel;
+import mesh.TransfiniteInterpolation;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * The mesh files must stay identical to the ones of the original
+ * implementation, and a cancelled writer must not leave a partial file.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class MeshFileWriterTest {
+
+    // SHA-256 of the files written by the original implementation for the
+    // curved box with 17 x 11 x 9 points
+    private static final String BASELINE_DAT_SHA256
+            = "28fc374874c6b256d3fd952e8144b8c4de8c94caf82b796994080c45f5ec06b5";
+    private static final String BASELINE_VTK_SHA256
+            = "55b41c0ee184e1029b940daf558204eb042cddb8a9fdd93755f8e2dcf3f26dad";
+
+    private File directory;
+    private Geometry geom;
+    private StructuredGrid grid;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("mesh").toFile();
+        File geometryFile = CurvedBox.write(new File(directory, "curved.dat"), 40);
+        geom = new GeometryFromFile(geometryFile, 17, 11, 9);
+        grid = TransfiniteInterpolation.interpolate(geom, TfiKernel.REFERENCE);
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void datFileMatchesTheBaseline() throws Exception {
+        File file = new File(directory, "mesh.dat");
+        MeshFileWriter.writeMesh(grid, file.getPath());
+        assertEquals(BASELINE_DAT_SHA256, sha256(file));
+    }
+
+    @Test
+    public void vtkFileMatchesTheBaseline() throws Exception {
+        File file = new File(directory, "mesh.vtk");
+        MeshFileWriter.writeMeshVtkFormat(grid, file.getPath());
+        assertEquals(BASELINE_VTK_SHA256, sha256(file));
+    }
+
+    @Test
+    public void vtkFileWrittenSlabBySlabMatchesTheBaseline() throws Exception {
+        File file = new File(directory, "slabs.vtk");
+        try (VtkMeshWriter writer = new VtkMeshWriter(file.getPath(),
+                grid.numXiPoints(), grid.numEtaPoints(), grid.numZetaPoints())) {
+            TransfiniteInterpolation.interpolate(geom, TfiKernel.REFERENCE, writer, 4);
+        }
+        assertEquals(BASELINE_VTK_SHA256, sha256(file));
+    }
+
+    @Test
+    public void durableVtkFileMatchesTheBaseline() throws Exception {
+        File file = new File(directory, "durable.vtk");
+        try (VtkMeshWriter writer = new VtkMeshWriter(file.getPath(),
+                grid.numXiPoints(), grid.numEtaPoints(), grid.numZetaPoints())) {
+            writer.setDurable(true);
+            TransfiniteInterpolation.interpolate(geom, TfiKernel.REFERENCE, writer, 4);
+        }
+        assertEquals(BASELINE_VTK_SHA256, sha256(file));
+    }
+
+    @Test
+    public void cancelledDatFileIsDeleted() throws IOException {
+        File file = new File(directory, "mesh.dat");
+        try {
+            MeshFileWriter.writeMesh(grid, file.getPath(), cancelledAfterFirstReport());
+            fail("The writing has been cancelled.");
+        } catch (CancellationException expected) {
+        }
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void cancelledVtkFileIsDeleted() throws IOException {
+        File file = new File(directory, "mesh.vtk");
+        try {
+            MeshFileWriter.writeMeshVtkFormat(grid, file.getPath(), VtkPrecision.FLOAT,
+                    cancelledAfterFirstReport());
+            fail("The writing has been cancelled.");
+        } catch (CancellationException expected) {
+        }
+        assertFalse(file.exists());
+    }
+
+    /**
+     * @return a monitor which is cancelled as soon as the first points have
+     * been written, so that the file is left partially written
+     */
+    private static ProgressMonitor cancelledAfterFirstReport() {
+        CancellationToken token = new CancellationToken();
+        return new ProgressMonitor(null, token, 0) {
+            @Override
+            public void completed(long nodes) {
+                token.cancel();
+                super.completed(nodes);
+            }
+        };
+    }
+
+    private static String sha256(File file) throws IOException, NoSuchAlgorithmException {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file.toPath()))) {
+            hex.append(String.format("%02x", b));
+        }
+
+        return hex.toString();
+    }
+}
@@ -0,0 +1,202 @@
+package io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import mesh.StorageOrder;
+import mesh.StructuredGrid;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * The appended data of the .vts files, with and without the zlib block
+ * headers, must give back the points of the grid in xi fastest order.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class VtsMeshWriterTest {
+
+    private static final String APPENDED = "<AppendedData encoding=\"raw\">\n   _";
+    private static final String FOOTER = "\n  </AppendedData>\n</VTKFile>\n";
+    private static final Pattern PIECE = Pattern.compile("<Piece Extent=\"0 (\\d+) 0 (\\d+) (\\d+) (\\d+)\"");
+    private static final Pattern SOURCE = Pattern.compile("<Piece Extent=\"0 \\d+ 0 \\d+ (\\d+) (\\d+)\""
+            + " Source=\"([^\"]+)\"");
+
+    private File directory;
+    private StructuredGrid grid;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("vts").toFile();
+        // more points than fit in two blocks, stored in the other order than the file
+        grid = new StructuredGrid(64, 40, 30, StorageOrder.ZETA_FASTEST);
+        for (int i = 0; i < grid.numXiPoints(); i++) {
+            for (int j = 0; j < grid.numEtaPoints(); j++) {
+                for (int k = 0; k < grid.numZetaPoints(); k++) {
+                    grid.set(i, j, k, i + 0.3 * Math.sin(j + k), j * 1.1 + 0.01 * i * k, Math.exp(0.1 * k) - j);
+                }
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void vtsFileHoldsTheGrid() throws Exception {
+        for (VtkPrecision precision : VtkPrecision.values()) {
+            for (VtkCompression compression : VtkCompression.values()) {
+                File file = new File(directory, "mesh_" + precision + "_" + compression + ".vts");
+                MeshFileWriter.writeMeshVtsFormat(grid, file.getPath(), precision, compression);
+                String name = precision + " " + compression;
+                assertArrayEquals(name, expected(precision, 0, grid.numZetaPoints() - 1),
+                        read(file, precision, compression), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void pvtsPiecesHoldTheirSlabs() throws Exception {
+        for (VtkCompression compression : VtkCompression.values()) {
+            File file = new File(directory, "mesh_" + compression + ".pvts");
+            MeshFileWriter.writeMeshPvtsFormat(grid, file.getPath(), VtkPrecision.FLOAT, compression, 4);
+            String pvts = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            Matcher source = SOURCE.matcher(pvts);
+            int nextPlane = 0;
+            int pieces = 0;
+            while (source.find()) {
+                int firstPlane = Integer.parseInt(source.group(1));
+                int lastPlane = Integer.parseInt(source.group(2));
+                assertEquals(compression + " piece " + pieces, nextPlane, firstPlane);
+                assertArrayEquals(compression + " piece " + pieces,
+                        expected(VtkPrecision.FLOAT, firstPlane, lastPlane),
+                        read(new File(directory, source.group(3)), VtkPrecision.FLOAT, compression), 0.0);
+                // neighbouring pieces share their boundary plane
+                nextPlane = lastPlane;
+                pieces++;
+            }
+            assertEquals(compression.toString(), 4, pieces);
+            assertEquals(compression.toString(), grid.numZetaPoints() - 1, nextPlane);
+        }
+    }
+
+    /**
+     * The coordinates of the planes firstPlane to lastPlane, xi fastest, as
+     * they are stored with the precision.
+     */
+    private double[] expected(VtkPrecision precision, int firstPlane, int lastPlane) {
+        double[] coordinates = new double[3 * grid.numXiPoints() * grid.numEtaPoints()
+                * (lastPlane - firstPlane + 1)];
+        int n = 0;
+        for (int k = firstPlane; k <= lastPlane; k++) {
+            for (int j = 0; j < grid.numEtaPoints(); j++) {
+                for (int i = 0; i < grid.numXiPoints(); i++) {
+                    double[] point = {grid.getX(i, j, k), grid.getY(i, j, k), grid.getZ(i, j, k)};
+                    for (double coordinate : point) {
+                        coordinates[n++] = precision == VtkPrecision.FLOAT ? (float) coordinate : coordinate;
+                    }
+                }
+            }
+        }
+        return coordinates;
+    }
+
+    /**
+     * Reads the points of a .vts file, checking the extent, the sizes in the
+     * block headers and the footer.
+     */
+    private double[] read(File file, VtkPrecision precision, VtkCompression compression)
+            throws IOException, DataFormatException {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        String text = new String(bytes, StandardCharsets.ISO_8859_1);
+        int start = text.indexOf(APPENDED);
+        assertTrue("appended data", start > 0);
+        String header = text.substring(0, start);
+        assertEquals("compressor", compression != VtkCompression.NONE,
+                header.contains("compressor=\"vtkZLibDataCompressor\""));
+        assertTrue("data type", header.contains("type=\"" + precision.xmlTypeName() + "\" Name=\"Points\""));
+        Matcher piece = PIECE.matcher(header);
+        assertTrue("piece extent", piece.find());
+        long numPoints = (Long.parseLong(piece.group(1)) + 1) * (Long.parseLong(piece.group(2)) + 1)
+                * (Long.parseLong(piece.group(4)) - Long.parseLong(piece.group(3)) + 1);
+        long rawBytes = numPoints * 3 * precision.bytes();
+
+        ByteBuffer data = ByteBuffer.wrap(bytes, start + APPENDED.length(), bytes.length - start - APPENDED.length())
+                .order(ByteOrder.LITTLE_ENDIAN);
+        byte[] raw;
+        if (compression == VtkCompression.NONE) {
+            assertEquals("data size", rawBytes, data.getLong());
+            raw = new byte[(int) rawBytes];
+            data.get(raw);
+        } else {
+            int numBlocks = (int) data.getLong();
+            long blockBytes = data.getLong();
+            long lastBlockBytes = data.getLong();
+            assertEquals("block count", (rawBytes + blockBytes - 1) / blockBytes, numBlocks);
+            assertEquals("last block size", rawBytes - (numBlocks - 1) * blockBytes, lastBlockBytes);
+            long[] compressedBytes = new long[numBlocks];
+            for (int b = 0; b < numBlocks; b++) {
+                compressedBytes[b] = data.getLong();
+            }
+            ByteArrayOutputStream inflated = new ByteArrayOutputStream();
+            for (int b = 0; b < numBlocks; b++) {
+                byte[] block = new byte[(int) compressedBytes[b]];
+                data.get(block);
+                byte[] uncompressed = inflate(block, (int) (b < numBlocks - 1 ? blockBytes : lastBlockBytes));
+                inflated.write(uncompressed, 0, uncompressed.length);
+            }
+            raw = inflated.toByteArray();
+        }
+        byte[] footer = new byte[data.remaining()];
+        data.get(footer);
+        assertEquals("footer", FOOTER, new String(footer, StandardCharsets.ISO_8859_1));
+
+        ByteBuffer values = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+        double[] coordinates = new double[(int) (3 * numPoints)];
+        for (int n = 0; n < coordinates.length; n++) {
+            coordinates[n] = precision == VtkPrecision.FLOAT ? values.getFloat() : values.getDouble();
+        }
+        return coordinates;
+    }
+
+    /**
+     * Inflates a zlib stream which must give exactly size bytes.
+     */
+    private static byte[] inflate(byte[] block, int size) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(block);
+            byte[] uncompressed = new byte[size + 1];
+            int length = 0;
+            while (!inflater.finished() && length < uncompressed.length) {
+                int inflatedBytes = inflater.inflate(uncompressed, length, uncompressed.length - length);
+                assertTrue("truncated block", inflatedBytes > 0 || inflater.finished());
+                length += inflatedBytes;
+            }
+            assertTrue("block ends the zlib stream", inflater.finished());
+            assertEquals("block size", size, length);
+            assertEquals("bytes after the block", 0, inflater.getRemaining());
+            return Arrays.copyOf(uncompressed, size);
+        } finally {
+            inflater.end();
+        }
+    }
+}
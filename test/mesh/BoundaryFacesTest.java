@@ -0,0 +1,57 @@
+package mesh;
+
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * Faces which do not fit together must be rejected.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class BoundaryFacesTest {
+
+    @Test
+    public void acceptsMatchingFaces() {
+        faces(4, 3, 5, 0, 0);
+    }
+
+    @Test
+    public void rejectsMismatchedFaces() {
+        // xi0 face with one eta point too many
+        assertRejected(4, 3, 5, 1, 0);
+        // xi1 face with one zeta point too few
+        assertRejected(4, 3, 5, 0, -1);
+    }
+
+    @Test
+    public void rejectsSinglePointDirections() {
+        assertRejected(1, 3, 5, 0, 0);
+    }
+
+    @Test
+    public void rejectsXiFastestFaces() {
+        StructuredGrid face = new StructuredGrid(3, 5, 1, StorageOrder.XI_FASTEST);
+        try {
+            new BoundaryFaces(face, new StructuredGrid(3, 5, 1), new StructuredGrid(4, 5, 1),
+                    new StructuredGrid(4, 5, 1), new StructuredGrid(4, 3, 1), new StructuredGrid(4, 3, 1));
+            fail("The xi0 face is stored with xi changing fastest.");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static void assertRejected(int numXi, int numEta, int numZeta, int xi0EtaError, int xi1ZetaError) {
+        try {
+            faces(numXi, numEta, numZeta, xi0EtaError, xi1ZetaError);
+            fail("The faces do not fit together.");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static BoundaryFaces faces(int numXi, int numEta, int numZeta, int xi0EtaError, int xi1ZetaError) {
+        return new BoundaryFaces(
+                new StructuredGrid(numEta + xi0EtaError, numZeta, 1),
+                new StructuredGrid(numEta, numZeta + xi1ZetaError, 1),
+                new StructuredGrid(numXi, numZeta, 1), new StructuredGrid(numXi, numZeta, 1),
+                new StructuredGrid(numXi, numEta, 1), new StructuredGrid(numXi, numEta, 1));
+    }
+}
@@ -0,0 +1,116 @@
+package mesh;
+
+import geom.CurvedBox;
+import geom.GeometryFromFile;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * A uniform Cartesian grid must be a fixed point of the smoother, and the
+ * residual of a disturbed grid must decrease, independent of the number of
+ * threads.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class EllipticSmootherTest {
+
+    private static ForkJoinPool pool;
+
+    @BeforeClass
+    public static void setUpClass() {
+        pool = new ForkJoinPool(2);
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void uniformGridIsAFixedPoint() {
+        StructuredGrid grid = cartesian(6, 5, 7, 0.5, 0.25, 0.2);
+        StructuredGrid original = cartesian(6, 5, 7, 0.5, 0.25, 0.2);
+        SmoothingResult result = new EllipticSmoother(10, 1e-12, 1.5).smooth(grid, pool);
+        assertTrue(result.toString(), result.finalResidual() < 1e-14);
+        for (int n = 0; n < grid.numPoints(); n++) {
+            assertEquals(original.x[n], grid.x[n], 1e-14);
+            assertEquals(original.y[n], grid.y[n], 1e-14);
+            assertEquals(original.z[n], grid.z[n], 1e-14);
+        }
+    }
+
+    @Test
+    public void residualOfADisturbedGridDecreases() throws IOException {
+        StructuredGrid grid = disturbedCurvedBox();
+        SmoothingResult result = new EllipticSmoother(200, 1e-6, 1.2).smooth(grid, pool);
+        assertTrue(result.toString(), result.iterations() > 1);
+        assertTrue(result.toString(), result.finalResidual() < 1e-3 * result.residual(0));
+    }
+
+    @Test
+    public void resultDoesNotDependOnTheNumberOfThreads() throws IOException {
+        StructuredGrid serial = disturbedCurvedBox();
+        StructuredGrid parallel = disturbedCurvedBox();
+        ForkJoinPool singleThread = new ForkJoinPool(1);
+        ForkJoinPool threeThreads = new ForkJoinPool(3);
+        try {
+            new EllipticSmoother(20, 0.0, 1.5).smooth(serial, singleThread);
+            new EllipticSmoother(20, 0.0, 1.5).smooth(parallel, threeThreads);
+        } finally {
+            singleThread.shutdown();
+            threeThreads.shutdown();
+        }
+        assertArrayEquals(serial.x, parallel.x, 0.0);
+        assertArrayEquals(serial.y, parallel.y, 0.0);
+        assertArrayEquals(serial.z, parallel.z, 0.0);
+    }
+
+    private static StructuredGrid cartesian(int numXiPoints, int numEtaPoints, int numZetaPoints,
+            double dx, double dy, double dz) {
+        StructuredGrid grid = new StructuredGrid(numXiPoints, numEtaPoints, numZetaPoints);
+        for (int i = 0; i < numXiPoints; i++) {
+            for (int j = 0; j < numEtaPoints; j++) {
+                for (int k = 0; k < numZetaPoints; k++) {
+                    grid.set(i, j, k, i * dx, j * dy, k * dz);
+                }
+            }
+        }
+
+        return grid;
+    }
+
+    /**
+     * @return the interpolated curved box with its interior points moved by
+     * up to a fifth of the spacing
+     */
+    private static StructuredGrid disturbedCurvedBox() throws IOException {
+        File file = CurvedBox.write(File.createTempFile("curved", ".dat"), 30);
+        try {
+            StructuredGrid grid = TransfiniteInterpolation.interpolate(
+                    new GeometryFromFile(file, 13, 9, 9), TfiKernel.BLENDED);
+            Random random = new Random(11);
+            for (int i = 1; i < grid.numXiPoints() - 1; i++) {
+                for (int j = 1; j < grid.numEtaPoints() - 1; j++) {
+                    for (int k = 1; k < grid.numZetaPoints() - 1; k++) {
+                        int n = grid.index(i, j, k);
+                        grid.x[n] += 0.2 * 2.0 / 12 * (random.nextDouble() - 0.5);
+                        grid.y[n] += 0.2 * 1.0 / 8 * (random.nextDouble() - 0.5);
+                        grid.z[n] += 0.2 * 1.0 / 8 * (random.nextDouble() - 0.5);
+                    }
+                }
+            }
+
+            return grid;
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package mesh;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.Assert.assertEquals;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * The metrics of a Cartesian grid are known exactly, and those of a
+ * distorted grid inside a box must still fill the box and close every cell.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class FiniteVolumeMetricsTest {
+
+    private static final double TOLERANCE = 1e-12;
+
+    private static ForkJoinPool pool;
+
+    @BeforeClass
+    public static void setUpClass() {
+        pool = new ForkJoinPool(2);
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void cartesianFacesAndCellsAreExact() {
+        double dx = 0.5;
+        double dy = 0.25;
+        double dz = 2.0;
+        FiniteVolumeMetrics metrics = FiniteVolumeMetrics.compute(box(5, 4, 3, dx, dy, dz), pool);
+        assertAreas(metrics.xiFaceAreas(), dy * dz, 0.0, 0.0);
+        assertAreas(metrics.etaFaceAreas(), 0.0, dx * dz, 0.0);
+        assertAreas(metrics.zetaFaceAreas(), 0.0, 0.0, dx * dy);
+        StructuredGrid centroids = metrics.cellCentroids();
+        for (int i = 0; i < metrics.numXiCells(); i++) {
+            for (int j = 0; j < metrics.numEtaCells(); j++) {
+                for (int k = 0; k < metrics.numZetaCells(); k++) {
+                    int n = centroids.index(i, j, k);
+                    assertEquals(dx * dy * dz, metrics.cellVolumes()[n], TOLERANCE);
+                    assertEquals((i + 0.5) * dx, centroids.x[n], TOLERANCE);
+                    assertEquals((j + 0.5) * dy, centroids.y[n], TOLERANCE);
+                    assertEquals((k + 0.5) * dz, centroids.z[n], TOLERANCE);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void cellVolumesOfADistortedGridFillTheBox() {
+        FiniteVolumeMetrics metrics = FiniteVolumeMetrics.compute(distortedBox(), pool);
+        double volume = 0.0;
+        for (double cellVolume : metrics.cellVolumes()) {
+            volume += cellVolume;
+        }
+        assertEquals(3.0 * 2.0 * 1.5, volume, TOLERANCE);
+    }
+
+    @Test
+    public void facesOfEveryCellOfADistortedGridAreClosed() {
+        FiniteVolumeMetrics metrics = FiniteVolumeMetrics.compute(distortedBox(), pool);
+        StructuredGrid xi = metrics.xiFaceAreas();
+        StructuredGrid eta = metrics.etaFaceAreas();
+        StructuredGrid zeta = metrics.zetaFaceAreas();
+        for (int i = 0; i < metrics.numXiCells(); i++) {
+            for (int j = 0; j < metrics.numEtaCells(); j++) {
+                for (int k = 0; k < metrics.numZetaCells(); k++) {
+                    // outward area vectors of the six faces sum to zero
+                    assertEquals(0.0, xi.getX(i + 1, j, k) - xi.getX(i, j, k)
+                            + eta.getX(i, j + 1, k) - eta.getX(i, j, k)
+                            + zeta.getX(i, j, k + 1) - zeta.getX(i, j, k), TOLERANCE);
+                    assertEquals(0.0, xi.getY(i + 1, j, k) - xi.getY(i, j, k)
+                            + eta.getY(i, j + 1, k) - eta.getY(i, j, k)
+                            + zeta.getY(i, j, k + 1) - zeta.getY(i, j, k), TOLERANCE);
+                    assertEquals(0.0, xi.getZ(i + 1, j, k) - xi.getZ(i, j, k)
+                            + eta.getZ(i, j + 1, k) - eta.getZ(i, j, k)
+                            + zeta.getZ(i, j, k + 1) - zeta.getZ(i, j, k), TOLERANCE);
+                }
+            }
+        }
+    }
+
+    private static void assertAreas(StructuredGrid areas, double x, double y, double z) {
+        for (int n = 0; n < areas.numPoints(); n++) {
+            assertEquals(x, areas.x[n], TOLERANCE);
+            assertEquals(y, areas.y[n], TOLERANCE);
+            assertEquals(z, areas.z[n], TOLERANCE);
+        }
+    }
+
+    /**
+     * @return a grid of the box 3 x 2 x 1.5 whose interior points are moved
+     * by up to a quarter of the spacing, so that no face is planar except on
+     * the boundary
+     */
+    private static StructuredGrid distortedBox() {
+        StructuredGrid grid = box(7, 5, 4, 0.5, 0.5, 0.5);
+        Random random = new Random(5);
+        for (int i = 1; i < grid.numXiPoints() - 1; i++) {
+            for (int j = 1; j < grid.numEtaPoints() - 1; j++) {
+                for (int k = 1; k < grid.numZetaPoints() - 1; k++) {
+                    int n = grid.index(i, j, k);
+                    grid.x[n] += 0.25 * (random.nextDouble() - 0.5);
+                    grid.y[n] += 0.25 * (random.nextDouble() - 0.5);
+                    grid.z[n] += 0.25 * (random.nextDouble() - 0.5);
+                }
+            }
+        }
+
+        return grid;
+    }
+
+    private static StructuredGrid box(int numXiPoints, int numEtaPoints, int numZetaPoints,
+            double dx, double dy, double dz) {
+        StructuredGrid grid = new StructuredGrid(numXiPoints, numEtaPoints, numZetaPoints);
+        for (int i = 0; i < numXiPoints; i++) {
+            for (int j = 0; j < numEtaPoints; j++) {
+                for (int k = 0; k < numZetaPoints; k++) {
+                    grid.set(i, j, k, i * dx, j * dy, k * dz);
+                }
+            }
+        }
+
+        return grid;
+    }
+}
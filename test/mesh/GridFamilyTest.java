@@ -0,0 +1,77 @@
+package mesh;
+
+import geom.CurvedBox;
+import geom.ParametricGeometry;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * The levels of a family must be exact injections of the finest grid, and
+ * sizes which cannot be coarsened must be rejected.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class GridFamilyTest {
+
+    @Test
+    public void acceptsCompatibleSizes() {
+        GridFamily.checkSizes(2, 2, 2, 1);
+        GridFamily.checkSizes(3, 5, 9, 2);
+        GridFamily.checkSizes(17, 9, 33, 4);
+        GridFamily.checkSizes(5, 5, 5, 3);
+    }
+
+    @Test
+    public void rejectsIncompatibleSizes() {
+        assertRejected(1, 5, 5, 1);
+        assertRejected(5, 5, 5, 0);
+        assertRejected(5, 5, 5, 32);
+        assertRejected(4, 5, 5, 2);
+        assertRejected(9, 7, 9, 3);
+        assertRejected(9, 9, 9, 5);
+    }
+
+    @Test
+    public void coarseLevelsAreInjectedFromTheFinest() throws IOException {
+        File file = CurvedBox.write(File.createTempFile("curved", ".dat"), 30);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            GridFamily family = GridFamily.generate(ParametricGeometry.read(file),
+                    17, 9, 5, 3, TfiKernel.VECTORIZED, pool);
+            assertEquals(3, family.numLevels());
+            StructuredGrid finest = family.level(0);
+            for (int level = 1; level < family.numLevels(); level++) {
+                StructuredGrid coarse = family.level(level);
+                int step = 1 << level;
+                assertEquals((finest.numXiPoints() - 1) / step + 1, coarse.numXiPoints());
+                assertEquals((finest.numEtaPoints() - 1) / step + 1, coarse.numEtaPoints());
+                assertEquals((finest.numZetaPoints() - 1) / step + 1, coarse.numZetaPoints());
+                for (int i = 0; i < coarse.numXiPoints(); i++) {
+                    for (int j = 0; j < coarse.numEtaPoints(); j++) {
+                        for (int k = 0; k < coarse.numZetaPoints(); k++) {
+                            assertEquals(finest.getX(step * i, step * j, step * k), coarse.getX(i, j, k), 0.0);
+                            assertEquals(finest.getY(step * i, step * j, step * k), coarse.getY(i, j, k), 0.0);
+                            assertEquals(finest.getZ(step * i, step * j, step * k), coarse.getZ(i, j, k), 0.0);
+                        }
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+            file.delete();
+        }
+    }
+
+    private static void assertRejected(int numXiPoints, int numEtaPoints, int numZetaPoints, int numLevels) {
+        try {
+            GridFamily.checkSizes(numXiPoints, numEtaPoints, numZetaPoints, numLevels);
+            fail(numXiPoints + " x " + numEtaPoints + " x " + numZetaPoints
+                    + " points cannot have " + numLevels + " levels.");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package mesh;
+
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * The quality of cells whose shape is known exactly: cubes, stretched boxes
+ * and mirrored, i.e. inverted, cubes.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class MeshQualityTest {
+
+    private static final double TOLERANCE = 1e-12;
+
+    private static ForkJoinPool pool;
+
+    @BeforeClass
+    public static void setUpClass() {
+        pool = new ForkJoinPool(2);
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void unitCubesArePerfect() {
+        MeshQuality quality = MeshQuality.analyze(box(4, 3, 5, 1.0, 1.0, 1.0), pool, true);
+        assertEquals(3 * 2 * 4, quality.numCells());
+        assertEquals(0, quality.numInvertedCells());
+        assertAllCells(quality, QualityMetric.JACOBIAN, 1.0);
+        assertAllCells(quality, QualityMetric.SKEWNESS, 0.0);
+        assertAllCells(quality, QualityMetric.ASPECT_RATIO, 1.0);
+        assertAllCells(quality, QualityMetric.ORTHOGONALITY, 1.0);
+    }
+
+    @Test
+    public void stretchedBoxesHaveTheRatioOfTheirSides() {
+        MeshQuality quality = MeshQuality.analyze(box(3, 3, 3, 4.0, 1.0, 2.0), pool, true);
+        assertEquals(0, quality.numInvertedCells());
+        assertAllCells(quality, QualityMetric.JACOBIAN, 1.0);
+        assertAllCells(quality, QualityMetric.SKEWNESS, 0.0);
+        assertAllCells(quality, QualityMetric.ASPECT_RATIO, 4.0);
+        assertEquals(4.0, quality.worst(QualityMetric.ASPECT_RATIO), TOLERANCE);
+    }
+
+    @Test
+    public void mirroredCubesAreInverted() {
+        StructuredGrid grid = box(3, 2, 2, 1.0, 1.0, 1.0);
+        for (int n = 0; n < grid.numPoints(); n++) {
+            grid.x[n] = -grid.x[n];
+        }
+        MeshQuality quality = MeshQuality.analyze(grid, pool, true);
+        assertEquals(2, quality.numInvertedCells());
+        assertAllCells(quality, QualityMetric.JACOBIAN, -1.0);
+        assertEquals(-1.0, quality.worst(QualityMetric.JACOBIAN), TOLERANCE);
+    }
+
+    @Test
+    public void cellWithACornerPushedThroughIsInverted() {
+        StructuredGrid grid = box(2, 2, 2, 1.0, 1.0, 1.0);
+        grid.set(1, 1, 1, -0.5, -0.5, -0.5);
+        MeshQuality quality = MeshQuality.analyze(grid, pool, true);
+        assertEquals(1, quality.numInvertedCells());
+        assertTrue(quality.toString(), quality.worst(QualityMetric.JACOBIAN) < 0.0);
+    }
+
+    @Test
+    public void slabsGiveTheSameQualityAsTheWholeGrid() {
+        StructuredGrid grid = box(5, 3, 4, 1.0, 2.0, 0.5);
+        grid.set(2, 1, 1, 2.3, 1.6, 0.7);
+        MeshQuality whole = MeshQuality.analyze(grid, pool, true);
+        MeshQuality slabs = new MeshQuality(5, 3, 4, true);
+        for (int start = 0; start < 5; start += 2) {
+            int numPlanes = Math.min(2, 5 - start);
+            StructuredGrid slab = new StructuredGrid(numPlanes, 3, 4);
+            System.arraycopy(grid.x, grid.index(start, 0, 0), slab.x, 0, slab.numPoints());
+            System.arraycopy(grid.y, grid.index(start, 0, 0), slab.y, 0, slab.numPoints());
+            System.arraycopy(grid.z, grid.index(start, 0, 0), slab.z, 0, slab.numPoints());
+            slabs.accept(slab, start);
+        }
+        for (QualityMetric metric : QualityMetric.values()) {
+            assertEquals(metric.toString(), whole.worst(metric), slabs.worst(metric), 0.0);
+            for (int cell = 0; cell < whole.numCells(); cell++) {
+                assertEquals(metric.toString(), whole.cellData(metric)[cell], slabs.cellData(metric)[cell], 0.0);
+            }
+        }
+    }
+
+    private static void assertAllCells(MeshQuality quality, QualityMetric metric, double expected) {
+        float[] values = quality.cellData(metric);
+        for (int cell = 0; cell < values.length; cell++) {
+            assertEquals(metric + " of cell " + cell, expected, values[cell], 1e-6);
+        }
+        assertEquals(metric.toString(), expected, quality.worst(metric), TOLERANCE);
+    }
+
+    private static StructuredGrid box(int numXiPoints, int numEtaPoints, int numZetaPoints,
+            double dx, double dy, double dz) {
+        StructuredGrid grid = new StructuredGrid(numXiPoints, numEtaPoints, numZetaPoints);
+        for (int i = 0; i < numXiPoints; i++) {
+            for (int j = 0; j < numEtaPoints; j++) {
+                for (int k = 0; k < numZetaPoints; k++) {
+                    grid.set(i, j, k, i * dx, j * dy, k * dz);
+                }
+            }
+        }
+
+        return grid;
+    }
+}
@@ -0,0 +1,188 @@
+package mesh;
+
+import geom.CurvedBox;
+import geom.Geometry;
+import geom.GeometryFromFile;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * The parallel interpolation must give the same points as the serial one,
+ * the reference kernel the same points as the original implementation, and
+ * the faster kernels the same points as the reference up to round-off. A
+ * volume streamed slab by slab must be the volume computed at once.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class TransfiniteInterpolationTest {
+
+    // SHA-256 of the points of the curved box interpolated by the original
+    // implementation (before the grid had primitive arrays), as big endian
+    // doubles x, y, z of every point with k changing fastest
+    private static final String BASELINE_SHA256
+            = "d2b4864365c497a31fe0e357ff5d74d35392f9a7c982e5fb9fc232da90f14b3e";
+    private static final double KERNEL_TOLERANCE = 1e-13;
+
+    private static File geometryFile;
+    private static Geometry geom;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        geometryFile = CurvedBox.write(File.createTempFile("curved", ".dat"), 40);
+        geom = new GeometryFromFile(geometryFile, 17, 11, 9);
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        geometryFile.delete();
+    }
+
+    @Test
+    public void referenceKernelMatchesTheBaseline() throws Exception {
+        assertEquals(BASELINE_SHA256, sha256(TransfiniteInterpolation.interpolate(geom, TfiKernel.REFERENCE)));
+    }
+
+    @Test
+    public void parallelInterpolationIsBitIdenticalToSerial() {
+        for (TfiKernel kernel : TfiKernel.values()) {
+            StructuredGrid serial = TransfiniteInterpolation.interpolate(geom, kernel);
+            for (int numThreads = 1; numThreads <= 4; numThreads++) {
+                ForkJoinPool pool = new ForkJoinPool(numThreads);
+                try {
+                    assertSamePoints(kernel + " with " + numThreads + " threads", serial,
+                            TransfiniteInterpolation.interpolate(geom, kernel, pool));
+                    assertSamePoints(kernel + " xi fastest with " + numThreads + " threads", serial,
+                            TransfiniteInterpolation.interpolate(geom, kernel, pool, StorageOrder.XI_FASTEST));
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void blendedKernelAgreesWithTheReference() {
+        assertAgreesWithTheReference(TfiKernel.BLENDED);
+    }
+
+    @Test
+    public void vectorizedKernelAgreesWithTheReference() {
+        assertAgreesWithTheReference(TfiKernel.VECTORIZED);
+    }
+
+    @Test
+    public void streamedSlabsMatchTheVolume() throws IOException {
+        StructuredGrid volume = TransfiniteInterpolation.interpolate(geom, TfiKernel.BLENDED);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            for (SlabDirection direction : SlabDirection.values()) {
+                for (int slabSize : new int[]{1, 4, 100}) {
+                    String message = direction + " slabs of " + slabSize;
+                    GridSink serial = new GridSink(direction, volume);
+                    TransfiniteInterpolation.interpolate(geom, TfiKernel.BLENDED, serial, slabSize);
+                    assertSamePoints(message, volume, serial.grid);
+                    GridSink parallel = new GridSink(direction, volume);
+                    TransfiniteInterpolation.interpolate(geom, TfiKernel.BLENDED, parallel, slabSize, pool);
+                    assertSamePoints(message + " in parallel", volume, parallel.grid);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void assertAgreesWithTheReference(TfiKernel kernel) {
+        StructuredGrid reference = TransfiniteInterpolation.interpolate(geom, TfiKernel.REFERENCE);
+        StructuredGrid grid = TransfiniteInterpolation.interpolate(geom, kernel);
+        double maxDifference = 0.0;
+        for (int n = 0; n < reference.numPoints(); n++) {
+            maxDifference = Math.max(maxDifference, Math.abs(grid.x[n] - reference.x[n]));
+            maxDifference = Math.max(maxDifference, Math.abs(grid.y[n] - reference.y[n]));
+            maxDifference = Math.max(maxDifference, Math.abs(grid.z[n] - reference.z[n]));
+        }
+        assertTrue(kernel + " differs by " + maxDifference, maxDifference <= KERNEL_TOLERANCE);
+    }
+
+    private static void assertSamePoints(String message, StructuredGrid expected, StructuredGrid actual) {
+        assertEquals(message, expected.numPoints(), actual.numPoints());
+        for (int i = 0; i < expected.numXiPoints(); i++) {
+            for (int j = 0; j < expected.numEtaPoints(); j++) {
+                for (int k = 0; k < expected.numZetaPoints(); k++) {
+                    double[] a = {expected.getX(i, j, k), expected.getY(i, j, k), expected.getZ(i, j, k)};
+                    double[] b = {actual.getX(i, j, k), actual.getY(i, j, k), actual.getZ(i, j, k)};
+                    assertTrue(message + " at " + i + ", " + j + ", " + k, Arrays.equals(a, b));
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the slabs into a grid of the size of the volume, checking that
+     * they arrive in order.
+     */
+    private static class GridSink implements SlabSink {
+
+        private final SlabDirection direction;
+        private final StructuredGrid grid;
+        private int nextPlane;
+
+        GridSink(SlabDirection direction, StructuredGrid volume) {
+            this.direction = direction;
+            this.grid = new StructuredGrid(volume.numXiPoints(), volume.numEtaPoints(), volume.numZetaPoints());
+        }
+
+        @Override
+        public SlabDirection slabDirection() {
+            return direction;
+        }
+
+        @Override
+        public void accept(StructuredGrid slab, int start) {
+            assertEquals(nextPlane, start);
+            int iStart = direction == SlabDirection.XI ? start : 0;
+            int kStart = direction == SlabDirection.ZETA ? start : 0;
+            for (int i = 0; i < slab.numXiPoints(); i++) {
+                for (int j = 0; j < slab.numEtaPoints(); j++) {
+                    for (int k = 0; k < slab.numZetaPoints(); k++) {
+                        int n = grid.index(iStart + i, j, kStart + k);
+                        grid.x[n] = slab.getX(i, j, k);
+                        grid.y[n] = slab.getY(i, j, k);
+                        grid.z[n] = slab.getZ(i, j, k);
+                    }
+                }
+            }
+            nextPlane += direction == SlabDirection.XI ? slab.numXiPoints() : slab.numZetaPoints();
+        }
+    }
+
+    private static String sha256(StructuredGrid grid) throws IOException, NoSuchAlgorithmException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        for (int i = 0; i < grid.numXiPoints(); i++) {
+            for (int j = 0; j < grid.numEtaPoints(); j++) {
+                for (int k = 0; k < grid.numZetaPoints(); k++) {
+                    data.writeDouble(grid.getX(i, j, k));
+                    data.writeDouble(grid.getY(i, j, k));
+                    data.writeDouble(grid.getZ(i, j, k));
+                }
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(bytes.toByteArray())) {
+            hex.append(String.format("%02x", b));
+        }
+
+        return hex.toString();
+    }
+}
@@ -0,0 +1,156 @@
+package mesh;
+
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * The distance found by descending the hierarchy must be the distance to the
+ * nearest of all triangles, found by a plain scan, for points nearest to
+ * the inside, an edge or a corner of a triangle.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class TriangleTreeTest {
+
+    private static final double TOLERANCE = 1e-12;
+
+    @Test
+    public void distanceFromEveryRegionOfATriangle() {
+        TriangleTree tree = new TriangleTree(new double[]{0, 0, 0, 1, 0, 0, 0, 1, 0});
+        // corners
+        assertDistanceSquared(tree, -1, -1, 0.5, 2.25);
+        assertDistanceSquared(tree, 2, -1, 0, 2.0);
+        assertDistanceSquared(tree, -1, 2, 0, 2.0);
+        // edges
+        assertDistanceSquared(tree, 0.5, -1, 0, 1.0);
+        assertDistanceSquared(tree, -1, 0.5, 1, 2.0);
+        assertDistanceSquared(tree, 1, 1, 0, 0.5);
+        // inside, above and on the triangle
+        assertDistanceSquared(tree, 0.25, 0.25, 2, 4.0);
+        assertDistanceSquared(tree, 0.25, 0.25, 0, 0.0);
+    }
+
+    @Test
+    public void degenerateTriangleIsALine() {
+        TriangleTree tree = new TriangleTree(new double[]{0, 0, 0, 1, 0, 0, 2, 0, 0});
+        assertDistanceSquared(tree, 1.5, 1, 0, 1.0);
+        assertDistanceSquared(tree, 3, 0, 0, 1.0);
+    }
+
+    @Test
+    public void hierarchyFindsTheNearestOfAllTriangles() {
+        Random random = new Random(3);
+        int numTriangles = 600;
+        double[] triangles = new double[9 * numTriangles];
+        for (int t = 0; t < numTriangles; t++) {
+            double cx = 10 * random.nextDouble();
+            double cy = 10 * random.nextDouble();
+            double cz = 10 * random.nextDouble();
+            for (int n = 0; n < 9; n++) {
+                triangles[9 * t + n] = (n % 3 == 0 ? cx : n % 3 == 1 ? cy : cz) + random.nextDouble() - 0.5;
+            }
+        }
+        TriangleTree tree = new TriangleTree(triangles);
+        int[] stack = new int[TriangleTree.STACK_SIZE];
+        double[] stackDistances = new double[TriangleTree.STACK_SIZE];
+        int[] nearest = new int[1];
+        for (int n = 0; n < 3000; n++) {
+            double px;
+            double py;
+            double pz;
+            int t = random.nextInt(numTriangles);
+            double offset = 0.01 * (random.nextDouble() - 0.5);
+            switch (n % 3) {
+                case 0:
+                    // anywhere in and around the triangles
+                    px = 12 * random.nextDouble() - 1;
+                    py = 12 * random.nextDouble() - 1;
+                    pz = 12 * random.nextDouble() - 1;
+                    break;
+                case 1:
+                    // near a corner
+                    int corner = 9 * t + 3 * random.nextInt(3);
+                    px = triangles[corner] + offset;
+                    py = triangles[corner + 1] - offset;
+                    pz = triangles[corner + 2] + offset;
+                    break;
+                default:
+                    // near a point of an edge
+                    int a = 9 * t + 3 * random.nextInt(3);
+                    int b = 9 * t + (a - 9 * t + 3) % 9;
+                    double s = random.nextDouble();
+                    px = triangles[a] + s * (triangles[b] - triangles[a]) - offset;
+                    py = triangles[a + 1] + s * (triangles[b + 1] - triangles[a + 1]) + offset;
+                    pz = triangles[a + 2] + s * (triangles[b + 2] - triangles[a + 2]) + offset;
+                    break;
+            }
+            double expected = Double.POSITIVE_INFINITY;
+            for (int u = 0; u < numTriangles; u++) {
+                expected = Math.min(expected, bruteForceDistanceSquared(triangles, u, px, py, pz));
+            }
+            assertEquals("point " + n, expected,
+                    tree.distanceSquared(px, py, pz, stack, stackDistances, nearest), TOLERANCE);
+        }
+    }
+
+    private static void assertDistanceSquared(TriangleTree tree, double px, double py, double pz, double expected) {
+        double actual = tree.distanceSquared(px, py, pz, new int[TriangleTree.STACK_SIZE],
+                new double[TriangleTree.STACK_SIZE], new int[1]);
+        assertEquals(px + ", " + py + ", " + pz, expected, actual, TOLERANCE);
+    }
+
+    /**
+     * Squared distance to the triangle as the distance to its plane if the
+     * foot of the point lies inside the triangle, and else the distance to
+     * the nearest of its three edges.
+     */
+    private static double bruteForceDistanceSquared(double[] triangles, int t, double px, double py, double pz) {
+        double[] a = corner(triangles, t, 0);
+        double[] b = corner(triangles, t, 1);
+        double[] c = corner(triangles, t, 2);
+        double[] p = {px, py, pz};
+        double[] ab = sub(b, a);
+        double[] ac = sub(c, a);
+        double[] normal = cross(ab, ac);
+        double area2 = dot(normal, normal);
+        if (area2 > 0.0) {
+            double height = dot(sub(p, a), normal) / area2;
+            double[] foot = {p[0] - height * normal[0], p[1] - height * normal[1], p[2] - height * normal[2]};
+            // the foot is inside if it is on the inner side of all three edges
+            if (dot(cross(sub(b, a), sub(foot, a)), normal) >= 0.0
+                    && dot(cross(sub(c, b), sub(foot, b)), normal) >= 0.0
+                    && dot(cross(sub(a, c), sub(foot, c)), normal) >= 0.0) {
+                double[] d = sub(p, foot);
+                return dot(d, d);
+            }
+        }
+        return Math.min(segmentDistanceSquared(a, b, p),
+                Math.min(segmentDistanceSquared(b, c, p), segmentDistanceSquared(c, a, p)));
+    }
+
+    private static double segmentDistanceSquared(double[] a, double[] b, double[] p) {
+        double[] ab = sub(b, a);
+        double length2 = dot(ab, ab);
+        double s = length2 > 0.0 ? Math.max(0.0, Math.min(1.0, dot(sub(p, a), ab) / length2)) : 0.0;
+        double[] d = {p[0] - a[0] - s * ab[0], p[1] - a[1] - s * ab[1], p[2] - a[2] - s * ab[2]};
+        return dot(d, d);
+    }
+
+    private static double[] corner(double[] triangles, int t, int n) {
+        int offset = 9 * t + 3 * n;
+        return new double[]{triangles[offset], triangles[offset + 1], triangles[offset + 2]};
+    }
+
+    private static double[] sub(double[] u, double[] v) {
+        return new double[]{u[0] - v[0], u[1] - v[1], u[2] - v[2]};
+    }
+
+    private static double[] cross(double[] u, double[] v) {
+        return new double[]{u[1] * v[2] - u[2] * v[1], u[2] * v[0] - u[0] * v[2], u[0] * v[1] - u[1] * v[0]};
+    }
+
+    private static double dot(double[] u, double[] v) {
+        return u[0] * v[0] + u[1] * v[1] + u[2] * v[2];
+    }
+}
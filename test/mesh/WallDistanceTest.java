@@ -0,0 +1,87 @@
+package mesh;
+
+import geom.BoundaryFace;
+import java.util.EnumSet;
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.Assert.assertEquals;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * The distances in a box are known exactly: the distance to a plane wall,
+ * or the nearest of several.
+ *
+ * @author Sourabh Bhat <sourabh.bhat@iitb.ac.in>
+ */
+public class WallDistanceTest {
+
+    private static final double TOLERANCE = 1e-12;
+
+    private static ForkJoinPool pool;
+
+    @BeforeClass
+    public static void setUpClass() {
+        pool = new ForkJoinPool(2);
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void distanceToTheBottomIsTheHeight() {
+        StructuredGrid grid = box(6, 5, 4, 0.4, 0.5, 0.25);
+        WallDistance distance = WallDistance.compute(grid, EnumSet.of(BoundaryFace.zeta0), pool);
+        for (int i = 0; i < grid.numXiPoints(); i++) {
+            for (int j = 0; j < grid.numEtaPoints(); j++) {
+                for (int k = 0; k < grid.numZetaPoints(); k++) {
+                    assertEquals(grid.getZ(i, j, k), distance.distance(i, j, k), TOLERANCE);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void distanceToSeveralWallsIsTheNearest() {
+        StructuredGrid grid = box(6, 5, 4, 0.4, 0.5, 0.25);
+        double length = 5 * 0.4;
+        double height = 3 * 0.25;
+        WallDistance distance = WallDistance.compute(grid,
+                EnumSet.of(BoundaryFace.xi1, BoundaryFace.eta0, BoundaryFace.zeta1), pool);
+        for (int i = 0; i < grid.numXiPoints(); i++) {
+            for (int j = 0; j < grid.numEtaPoints(); j++) {
+                for (int k = 0; k < grid.numZetaPoints(); k++) {
+                    double expected = Math.min(length - grid.getX(i, j, k),
+                            Math.min(grid.getY(i, j, k), height - grid.getZ(i, j, k)));
+                    assertEquals(expected, distance.distance(i, j, k), TOLERANCE);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void distancesAreNumberedWithIChangingFastest() {
+        StructuredGrid grid = box(3, 2, 2, 1.0, 1.0, 1.0);
+        WallDistance distance = WallDistance.compute(grid, EnumSet.of(BoundaryFace.xi0), pool);
+        assertEquals(grid.numPoints(), distance.distances().length);
+        for (int n = 0; n < distance.distances().length; n++) {
+            assertEquals(n % 3, distance.distances()[n], TOLERANCE);
+        }
+    }
+
+    private static StructuredGrid box(int numXiPoints, int numEtaPoints, int numZetaPoints,
+            double dx, double dy, double dz) {
+        StructuredGrid grid = new StructuredGrid(numXiPoints, numEtaPoints, numZetaPoints);
+        for (int i = 0; i < numXiPoints; i++) {
+            for (int j = 0; j < numEtaPoints; j++) {
+                for (int k = 0; k < numZetaPoints; k++) {
+                    grid.set(i, j, k, i * dx, j * dy, k * dz);
+                }
+            }
+        }
+
+        return grid;
+    }
+}